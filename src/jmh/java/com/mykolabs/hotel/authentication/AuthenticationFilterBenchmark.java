@@ -0,0 +1,106 @@
+package com.mykolabs.hotel.authentication;
+
+import com.mykolabs.hotel.testing.EmbeddedDatabase;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import java.net.URI;
+import java.security.Principal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.KeyGenerator;
+import javax.crypto.spec.SecretKeySpec;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.SecurityContext;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Full AuthenticationFilter.filter() run for a GET request, with and without
+ * the token cache. Lives in the filter's package to inject the secret key.
+ *
+ * @author nikprixmar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuthenticationFilterBenchmark {
+
+    private static final String USERNAME = "manager";
+
+    private static final URI BASE_URI = URI.create("http://localhost:8080/hotel-backend/webresources/");
+    private static final URI REQUEST_URI = URI.create("http://localhost:8080/hotel-backend/webresources/rooms/1");
+
+    private AuthenticationFilter filter;
+    private String authorizationHeader;
+
+    @Setup
+    public void setUp() throws Exception {
+        EmbeddedDatabase.init();
+
+        filter = new AuthenticationFilter();
+        filter.key = KeyGenerator.getInstance("AES").generateKey();
+
+        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.HS256;
+        // matches the EMPLOYEE row from HotelTableCreate.sql
+        String token = Jwts.builder()
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .setSubject(USERNAME)
+                .setAudience("admin")
+                .setId("1")
+                .signWith(signatureAlgorithm,
+                        new SecretKeySpec(filter.key.getEncoded(), signatureAlgorithm.getJcaName()))
+                .compact();
+        authorizationHeader = "Bearer " + token;
+    }
+
+    @Benchmark
+    public ContainerRequest filterCachedToken() throws Exception {
+        ContainerRequest request = newRequest();
+        filter.filter(request);
+        return request;
+    }
+
+    @Benchmark
+    public ContainerRequest filterUncachedToken() throws Exception {
+        TokenCache.getInstance().invalidate(USERNAME);
+        ContainerRequest request = newRequest();
+        filter.filter(request);
+        return request;
+    }
+
+    private ContainerRequest newRequest() {
+        ContainerRequest request = new ContainerRequest(BASE_URI, REQUEST_URI, "GET",
+                ANONYMOUS, new MapPropertiesDelegate());
+        request.header(HttpHeaders.AUTHORIZATION, authorizationHeader);
+        return request;
+    }
+
+    private static final SecurityContext ANONYMOUS = new SecurityContext() {
+        @Override
+        public Principal getUserPrincipal() {
+            return null;
+        }
+
+        @Override
+        public boolean isUserInRole(String role) {
+            return false;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return false;
+        }
+
+        @Override
+        public String getAuthenticationScheme() {
+            return null;
+        }
+    };
+}
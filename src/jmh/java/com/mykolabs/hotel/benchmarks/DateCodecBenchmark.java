@@ -0,0 +1,88 @@
+package com.mykolabs.hotel.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mykolabs.hotel.beans.Reservation;
+import com.mykolabs.hotel.json.JsonSupport;
+import com.mykolabs.hotel.util.DateTimeCodec;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reservation (de)serialization, dominated by CustomDateSerializer and
+ * CustomDateDeserializer for the two date fields, and DateTimeCodec against
+ * the DateTimeFormatter it replaced on a single value.
+ *
+ * @author nikprixmar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DateCodecBenchmark {
+
+    private ObjectMapper mapper;
+    private Reservation reservation;
+    private String json;
+    private LocalDateTime dateTime;
+    private String dateText;
+    private char[] dateChars;
+    private char[] buffer;
+    private DateTimeFormatter formatter;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = JsonSupport.mapper();
+
+        reservation = new Reservation(42,
+                LocalDateTime.of(2016, 12, 1, 17, 30, 0),
+                LocalDateTime.of(2017, 1, 16, 12, 0, 0));
+        reservation.setCustomerId(1);
+        reservation.setRoomNumberId(1);
+        reservation.setEmployeeId(1);
+
+        json = mapper.writeValueAsString(reservation);
+
+        dateTime = reservation.getCheckinDate();
+        dateText = DateTimeCodec.format(dateTime);
+        dateChars = dateText.toCharArray();
+        buffer = new char[DateTimeCodec.LENGTH];
+        formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    }
+
+    @Benchmark
+    public String serializeReservation() throws Exception {
+        return mapper.writeValueAsString(reservation);
+    }
+
+    @Benchmark
+    public Reservation deserializeReservation() throws Exception {
+        return mapper.readValue(json, Reservation.class);
+    }
+
+    @Benchmark
+    public String formatWithFormatter() {
+        return formatter.format(dateTime);
+    }
+
+    @Benchmark
+    public int formatWithCodec() {
+        return DateTimeCodec.format(dateTime, buffer, 0);
+    }
+
+    @Benchmark
+    public LocalDateTime parseWithFormatter() {
+        return LocalDateTime.parse(dateText, formatter);
+    }
+
+    @Benchmark
+    public LocalDateTime parseWithCodec() {
+        return DateTimeCodec.parse(dateChars, 0, dateChars.length);
+    }
+}
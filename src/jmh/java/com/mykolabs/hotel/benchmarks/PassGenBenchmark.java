@@ -0,0 +1,36 @@
+package com.mykolabs.hotel.benchmarks;
+
+import com.mykolabs.hotel.authentication.PassGen;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Password check cost (PBKDF2) per login.
+ *
+ * @author nikprixmar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PassGenBenchmark {
+
+    private static final String PASSWORD = "front-desk-password";
+
+    private String stored;
+
+    @Setup
+    public void setUp() throws Exception {
+        stored = PassGen.getSaltedHash(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean check() throws Exception {
+        return PassGen.check(PASSWORD, stored);
+    }
+}
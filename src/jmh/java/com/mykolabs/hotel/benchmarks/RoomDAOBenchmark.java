@@ -0,0 +1,64 @@
+package com.mykolabs.hotel.benchmarks;
+
+import com.mykolabs.hotel.beans.Room;
+import com.mykolabs.hotel.persistence.RoomDAO;
+import com.mykolabs.hotel.testing.EmbeddedDatabase;
+import com.mykolabs.hotel.util.ConnectionHelper;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Room row mapping straight from the embedded DB versus the cached catalog.
+ *
+ * @author nikprixmar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoomDAOBenchmark {
+
+    @Param({"500"})
+    private int rooms;
+
+    private RoomDAO roomDAO;
+
+    @Setup
+    public void setUp() throws Exception {
+        EmbeddedDatabase.init();
+
+        try (Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(
+                        "INSERT INTO ROOM (ROOM_PRICE, ROOM_TYPE, IMAGE, DESCRIPTION) VALUES (?,?,?,?)")) {
+            for (int i = 0; i < rooms; i++) {
+                pStatement.setBigDecimal(1, new java.math.BigDecimal(100 + i % 200));
+                pStatement.setString(2, i % 3 == 0 ? "Double" : "Single");
+                // mix partial paths and full URLs
+                pStatement.setString(3, i % 2 == 0 ? "room" + (i % 8 + 1) + ".jpg" : "https://cdn.example.com/room" + i + ".jpg");
+                pStatement.setString(4, "Cozy and comfortable recently renovated room number " + i);
+                pStatement.addBatch();
+            }
+            pStatement.executeBatch();
+        }
+        roomDAO = new RoomDAO();
+    }
+
+    @Benchmark
+    public List<Room> mapRowsFromDB() throws Exception {
+        return roomDAO.getAllRoomsFromDB(rooms + 10);
+    }
+
+    @Benchmark
+    public List<Room> getAllRooms() throws Exception {
+        return roomDAO.getAllRooms(0, 100, true);
+    }
+}
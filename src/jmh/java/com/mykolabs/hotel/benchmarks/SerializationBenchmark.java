@@ -0,0 +1,79 @@
+package com.mykolabs.hotel.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mykolabs.hotel.beans.Room;
+import com.mykolabs.hotel.beansLists.RoomList;
+import com.mykolabs.hotel.beansLists.TodayReservation;
+import com.mykolabs.hotel.beansLists.TodayReservationList;
+import com.mykolabs.hotel.json.JsonSupport;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * JSON serialization of the list payloads returned by the resources.
+ *
+ * @author nikprixmar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectMapper mapper;
+    private RoomList roomList;
+    private TodayReservationList todayReservationList;
+
+    @Setup
+    public void setUp() {
+        mapper = JsonSupport.mapper();
+
+        List<Room> rooms = new ArrayList<>();
+        List<TodayReservation> reservations = new ArrayList<>();
+        LocalDateTime checkin = LocalDateTime.of(2016, 12, 1, 17, 30, 0);
+        for (int i = 1; i <= size; i++) {
+            Room room = new Room(i);
+            room.setRoomPrice(new BigDecimal("150.00"));
+            room.setRoomType("Single");
+            room.setImage("http://localhost/resources/images/rooms/room1.jpg");
+            room.setDescription("Cozy and comfortable recently renovated room with double bed, microwave and coffe maker.");
+            rooms.add(room);
+
+            TodayReservation reservation = new TodayReservation();
+            reservation.setReservationId(i);
+            reservation.setFirstName("John");
+            reservation.setLastName("Dowes");
+            reservation.setRoomNumber(i);
+            reservation.setCheckinDate(checkin.plusMinutes(i));
+            reservations.add(reservation);
+        }
+
+        roomList = new RoomList();
+        roomList.setRoomList(rooms);
+        todayReservationList = new TodayReservationList();
+        todayReservationList.setTodayReservationList(reservations);
+    }
+
+    @Benchmark
+    public byte[] roomList() throws Exception {
+        return mapper.writeValueAsBytes(roomList);
+    }
+
+    @Benchmark
+    public byte[] todayReservationList() throws Exception {
+        return mapper.writeValueAsBytes(todayReservationList);
+    }
+}
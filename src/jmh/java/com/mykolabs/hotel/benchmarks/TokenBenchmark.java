@@ -0,0 +1,81 @@
+package com.mykolabs.hotel.benchmarks;
+
+import com.mykolabs.hotel.authentication.TokenClaims;
+import com.mykolabs.hotel.util.TokenUtil;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JWT parsing and signature verification.
+ *
+ * @author nikprixmar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenBenchmark {
+
+    private SecretKey key;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        key = KeyGenerator.getInstance("AES").generateKey();
+        token = createToken(key, "manager", 1, "admin");
+    }
+
+    /**
+     * Builds a signed token the same way TokenUtil.getJWTString does, without
+     * persisting it.
+     *
+     * @param key
+     * @param username
+     * @param id
+     * @param roles
+     * @return
+     */
+    static String createToken(SecretKey key, String username, int id, String roles) {
+        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.HS256;
+        return Jwts.builder()
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .setSubject(username)
+                .setAudience(roles)
+                .setIssuer("BookStore")
+                .setId(String.valueOf(id))
+                .signWith(signatureAlgorithm, new SecretKeySpec(key.getEncoded(), signatureAlgorithm.getJcaName()))
+                .compact();
+    }
+
+    @Benchmark
+    public TokenClaims parseClaims() {
+        return TokenUtil.parseClaims(token, key);
+    }
+
+    /**
+     * Claim by claim access, as AuthenticationFilter used to do it.
+     *
+     * @param blackhole
+     */
+    @Benchmark
+    public void perClaimAccess(Blackhole blackhole) {
+        blackhole.consume(TokenUtil.isValid(token, key));
+        blackhole.consume(TokenUtil.getName(token, key));
+        blackhole.consume(TokenUtil.getRoles(token, key));
+        blackhole.consume(TokenUtil.getId(token, key));
+        blackhole.consume(TokenUtil.getExpiryDate(token, key));
+    }
+}
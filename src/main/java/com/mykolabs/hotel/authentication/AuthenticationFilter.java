@@ -56,7 +56,7 @@ public class AuthenticationFilter implements ContainerRequestFilter {
      */
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
-        log.log(Level.INFO, "Entered Filter method");
+        log.log(Level.FINE, "Entered Filter method");
 
         String method = requestContext.getMethod().toLowerCase();
         String path = ((ContainerRequest) requestContext).getPath(true).toLowerCase();
@@ -92,7 +92,9 @@ public class AuthenticationFilter implements ContainerRequestFilter {
 
     /**
      * Validates retrieved from the headers token against DB value. Issues
-     * exception if tokens don't match.
+     * exception if tokens don't match. Verified tokens are cached together
+     * with the resolved employee, so repeated requests with the same token
+     * skip both signature verification and the DB lookup.
      *
      * @param token
      * @param username
@@ -100,17 +102,27 @@ public class AuthenticationFilter implements ContainerRequestFilter {
      */
     private void validateToken(ContainerRequestContext requestContext, String token) throws Exception {
 
-        if (TokenUtil.isValid(token, key)) {
+        TokenCache tokenCache = TokenCache.getInstance();
 
-            String username = TokenUtil.getName(token, key);
-            String[] roles = TokenUtil.getRoles(token, key);
-            int id = TokenUtil.getId(token, key);
-            Date expirationDate = TokenUtil.getExpiryDate(token, key);
-            
-            log.log(Level.INFO, "Current date: {0}", TokenUtil.getCurrentDate());
-            log.log(Level.INFO, "Token expiry date: {0}", expirationDate);
+        EmployeePrincipal principal = tokenCache.get(token);
+        if (principal != null) {
+            setPrincipal(requestContext, principal);
+            return;
+        }
+
+        // parsing token and verifying its signature only once
+        TokenClaims claims = TokenUtil.parseClaims(token, key);
+
+        if (claims != null) {
+
+            String username = claims.getUsername();
+            String[] roles = claims.getRoles();
+            int id = claims.getId();
+            Date expirationDate = claims.getExpiryDate();
+
+            log.log(Level.FINE, "Token expiry date: {0}", expirationDate);
 
-            if (TokenUtil.getCurrentDate().compareTo(expirationDate) < 0) {
+            if (!claims.isExpired()) {
                 // token is not expired
 
                 if (username != null && roles.length != 0 && id != -1) {
@@ -119,17 +131,17 @@ public class AuthenticationFilter implements ContainerRequestFilter {
                         // retrieving user's profile from the DB
                         EmployeeDAO employeeDAO = new EmployeeDAO();
                         employee = employeeDAO.getEmployee(username);
-                        // retrieving binded to the user token
-                        String retrievedToken = employee.getToken();
-                        log.log(Level.INFO, "Extracted from DB: {0} : {1}", new Object[]{employee.getUsername(), retrievedToken});
                     } catch (EntityNotFoundException e) {
                         throw new com.mykolabs.hotel.exceptions.EntityNotFoundException("User not found " + username);
                     }
                     if (employee != null) {
-                        if (employee.getEmployeeId() == id && employee.getRoles() != null
+                        if (employee.getEmployeeId() != null && employee.getEmployeeId() == id && employee.getRoles() != null
                                 && Arrays.asList(employee.getRoles()).containsAll(Arrays.asList(roles))) {
                             // Token is valid
-                            log.log(Level.INFO, "Authentication info is valid");
+                            log.log(Level.FINE, "Authentication info is valid");
+                            principal = new EmployeePrincipal(id, username, roles);
+                            tokenCache.put(token, principal, expirationDate.getTime());
+                            setPrincipal(requestContext, principal);
                             return;
                         } else {
                             log.log(Level.INFO, "User id or roles did not match the token");
@@ -148,4 +160,35 @@ public class AuthenticationFilter implements ContainerRequestFilter {
         }
         throw new WebApplicationException(Response.Status.UNAUTHORIZED);
     }
+
+    /**
+     * Exposes authenticated employee to the resources via SecurityContext.
+     *
+     * @param requestContext
+     * @param principal
+     */
+    private void setPrincipal(ContainerRequestContext requestContext, final EmployeePrincipal principal) {
+        final boolean secure = requestContext.getSecurityContext().isSecure();
+        requestContext.setSecurityContext(new SecurityContext() {
+            @Override
+            public Principal getUserPrincipal() {
+                return principal;
+            }
+
+            @Override
+            public boolean isUserInRole(String role) {
+                return principal.getRoles().contains(role);
+            }
+
+            @Override
+            public boolean isSecure() {
+                return secure;
+            }
+
+            @Override
+            public String getAuthenticationScheme() {
+                return "Bearer";
+            }
+        });
+    }
 }
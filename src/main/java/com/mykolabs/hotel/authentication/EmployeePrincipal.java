@@ -0,0 +1,39 @@
+package com.mykolabs.hotel.authentication;
+
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Authenticated employee, resolved from a verified token. Carries only what
+ * the API needs - never the password or token.
+ *
+ * @author nikprixmar
+ */
+public final class EmployeePrincipal implements Principal {
+
+    private final int employeeId;
+    private final String username;
+    private final Set<String> roles;
+
+    public EmployeePrincipal(int employeeId, String username, String[] roles) {
+        this.employeeId = employeeId;
+        this.username = username;
+        this.roles = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(roles)));
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+}
@@ -0,0 +1,66 @@
+package com.mykolabs.hotel.authentication;
+
+import com.mykolabs.hotel.util.AsyncExecutor;
+import com.mykolabs.hotel.util.Configuration;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import java.util.concurrent.Callable;
+import javax.ws.rs.container.AsyncResponse;
+
+/**
+ * Small bounded executor for password checks. PBKDF2 is CPU bound by design,
+ * so only a few logins are hashed at a time and a login storm queues up (or
+ * gets 503) here instead of taking every core from other requests.
+ *
+ * @author nikprixmar
+ */
+public class LoginExecutor {
+
+    private static final int DEFAULT_QUEUE_SIZE = 50;
+    private static final long DEFAULT_TIMEOUT_MS = 5000;
+    private static final int DEFAULT_RETRY_AFTER_SECONDS = 2;
+
+    private static volatile AsyncExecutor executor;
+
+    /**
+     * Runs the login on a hashing worker and resumes the response with its
+     * result.
+     *
+     * @param asyncResponse
+     * @param call
+     */
+    public static void submit(AsyncResponse asyncResponse, Callable<Object> call) {
+        Configuration config = ConfigurationManager.get();
+        getExecutor().submit(asyncResponse, call,
+                config.getLong("LOGIN_TIMEOUT_MS", DEFAULT_TIMEOUT_MS),
+                config.getInt("LOGIN_RETRY_AFTER_SECONDS", DEFAULT_RETRY_AFTER_SECONDS));
+    }
+
+    /**
+     * Stops the executor, called on application shutdown.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private static AsyncExecutor getExecutor() {
+        AsyncExecutor current = executor;
+        if (current == null) {
+            synchronized (LoginExecutor.class) {
+                current = executor;
+                if (current == null) {
+                    Configuration config = ConfigurationManager.get();
+                    // leave most cores to the rest of the application
+                    int defaultThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+                    current = new AsyncExecutor("login",
+                            config.getInt("LOGIN_HASH_THREADS", defaultThreads),
+                            config.getInt("LOGIN_HASH_QUEUE_SIZE", DEFAULT_QUEUE_SIZE));
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+}
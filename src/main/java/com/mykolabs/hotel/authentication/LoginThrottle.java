@@ -0,0 +1,131 @@
+package com.mykolabs.hotel.authentication;
+
+import com.mykolabs.hotel.metrics.MetricsRegistry;
+import com.mykolabs.hotel.util.Configuration;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits login attempts per username and per client IP within a fixed time
+ * window. Checked before the password is hashed, so throttled attempts cost
+ * a map lookup only. A successful login clears the username's counter.
+ *
+ * The per IP limit is off when LOGIN_MAX_ATTEMPTS_PER_IP is 0. Behind a load
+ * balancer the client IP is taken from X-Forwarded-For, but only for requests
+ * coming from one of LOGIN_TRUSTED_PROXIES; otherwise every client would
+ * share the proxy's address, or could pick its own.
+ *
+ * @author nikprixmar
+ */
+public class LoginThrottle {
+
+    private static final int DEFAULT_WINDOW_SECONDS = 60;
+    private static final int DEFAULT_MAX_ATTEMPTS_PER_USER = 10;
+    private static final int DEFAULT_MAX_ATTEMPTS_PER_IP = 30;
+    // expired windows are purged once the map grows past this size
+    private static final int PURGE_THRESHOLD = 10000;
+
+    private static final String THROTTLED = "hotel_login_throttled_total";
+
+    private static final LoginThrottle instance = new LoginThrottle();
+
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    public static LoginThrottle getInstance() {
+        return instance;
+    }
+
+    /**
+     * Records a login attempt unless the username or IP is over its limit.
+     *
+     * @param username
+     * @param ip
+     * @return 0 if the attempt may proceed, otherwise seconds until the
+     * client should retry
+     */
+    public long tryAcquire(String username, String ip) {
+        Configuration config = ConfigurationManager.get();
+        long windowMillis = TimeUnit.SECONDS.toMillis(config.getInt("LOGIN_THROTTLE_WINDOW_SECONDS", DEFAULT_WINDOW_SECONDS));
+        long now = System.currentTimeMillis();
+
+        if (windows.size() > PURGE_THRESHOLD) {
+            windows.values().removeIf(window -> window.isExpired(now));
+        }
+
+        long retryAfter = acquire("user:" + String.valueOf(username).toLowerCase(),
+                config.getInt("LOGIN_MAX_ATTEMPTS_PER_USER", DEFAULT_MAX_ATTEMPTS_PER_USER), windowMillis, now);
+        int maxAttemptsPerIp = config.getInt("LOGIN_MAX_ATTEMPTS_PER_IP", DEFAULT_MAX_ATTEMPTS_PER_IP);
+        if (retryAfter == 0 && maxAttemptsPerIp > 0) {
+            retryAfter = acquire("ip:" + ip, maxAttemptsPerIp, windowMillis, now);
+        }
+        if (retryAfter > 0) {
+            MetricsRegistry.counter(THROTTLED, "").increment();
+        }
+        return retryAfter;
+    }
+
+    /**
+     * Returns the address the per IP limit applies to: the last address of
+     * X-Forwarded-For when the request comes from a trusted proxy, the
+     * remote address otherwise.
+     *
+     * @param remoteAddr address of the TCP peer
+     * @param forwardedFor X-Forwarded-For header, may be null
+     * @return
+     */
+    public String clientAddress(String remoteAddr, String forwardedFor) {
+        if (forwardedFor == null || forwardedFor.trim().isEmpty()) {
+            return remoteAddr;
+        }
+        String proxies = ConfigurationManager.get().getString("LOGIN_TRUSTED_PROXIES", "");
+        if (!Arrays.asList(proxies.trim().split("\\s*,\\s*")).contains(remoteAddr)) {
+            return remoteAddr;
+        }
+        // the proxy appends the address it received the request from
+        String[] hops = forwardedFor.split(",");
+        return hops[hops.length - 1].trim();
+    }
+
+    /**
+     * Clears the username's attempts after a successful login.
+     *
+     * @param username
+     */
+    public void reset(String username) {
+        windows.remove("user:" + String.valueOf(username).toLowerCase());
+    }
+
+    private long acquire(String key, int maxAttempts, long windowMillis, long now) {
+        long[] retryAfter = {0};
+        // compute() is atomic per key
+        windows.compute(key, (k, window) -> {
+            if (window == null || window.isExpired(now)) {
+                return new Window(now + windowMillis);
+            }
+            if (window.attempts < maxAttempts) {
+                window.attempts++;
+            } else {
+                retryAfter[0] = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(window.expiresAt - now));
+            }
+            return window;
+        });
+        return retryAfter[0];
+    }
+
+    private static final class Window {
+
+        private final long expiresAt;
+        private int attempts = 1;
+
+        Window(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.mykolabs.hotel.authentication;
 
 import org.apache.commons.codec.binary.Base64;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
@@ -27,6 +29,18 @@ public class PassGen {
     private static final int SALTLEN = 32;
     private static final int DESIREDKEYLEN = 256;
 
+    private static final SecureRandom random = new SecureRandom();
+
+    // SecretKeyFactory isn't thread safe, one instance per thread avoids the
+    // provider lookup on every check
+    private static final ThreadLocal<SecretKeyFactory> keyFactory = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
     /**
      * Computes a salted PBKDF2 hash of given plaintext password suitable for
      * storing in a database. Empty passwords are not supported.
@@ -36,7 +50,8 @@ public class PassGen {
      * @throws java.lang.Exception
      */
     public static String getSaltedHash(String password) throws Exception {
-        byte[] salt = SecureRandom.getInstance("SHA1PRNG").generateSeed(SALTLEN);
+        byte[] salt = new byte[SALTLEN];
+        random.nextBytes(salt);
         // store the salt with the password
         return Base64.encodeBase64String(salt) + "$" + hash(password, salt);
     }
@@ -58,9 +73,9 @@ public class PassGen {
         }
         String hashOfInput = hash(password, Base64.decodeBase64(saltAndPass[0]));
 
-        log.log(Level.INFO, "Provided password salted hash: {0}", hashOfInput);
-
-        return hashOfInput.equals(saltAndPass[1]);
+        // constant time comparison
+        return MessageDigest.isEqual(hashOfInput.getBytes(StandardCharsets.US_ASCII),
+                saltAndPass[1].getBytes(StandardCharsets.US_ASCII));
     }
 
     // using PBKDF2 from Sun, an alternative is https://github.com/wg/scrypt
@@ -77,13 +92,10 @@ public class PassGen {
         if (password == null || password.length() == 0) {
             throw new IllegalArgumentException("Empty passwords are not supported.");
         }
-        SecretKeyFactory f = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512");
-        SecretKey key = f.generateSecret(new PBEKeySpec(
+        SecretKey key = keyFactory.get().generateSecret(new PBEKeySpec(
                 password.toCharArray(), salt, ITERATIONS, DESIREDKEYLEN)
         );
-        
-        log.log(Level.INFO, "Returned hash: {0}", Base64.encodeBase64String(key.getEncoded()));
-        
+
         return Base64.encodeBase64String(key.getEncoded());
     }
 
@@ -0,0 +1,112 @@
+package com.mykolabs.hotel.authentication;
+
+import com.mykolabs.hotel.util.ConfigurationManager;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of verified tokens to the employee they were resolved to.
+ * Entries expire together with the token, but are kept at most
+ * AUTH_TOKEN_CACHE_TTL_MS: changes to EMPLOYEE made outside the application
+ * (deleted employee, removed role) are seen once the entry expires. Entries
+ * are also dropped when the employee logs in again (see EmployeeDAO.setToken).
+ *
+ * @author nikprixmar
+ */
+public class TokenCache {
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final long DEFAULT_TTL_MS = 60 * 1000;
+
+    private static final TokenCache instance
+            = new TokenCache(ConfigurationManager.get().getInt("AUTH_TOKEN_CACHE_SIZE", DEFAULT_MAX_SIZE),
+                    ConfigurationManager.get().getLong("AUTH_TOKEN_CACHE_TTL_MS", DEFAULT_TTL_MS));
+
+    private final Map<String, Entry> entries;
+    private final long ttlMillis;
+
+    public TokenCache(final int maxSize, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        // access ordered, so the least recently used token is evicted first
+        this.entries = new LinkedHashMap<String, Entry>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public static TokenCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns principal for a previously verified token, or null if the token
+     * is unknown or expired.
+     *
+     * @param token
+     * @return
+     */
+    public EmployeePrincipal get(String token) {
+        synchronized (entries) {
+            Entry entry = entries.get(token);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(token);
+                return null;
+            }
+            return entry.principal;
+        }
+    }
+
+    /**
+     * Caches principal of a verified token until the token expires or the
+     * cache TTL passes, whichever comes first.
+     *
+     * @param token
+     * @param principal
+     * @param expiresAt token expiry, epoch millis
+     */
+    public void put(String token, EmployeePrincipal principal, long expiresAt) {
+        long until = Math.min(expiresAt, System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(token, new Entry(principal, until));
+        }
+    }
+
+    /**
+     * Drops all cached tokens of the employee.
+     *
+     * @param username
+     */
+    public void invalidate(String username) {
+        synchronized (entries) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().principal.getName().equals(username)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static final class Entry {
+
+        private final EmployeePrincipal principal;
+        private final long expiresAt;
+
+        Entry(EmployeePrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.mykolabs.hotel.authentication;
+
+import java.util.Date;
+
+/**
+ * Claims of a JWT whose signature was verified once, so callers don't have to
+ * re-parse the token for every claim.
+ *
+ * @author nikprixmar
+ */
+public final class TokenClaims {
+
+    private final String username;
+    private final int id;
+    private final String[] roles;
+    private final Date expiryDate;
+
+    public TokenClaims(String username, int id, String[] roles, Date expiryDate) {
+        this.username = username;
+        this.id = id;
+        this.roles = roles;
+        this.expiryDate = expiryDate;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String[] getRoles() {
+        return roles.clone();
+    }
+
+    public Date getExpiryDate() {
+        return expiryDate;
+    }
+
+    public boolean isExpired() {
+        return expiryDate == null || expiryDate.getTime() <= System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,35 @@
+package com.mykolabs.hotel.beansLists;
+
+import com.mykolabs.hotel.beans.Payment;
+import com.mykolabs.hotel.beans.Reservation;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Reservation together with its payment, created in one transaction by POST
+ * reservations/book. Ids of both are generated, the payment gets the
+ * reservation id.
+ *
+ * @author nikprixmar
+ */
+@XmlRootElement
+public class Booking {
+
+    private Reservation reservation;
+    private Payment payment;
+
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    public void setReservation(Reservation reservation) {
+        this.reservation = reservation;
+    }
+
+    public Payment getPayment() {
+        return payment;
+    }
+
+    public void setPayment(Payment payment) {
+        this.payment = payment;
+    }
+}
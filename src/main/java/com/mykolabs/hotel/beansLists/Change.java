@@ -0,0 +1,93 @@
+package com.mykolabs.hotel.beansLists;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.mykolabs.hotel.util.CustomDateSerializer;
+import java.time.LocalDateTime;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Single CHANGE_LOG row. payload holds the written entity as JSON, null for
+ * deletes.
+ *
+ * @author nikprixmar
+ */
+@XmlRootElement
+public class Change {
+
+    public enum Entity {
+        RESERVATION, PAYMENT
+    }
+
+    public enum Operation {
+        CREATED, UPDATED, DELETED
+    }
+
+    private long changeId;
+    private Entity entity;
+    private int entityId;
+    private Operation operation;
+    private String origin;
+
+    @JsonRawValue
+    private String payload;
+
+    @JsonSerialize(using = CustomDateSerializer.class)
+    private LocalDateTime changedAt;
+
+    public long getChangeId() {
+        return changeId;
+    }
+
+    public void setChangeId(long changeId) {
+        this.changeId = changeId;
+    }
+
+    public Entity getEntity() {
+        return entity;
+    }
+
+    public void setEntity(Entity entity) {
+        this.entity = entity;
+    }
+
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(int entityId) {
+        this.entityId = entityId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(LocalDateTime changedAt) {
+        this.changedAt = changedAt;
+    }
+}
@@ -0,0 +1,49 @@
+package com.mykolabs.hotel.beansLists;
+
+import java.util.List;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Page of change log entries. Pass nextSince back as 'since' to get the
+ * following changes, hasMore tells if they are already waiting.
+ *
+ * @author nikprixmar
+ */
+@XmlRootElement(name = "changePage")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ChangePage {
+
+    @XmlElement(name = "change")
+    private List<Change> changes;
+
+    private long nextSince;
+
+    private boolean hasMore;
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<Change> changes) {
+        this.changes = changes;
+    }
+
+    public long getNextSince() {
+        return nextSince;
+    }
+
+    public void setNextSince(long nextSince) {
+        this.nextSince = nextSince;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
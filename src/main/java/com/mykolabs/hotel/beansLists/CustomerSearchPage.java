@@ -0,0 +1,50 @@
+package com.mykolabs.hotel.beansLists;
+
+import com.mykolabs.hotel.beans.Customer;
+import java.util.List;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Single page of customer search results, best match first. total is the
+ * amount of matches over all pages.
+ *
+ * @author nikprixmar
+ */
+@XmlRootElement(name = "customerSearchPage")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class CustomerSearchPage {
+
+    @XmlElement(name = "customer")
+    private List<Customer> customers;
+
+    private int total;
+
+    private int offset;
+
+    public List<Customer> getCustomers() {
+        return customers;
+    }
+
+    public void setCustomers(List<Customer> customers) {
+        this.customers = customers;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+}
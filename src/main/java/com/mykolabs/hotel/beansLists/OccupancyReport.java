@@ -0,0 +1,57 @@
+package com.mykolabs.hotel.beansLists;
+
+import java.util.List;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Occupancy report over [from, to), one row per period and room type.
+ * Periods cut by the range only count the days inside it.
+ *
+ * @author nikprixmar
+ */
+@XmlRootElement(name = "occupancyReport")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class OccupancyReport {
+
+    private String period;
+    private String from;
+    private String to;
+
+    @XmlElement(name = "row")
+    private List<OccupancyRow> rows;
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public List<OccupancyRow> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<OccupancyRow> rows) {
+        this.rows = rows;
+    }
+}
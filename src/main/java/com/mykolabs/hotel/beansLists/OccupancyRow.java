@@ -0,0 +1,96 @@
+package com.mykolabs.hotel.beansLists;
+
+import java.math.BigDecimal;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Occupancy and revenue of one room type in one period. adr and revpar are
+ * per room night, occupancyRate is a fraction (0.75 for 75%).
+ *
+ * @author nikprixmar
+ */
+@XmlRootElement
+public class OccupancyRow {
+
+    private String periodStart;
+    private String roomType;
+    private int rooms;
+    private long availableRoomNights;
+    private long roomNightsSold;
+    private BigDecimal occupancyRate;
+    private BigDecimal revenue;
+    private BigDecimal adr;
+    private BigDecimal revpar;
+
+    public String getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(String periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public String getRoomType() {
+        return roomType;
+    }
+
+    public void setRoomType(String roomType) {
+        this.roomType = roomType;
+    }
+
+    public int getRooms() {
+        return rooms;
+    }
+
+    public void setRooms(int rooms) {
+        this.rooms = rooms;
+    }
+
+    public long getAvailableRoomNights() {
+        return availableRoomNights;
+    }
+
+    public void setAvailableRoomNights(long availableRoomNights) {
+        this.availableRoomNights = availableRoomNights;
+    }
+
+    public long getRoomNightsSold() {
+        return roomNightsSold;
+    }
+
+    public void setRoomNightsSold(long roomNightsSold) {
+        this.roomNightsSold = roomNightsSold;
+    }
+
+    public BigDecimal getOccupancyRate() {
+        return occupancyRate;
+    }
+
+    public void setOccupancyRate(BigDecimal occupancyRate) {
+        this.occupancyRate = occupancyRate;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public BigDecimal getAdr() {
+        return adr;
+    }
+
+    public void setAdr(BigDecimal adr) {
+        this.adr = adr;
+    }
+
+    public BigDecimal getRevpar() {
+        return revpar;
+    }
+
+    public void setRevpar(BigDecimal revpar) {
+        this.revpar = revpar;
+    }
+}
@@ -0,0 +1,139 @@
+package com.mykolabs.hotel.beansLists;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.mykolabs.hotel.beans.Customer;
+import com.mykolabs.hotel.beans.Payment;
+import com.mykolabs.hotel.beans.Room;
+import com.mykolabs.hotel.util.CustomDateSerializer;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Reservation with its customer, room and payments embedded. Parts which
+ * were not requested stay null and are left out of the JSON. The employee
+ * is only referenced by id, Employee carries password and token.
+ *
+ * @author nikprixmar
+ */
+@XmlRootElement
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReservationDetails {
+
+    /**
+     * Embeddable parts, selected with e.g. fields=customer,payments.
+     */
+    public enum Part {
+        CUSTOMER, ROOM, PAYMENTS;
+
+        /**
+         * Parses comma separated part names, all parts when fields is
+         * missing or empty.
+         *
+         * @param fields
+         * @return
+         * @throws IllegalArgumentException on unknown names
+         */
+        public static Set<Part> parse(String fields) {
+            if (fields == null || fields.trim().isEmpty()) {
+                return EnumSet.allOf(Part.class);
+            }
+            Set<Part> parts = EnumSet.noneOf(Part.class);
+            for (String field : fields.split(",")) {
+                parts.add(Part.valueOf(field.trim().toUpperCase()));
+            }
+            return parts;
+        }
+    }
+
+    private int reservationId;
+
+    @JsonSerialize(using = CustomDateSerializer.class)
+    private LocalDateTime checkinDate;
+
+    @JsonSerialize(using = CustomDateSerializer.class)
+    private LocalDateTime checkoutDate;
+
+    private int customerId;
+    private int roomNumber;
+    private int employeeId;
+
+    private Customer customer;
+    private Room room;
+    private List<Payment> payments;
+
+    public int getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(int reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public LocalDateTime getCheckinDate() {
+        return checkinDate;
+    }
+
+    public void setCheckinDate(LocalDateTime checkinDate) {
+        this.checkinDate = checkinDate;
+    }
+
+    public LocalDateTime getCheckoutDate() {
+        return checkoutDate;
+    }
+
+    public void setCheckoutDate(LocalDateTime checkoutDate) {
+        this.checkoutDate = checkoutDate;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(int customerId) {
+        this.customerId = customerId;
+    }
+
+    public int getRoomNumber() {
+        return roomNumber;
+    }
+
+    public void setRoomNumber(int roomNumber) {
+        this.roomNumber = roomNumber;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(int employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public void setCustomer(Customer customer) {
+        this.customer = customer;
+    }
+
+    public Room getRoom() {
+        return room;
+    }
+
+    public void setRoom(Room room) {
+        this.room = room;
+    }
+
+    public List<Payment> getPayments() {
+        return payments;
+    }
+
+    public void setPayments(List<Payment> payments) {
+        this.payments = payments;
+    }
+}
@@ -0,0 +1,39 @@
+package com.mykolabs.hotel.beansLists;
+
+import java.util.List;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Page of reservations with details. nextCursor is null on the last page and
+ * when the reservations were requested by id.
+ *
+ * @author nikprixmar
+ */
+@XmlRootElement(name = "reservationDetailsPage")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ReservationDetailsPage {
+
+    @XmlElement(name = "reservation")
+    private List<ReservationDetails> reservations;
+
+    private String nextCursor;
+
+    public List<ReservationDetails> getReservations() {
+        return reservations;
+    }
+
+    public void setReservations(List<ReservationDetails> reservations) {
+        this.reservations = reservations;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
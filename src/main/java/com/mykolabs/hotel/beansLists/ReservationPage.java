@@ -0,0 +1,39 @@
+package com.mykolabs.hotel.beansLists;
+
+import java.util.List;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Single page of reservations with customer data. nextCursor is null on the
+ * last page.
+ *
+ * @author nikprixmar
+ */
+@XmlRootElement(name = "reservationPage")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ReservationPage {
+
+    @XmlElement(name = "todayReservation")
+    private List<TodayReservation> reservations;
+
+    private String nextCursor;
+
+    public List<TodayReservation> getReservations() {
+        return reservations;
+    }
+
+    public void setReservations(List<TodayReservation> reservations) {
+        this.reservations = reservations;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,80 @@
+package com.mykolabs.hotel.cache;
+
+import com.mykolabs.hotel.beansLists.TodayReservation;
+import java.time.LocalDateTime;
+
+/**
+ * Reservation's checkin with guest name denormalized from CUSTOMER, as kept
+ * by the ArrivalsIndex.
+ *
+ * @author nikprixmar
+ */
+public final class Arrival {
+
+    private final int reservationId;
+    private final int customerId;
+    private final String firstName;
+    private final String lastName;
+    private final int roomNumber;
+    private final LocalDateTime checkinDate;
+
+    public Arrival(int reservationId, int customerId, String firstName, String lastName,
+            int roomNumber, LocalDateTime checkinDate) {
+        this.reservationId = reservationId;
+        this.customerId = customerId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.roomNumber = roomNumber;
+        this.checkinDate = checkinDate;
+    }
+
+    public int getReservationId() {
+        return reservationId;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public int getRoomNumber() {
+        return roomNumber;
+    }
+
+    public LocalDateTime getCheckinDate() {
+        return checkinDate;
+    }
+
+    /**
+     * Copy with the guest renamed.
+     *
+     * @param firstName
+     * @param lastName
+     * @return
+     */
+    public Arrival withGuest(String firstName, String lastName) {
+        return new Arrival(reservationId, customerId, firstName, lastName, roomNumber, checkinDate);
+    }
+
+    /**
+     * Response bean for the reservation listings.
+     *
+     * @return
+     */
+    public TodayReservation toTodayReservation() {
+        TodayReservation todayReservation = new TodayReservation();
+        todayReservation.setReservationId(reservationId);
+        todayReservation.setFirstName(firstName);
+        todayReservation.setLastName(lastName);
+        todayReservation.setRoomNumber(roomNumber);
+        todayReservation.setCheckinDate(checkinDate);
+        return todayReservation;
+    }
+}
@@ -0,0 +1,303 @@
+package com.mykolabs.hotel.cache;
+
+import com.mykolabs.hotel.beans.Customer;
+import com.mykolabs.hotel.beans.Reservation;
+import com.mykolabs.hotel.beansLists.TodayReservation;
+import com.mykolabs.hotel.persistence.CustomerDAO;
+import com.mykolabs.hotel.persistence.ReservationDAO;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory index of reservations by checkin day, with guest names, serving
+ * the front desk arrival lists without querying RESERVATION JOIN CUSTOMER.
+ * Every day bucket is kept sorted by checkin time and reservation id.
+ *
+ * The index is built from one DB scan on first use (application startup) and
+ * kept up to date by ReservationDAO and CustomerDAO writes. All updates are
+ * idempotent per reservation id.
+ *
+ * @author nikprixmar
+ */
+public class ArrivalsIndex {
+
+    private static final Logger log = Logger.getLogger(ArrivalsIndex.class.getName());
+
+    private static final ArrivalsIndex instance = new ArrivalsIndex();
+
+    private static final Comparator<Arrival> CHECKIN_ORDER = Comparator
+            .comparing(Arrival::getCheckinDate)
+            .thenComparingInt(Arrival::getReservationId);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // epoch day -> arrivals sorted by CHECKIN_ORDER
+    private final Map<Long, List<Arrival>> days = new HashMap<>();
+    private final Map<Integer, Arrival> arrivals = new HashMap<>();
+    // customer id -> {first name, last name}
+    private final Map<Integer, String[]> guests = new HashMap<>();
+    private volatile boolean loaded;
+    // bumped on every change, also while not loaded
+    private final AtomicLong version = new AtomicLong();
+
+    public static ArrivalsIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Loads all reservations with guest names from the DB, unless already
+     * loaded.
+     *
+     * @throws SQLException
+     */
+    public void ensureLoaded() throws SQLException {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            days.clear();
+            arrivals.clear();
+            guests.clear();
+            for (Arrival arrival : new ReservationDAO().getAllArrivals()) {
+                guests.put(arrival.getCustomerId(), new String[]{arrival.getFirstName(), arrival.getLastName()});
+                addArrival(arrival);
+            }
+            loaded = true;
+            version.incrementAndGet();
+            log.log(Level.INFO, "Arrivals index loaded, reservations: {0}, days: {1}",
+                    new Object[]{arrivals.size(), days.size()});
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the index, it will be rebuilt from the DB on next use.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            days.clear();
+            arrivals.clear();
+            guests.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Returns the version of the reservation listings. It changes on every
+     * reservation or guest write, so a payload built from reservations read
+     * after the version stays valid while the version is unchanged.
+     *
+     * @return
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns reservations checking in on the day, i.e. between its midnight
+     * and the next midnight (both inclusive), ordered by checkin time.
+     *
+     * @param day
+     * @return
+     * @throws SQLException
+     */
+    public List<TodayReservation> getArrivals(LocalDate day) throws SQLException {
+        ensureLoaded();
+        List<TodayReservation> rows = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (Arrival arrival : days.getOrDefault(day.toEpochDay(), Collections.emptyList())) {
+                rows.add(arrival.toTodayReservation());
+            }
+            for (Arrival arrival : days.getOrDefault(day.toEpochDay() + 1, Collections.emptyList())) {
+                if (!arrival.getCheckinDate().toLocalTime().equals(LocalTime.MIDNIGHT)) {
+                    break;
+                }
+                rows.add(arrival.toTodayReservation());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rows;
+    }
+
+    /**
+     * Adds new or replaces existing reservation. Called after the reservation
+     * was written to the DB. While the index is loading this waits for the
+     * load, which may have read the DB before the write.
+     *
+     * @param reservation
+     */
+    public void put(Reservation reservation) {
+        try {
+            if (reservation.getReservationId() == null || reservation.getCheckinDate() == null
+                    || reservation.getCustomerId() == null || reservation.getRoomNumberId() == null) {
+                return;
+            }
+
+            String[] guest = getGuest(reservation.getCustomerId());
+            if (guest == null) {
+                // not loaded: will be picked up by the next load
+                return;
+            }
+
+            Arrival arrival = new Arrival(reservation.getReservationId(), reservation.getCustomerId(),
+                    guest[0], guest[1], reservation.getRoomNumberId(), reservation.getCheckinDate());
+
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    addArrival(arrival);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            // after the change, so a payload is never tagged newer than its data
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the reservation. Called after it was deleted from the DB.
+     *
+     * @param reservationId
+     */
+    public void remove(int reservationId) {
+        try {
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    removeArrival(reservationId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Updates guest name on all reservations of the customer. Called after
+     * the customer was written to the DB.
+     *
+     * @param customer
+     */
+    public void updateGuest(Customer customer) {
+        try {
+            if (customer.getCustomerId() == null) {
+                return;
+            }
+            int customerId = customer.getCustomerId();
+
+            lock.writeLock().lock();
+            try {
+                if (!loaded) {
+                    return;
+                }
+                guests.put(customerId, new String[]{customer.getFirstName(), customer.getLastName()});
+                List<Arrival> renamed = new ArrayList<>();
+                for (Arrival arrival : arrivals.values()) {
+                    if (arrival.getCustomerId() == customerId) {
+                        renamed.add(arrival.withGuest(customer.getFirstName(), customer.getLastName()));
+                    }
+                }
+                for (Arrival arrival : renamed) {
+                    addArrival(arrival);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Guest name from the index, or from the DB for customers without
+     * reservations so far. Null if the index isn't loaded, or (and index
+     * dropped) if the DB lookup failed.
+     */
+    private String[] getGuest(int customerId) {
+        lock.readLock().lock();
+        try {
+            if (!loaded) {
+                return null;
+            }
+            String[] guest = guests.get(customerId);
+            if (guest != null) {
+                return guest;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        try {
+            Customer customer = new CustomerDAO().getCustomer(customerId);
+            String[] guest = {customer.getFirstName(), customer.getLastName()};
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    guests.put(customerId, guest);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return guest;
+        } catch (SQLException ex) {
+            log.log(Level.WARNING, "Unable to read guest for arrivals index, index dropped", ex);
+            invalidate();
+            return null;
+        }
+    }
+
+    /* must be called holding the write lock */
+    private void addArrival(Arrival arrival) {
+        removeArrival(arrival.getReservationId());
+        arrivals.put(arrival.getReservationId(), arrival);
+
+        List<Arrival> day = days.computeIfAbsent(arrival.getCheckinDate().toLocalDate().toEpochDay(),
+                d -> new ArrayList<>());
+        int index = Collections.binarySearch(day, arrival, CHECKIN_ORDER);
+        day.add(index < 0 ? -index - 1 : index, arrival);
+    }
+
+    /* must be called holding the write lock */
+    private void removeArrival(int reservationId) {
+        Arrival arrival = arrivals.remove(reservationId);
+        if (arrival == null) {
+            return;
+        }
+        long epochDay = arrival.getCheckinDate().toLocalDate().toEpochDay();
+        List<Arrival> day = days.get(epochDay);
+        int index = Collections.binarySearch(day, arrival, CHECKIN_ORDER);
+        if (index >= 0) {
+            day.remove(index);
+        }
+        if (day.isEmpty()) {
+            days.remove(epochDay);
+        }
+    }
+}
@@ -0,0 +1,635 @@
+package com.mykolabs.hotel.cache;
+
+import com.mykolabs.hotel.beans.Customer;
+import com.mykolabs.hotel.persistence.CustomerDAO;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index of customers by first name, last name, phone and
+ * city, serving the front desk guest lookup without scanning CUSTOMER.
+ *
+ * Names and cities are split into lower case, accent free words. Each of
+ * these fields keeps a sorted dictionary of words with the ids of customers
+ * having them, so a word prefix resolves to one dictionary range. Phones are
+ * kept as their digits packed into a long (the last 18 digits of longer
+ * ones) and matched from the start of the number, of the local (7 digit)
+ * number or of the last four digits.
+ *
+ * A query matches customers for which every query word matches one of their
+ * fields, ranked by field weight with whole words counting double. Words
+ * with letters are looked up first, numbers only filter their matches; a
+ * query of numbers alone scans the phones.
+ *
+ * The index is built from one DB scan on first use (application startup) and
+ * kept up to date by CustomerDAO writes.
+ *
+ * @author nikprixmar
+ */
+public class CustomerSearchIndex {
+
+    private static final Logger log = Logger.getLogger(CustomerSearchIndex.class.getName());
+
+    private static final CustomerSearchIndex instance = new CustomerSearchIndex();
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern NON_DIGITS = Pattern.compile("\\D+");
+    private static final Pattern LETTERS = Pattern.compile("\\p{L}");
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+
+    // ranking weights, whole words count double
+    private static final int LAST_NAME_WEIGHT = 4;
+    private static final int FIRST_NAME_WEIGHT = 3;
+    private static final int PHONE_WEIGHT = 3;
+    private static final int CITY_WEIGHT = 1;
+
+    private static final int MAX_PHONE_DIGITS = 18;
+    // phones also match from the local number and from the last digits
+    private static final int LOCAL_DIGITS = 7;
+    private static final long LOCAL_NUMBERS = 10_000_000L;
+    private static final int LAST_DIGITS = 4;
+    private static final long LAST_NUMBERS = 10_000L;
+    private static final long[] POWERS_OF_TEN = new long[MAX_PHONE_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Fields with a word dictionary.
+     */
+    private enum Field {
+        LAST_NAME(LAST_NAME_WEIGHT), FIRST_NAME(FIRST_NAME_WEIGHT), CITY(CITY_WEIGHT);
+
+        final int weight;
+
+        Field(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // per field: word -> ids of customers having it
+    private final Map<Field, TreeMap<String, Postings>> words = new EnumMap<>(Field.class);
+    // indexed values by customer id, to unindex on update and rank ties
+    private Entry[] entries = new Entry[1024];
+    // phone digits and their count by customer id, 0 digits for no phone
+    private long[] phones = new long[1024];
+    private byte[] phoneLengths = new byte[1024];
+    private int size;
+    // shared instances of repeating values (cities, common names)
+    private final Map<String, String> values = new HashMap<>();
+    private volatile boolean loaded;
+
+    private CustomerSearchIndex() {
+        for (Field field : Field.values()) {
+            words.put(field, new TreeMap<>());
+        }
+    }
+
+    public static CustomerSearchIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Loads all customers from the DB, unless already loaded.
+     *
+     * @throws SQLException
+     */
+    public void ensureLoaded() throws SQLException {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            clear();
+            try {
+                new CustomerDAO().streamCustomers(this::add);
+            } catch (IOException ex) {
+                // add() does not throw
+                throw new IllegalStateException(ex);
+            }
+            loaded = true;
+            log.log(Level.INFO, "Customer search index loaded, customers: {0}", size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the index, it will be rebuilt from the DB on next use.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds new or replaces existing customer. Called after the customer was
+     * written to the DB. While the index is loading this waits for the load,
+     * which may have read the DB before the write.
+     *
+     * @param customer
+     */
+    public void put(Customer customer) {
+        if (customer.getCustomerId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            // not loaded: will be picked up by the next load
+            if (loaded) {
+                remove(customer.getCustomerId());
+                add(customer);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns one page of customers matching the query, best match first.
+     * Ties are ordered by last name, first name and id. Only the requested
+     * page is sorted, so the cost of a broad query stays linear in its
+     * matches.
+     *
+     * @param query words or a phone number
+     * @param offset amount of matches to skip
+     * @param limit page size
+     * @return
+     * @throws SQLException
+     */
+    public Matches search(String query, int offset, int limit) throws SQLException {
+        ensureLoaded();
+        List<String> wordTerms = new ArrayList<>();
+        List<PhoneTerm> phoneTerms = new ArrayList<>();
+        for (String term : queryTerms(query)) {
+            if (!DIGITS.matcher(term).matches()) {
+                wordTerms.add(term);
+            } else if (term.length() <= MAX_PHONE_DIGITS) {
+                phoneTerms.add(new PhoneTerm(term));
+            } else {
+                // longer than any indexed phone
+                return new Matches(Collections.<Integer>emptyList(), 0);
+            }
+        }
+        if (wordTerms.isEmpty() && phoneTerms.isEmpty()) {
+            return new Matches(Collections.<Integer>emptyList(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] scores = new int[entries.length];
+            Candidates candidates = wordTerms.isEmpty()
+                    ? matchPhones(phoneTerms, scores)
+                    : matchWords(wordTerms, scores);
+
+            // numbers next to words only filter the word matches
+            if (!wordTerms.isEmpty()) {
+                for (PhoneTerm term : phoneTerms) {
+                    int kept = 0;
+                    for (int i = 0; i < candidates.count; i++) {
+                        int id = candidates.ids[i];
+                        int score = phoneScore(phones[id], phoneLengths[id], term);
+                        if (score > 0) {
+                            scores[id] += score;
+                            candidates.ids[kept++] = id;
+                        }
+                    }
+                    candidates.count = kept;
+                }
+            }
+
+            return page(candidates, scores, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Customers matching all terms through the word dictionaries. The
+     * narrowest term is looked up first, the others only filter and score
+     * its candidates.
+     */
+    private Candidates matchWords(List<String> terms, int[] scores) {
+        terms.sort(Comparator.comparingLong(this::countMatches));
+
+        Candidates candidates = new Candidates();
+        String first = terms.get(0);
+        for (Field field : Field.values()) {
+            for (Map.Entry<String, Postings> word : prefixRange(field, first).entrySet()) {
+                int score = word.getKey().length() == first.length() ? field.weight * 2 : field.weight;
+                Postings postings = word.getValue();
+                for (int i = 0; i < postings.size; i++) {
+                    int id = postings.ids[i];
+                    if (scores[id] == 0) {
+                        candidates.add(id);
+                    }
+                    scores[id] = Math.max(scores[id], score);
+                }
+            }
+        }
+
+        int[] termScores = terms.size() > 1 ? new int[scores.length] : null;
+        for (int t = 1; t < terms.size() && candidates.count > 0; t++) {
+            String term = terms.get(t);
+            for (Field field : Field.values()) {
+                for (Map.Entry<String, Postings> word : prefixRange(field, term).entrySet()) {
+                    int score = word.getKey().length() == term.length() ? field.weight * 2 : field.weight;
+                    Postings postings = word.getValue();
+                    for (int i = 0; i < postings.size; i++) {
+                        int id = postings.ids[i];
+                        if (scores[id] > 0) {
+                            termScores[id] = Math.max(termScores[id], score);
+                        }
+                    }
+                }
+            }
+            int kept = 0;
+            for (int i = 0; i < candidates.count; i++) {
+                int id = candidates.ids[i];
+                if (termScores[id] > 0) {
+                    scores[id] += termScores[id];
+                    termScores[id] = 0;
+                    candidates.ids[kept++] = id;
+                } else {
+                    // dropped, must not pass the scores[id] > 0 check of the next term
+                    scores[id] = 0;
+                }
+            }
+            candidates.count = kept;
+        }
+        return candidates;
+    }
+
+    /**
+     * Customers whose phone matches all terms.
+     */
+    private Candidates matchPhones(List<PhoneTerm> terms, int[] scores) {
+        Candidates candidates = new Candidates();
+        PhoneTerm[] numbers = terms.toArray(new PhoneTerm[terms.size()]);
+        long[] phones = this.phones;
+        byte[] phoneLengths = this.phoneLengths;
+        for (int id = 0; id < phoneLengths.length; id++) {
+            int length = phoneLengths[id];
+            if (length == 0) {
+                continue;
+            }
+            int total = 0;
+            for (PhoneTerm number : numbers) {
+                int score = phoneScore(phones[id], length, number);
+                if (score == 0) {
+                    total = 0;
+                    break;
+                }
+                total += score;
+            }
+            if (total > 0) {
+                scores[id] = total;
+                candidates.add(id);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Score of a number against phone digits, 0 if it does not match the
+     * start of the number, of the local number or of the last four digits.
+     */
+    private static int phoneScore(long phone, int length, PhoneTerm term) {
+        if (length < term.length) {
+            return 0;
+        }
+        int score = term.matches(phone, length) ? weight(length, term) : 0;
+        if (length > LOCAL_DIGITS && term.matches(phone % LOCAL_NUMBERS, LOCAL_DIGITS)) {
+            score = Math.max(score, weight(LOCAL_DIGITS, term));
+        }
+        if (length > LAST_DIGITS && term.matches(phone % LAST_NUMBERS, LAST_DIGITS)) {
+            score = Math.max(score, weight(LAST_DIGITS, term));
+        }
+        return score;
+    }
+
+    private static int weight(int digits, PhoneTerm term) {
+        return digits == term.length ? PHONE_WEIGHT * 2 : PHONE_WEIGHT;
+    }
+
+    private Matches page(Candidates candidates, int[] scores, int offset, int limit) {
+        int count = candidates.count;
+        if (offset >= count) {
+            return new Matches(Collections.<Integer>emptyList(), count);
+        }
+
+        // keeps the best offset + limit matches, worst of them on top
+        int wanted = (int) Math.min((long) offset + limit, count);
+        Comparator<Integer> rank = (a, b) -> compareRank(a, b, scores);
+        PriorityQueue<Integer> best = new PriorityQueue<>(wanted + 1, rank.reversed());
+        for (int i = 0; i < count; i++) {
+            int id = candidates.ids[i];
+            if (best.size() < wanted) {
+                best.add(id);
+            } else if (compareRank(id, best.peek(), scores) < 0) {
+                best.poll();
+                best.add(id);
+            }
+        }
+        List<Integer> ids = new ArrayList<>(best);
+        ids.sort(rank);
+        return new Matches(ids.subList(offset, ids.size()), count);
+    }
+
+    /**
+     * Higher score first, then by last name, first name and id.
+     */
+    private int compareRank(int a, int b, int[] scores) {
+        if (scores[a] != scores[b]) {
+            return scores[a] > scores[b] ? -1 : 1;
+        }
+        Entry x = entries[a];
+        Entry y = entries[b];
+        int order = compareName(x.lastName, y.lastName);
+        if (order == 0) {
+            order = compareName(x.firstName, y.firstName);
+        }
+        return order != 0 ? order : Integer.compare(a, b);
+    }
+
+    private static int compareName(String x, String y) {
+        // names are shared instances, equal ones are mostly the same object
+        if (x == y) {
+            return 0;
+        }
+        if (x == null || y == null) {
+            return x == null ? 1 : -1;
+        }
+        return String.CASE_INSENSITIVE_ORDER.compare(x, y);
+    }
+
+    /**
+     * Upper bound of customers matching the term, a customer is counted once
+     * per matching word.
+     */
+    private long countMatches(String term) {
+        long count = 0;
+        for (Field field : Field.values()) {
+            for (Postings postings : prefixRange(field, term).values()) {
+                count += postings.size;
+            }
+        }
+        return count;
+    }
+
+    private NavigableMap<String, Postings> prefixRange(Field field, String prefix) {
+        return words.get(field).subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private void add(Customer customer) {
+        int customerId = customer.getCustomerId();
+        Entry entry = new Entry(customerId, shared(customer.getFirstName()), shared(customer.getLastName()),
+                shared(customer.getCity()));
+        if (customerId >= entries.length) {
+            int capacity = Math.max(entries.length * 2, customerId + 1);
+            entries = Arrays.copyOf(entries, capacity);
+            phones = Arrays.copyOf(phones, capacity);
+            phoneLengths = Arrays.copyOf(phoneLengths, capacity);
+        }
+        entries[customerId] = entry;
+        String digits = customer.getPhone() != null ? NON_DIGITS.matcher(customer.getPhone()).replaceAll("") : "";
+        if (digits.length() > MAX_PHONE_DIGITS) {
+            digits = digits.substring(digits.length() - MAX_PHONE_DIGITS);
+        }
+        phones[customerId] = digits.isEmpty() ? 0 : Long.parseLong(digits);
+        phoneLengths[customerId] = (byte) digits.length();
+        size++;
+        for (Field field : Field.values()) {
+            TreeMap<String, Postings> dictionary = words.get(field);
+            for (String word : words(entry.get(field))) {
+                dictionary.computeIfAbsent(word, w -> new Postings()).add(customerId);
+            }
+        }
+    }
+
+    private void remove(int customerId) {
+        Entry entry = customerId < entries.length ? entries[customerId] : null;
+        if (entry == null) {
+            return;
+        }
+        entries[customerId] = null;
+        phones[customerId] = 0;
+        phoneLengths[customerId] = 0;
+        size--;
+        for (Field field : Field.values()) {
+            TreeMap<String, Postings> dictionary = words.get(field);
+            for (String word : words(entry.get(field))) {
+                Postings postings = dictionary.get(word);
+                if (postings != null && postings.remove(customerId) && postings.size == 0) {
+                    dictionary.remove(word);
+                }
+            }
+        }
+    }
+
+    private void clear() {
+        for (TreeMap<String, Postings> dictionary : words.values()) {
+            dictionary.clear();
+        }
+        Arrays.fill(entries, null);
+        Arrays.fill(phones, 0);
+        Arrays.fill(phoneLengths, (byte) 0);
+        size = 0;
+        values.clear();
+    }
+
+    private String shared(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = values.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    /**
+     * Query words. A query without letters is taken as one phone number.
+     */
+    private static List<String> queryTerms(String query) {
+        if (query == null) {
+            return Collections.emptyList();
+        }
+        if (!LETTERS.matcher(query).find()) {
+            String digits = NON_DIGITS.matcher(query).replaceAll("");
+            return digits.isEmpty() ? Collections.<String>emptyList() : Collections.singletonList(digits);
+        }
+        return words(query);
+    }
+
+    /**
+     * Lower case, accent free words of a value.
+     */
+    private static List<String> words(String value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        String plain = ACCENTS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        List<String> words = new ArrayList<>(2);
+        for (String word : WORD_SEPARATORS.split(plain.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty() && !words.contains(word)) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Page of matching customer ids with the total amount of matches.
+     */
+    public static final class Matches {
+
+        private final List<Integer> ids;
+        private final int total;
+
+        Matches(List<Integer> ids, int total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        public List<Integer> getIds() {
+            return ids;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * Indexed names and city of one customer.
+     */
+    private static final class Entry {
+
+        final int customerId;
+        final String firstName;
+        final String lastName;
+        final String city;
+
+        Entry(int customerId, String firstName, String lastName, String city) {
+            this.customerId = customerId;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.city = city;
+        }
+
+        String get(Field field) {
+            switch (field) {
+                case FIRST_NAME:
+                    return firstName;
+                case LAST_NAME:
+                    return lastName;
+                default:
+                    return city;
+            }
+        }
+    }
+
+    /**
+     * Number searched in phones. A phone of n digits starts with the number
+     * when it lies in [low[n], high[n]).
+     */
+    private static final class PhoneTerm {
+
+        final int length;
+        final long[] low = new long[MAX_PHONE_DIGITS + 1];
+        final long[] high = new long[MAX_PHONE_DIGITS + 1];
+
+        PhoneTerm(String digits) {
+            long number = Long.parseLong(digits);
+            this.length = digits.length();
+            for (int n = length; n <= MAX_PHONE_DIGITS; n++) {
+                low[n] = number * POWERS_OF_TEN[n - length];
+                high[n] = (number + 1) * POWERS_OF_TEN[n - length];
+            }
+        }
+
+        boolean matches(long digits, int count) {
+            return count >= length && digits >= low[count] && digits < high[count];
+        }
+    }
+
+    /**
+     * Growable list of matching customer ids.
+     */
+    private static final class Candidates {
+
+        int[] ids = new int[16];
+        int count;
+
+        void add(int id) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = id;
+        }
+    }
+
+    /**
+     * Sorted, growable set of customer ids.
+     */
+    private static final class Postings {
+
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.mykolabs.hotel.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.core.EntityTag;
+
+/**
+ * Per-entity version counters used to build strong ETags without touching
+ * the DB. DAO add/update/delete methods bump the version after a successful
+ * write, so a tag stays valid exactly as long as the entity wasn't changed
+ * through this application.
+ *
+ * Versions live in memory only. Tags carry a random epoch picked on startup,
+ * so tags handed out by a previous run never match.
+ *
+ * @author nikprixmar
+ */
+public final class EntityVersions {
+
+    public enum Kind {
+        ROOM, CUSTOMER, RESERVATION
+    }
+
+    private static final String EPOCH = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    private static final ConcurrentMap<Kind, ConcurrentMap<Integer, Long>> versions = new ConcurrentHashMap<>();
+    // version of each kind's collection, bumped on any change to that kind
+    private static final ConcurrentMap<Kind, AtomicLong> collectionVersions = new ConcurrentHashMap<>();
+
+    // striped locks serializing conditional updates of the same entity
+    private static final Object[] updateLocks = new Object[64];
+
+    static {
+        for (Kind kind : Kind.values()) {
+            versions.put(kind, new ConcurrentHashMap<>());
+            collectionVersions.put(kind, new AtomicLong());
+        }
+        for (int i = 0; i < updateLocks.length; i++) {
+            updateLocks[i] = new Object();
+        }
+    }
+
+    private EntityVersions() {
+    }
+
+    /**
+     * Returns current version of the entity, 0 if it was never changed since
+     * startup.
+     *
+     * @param kind
+     * @param id
+     * @return
+     */
+    public static long get(Kind kind, int id) {
+        return versions.get(kind).getOrDefault(id, 0L);
+    }
+
+    /**
+     * Marks the entity as changed. Called after the write was committed.
+     *
+     * @param kind
+     * @param id
+     */
+    public static void bump(Kind kind, int id) {
+        versions.get(kind).merge(id, 1L, Long::sum);
+        collectionVersions.get(kind).incrementAndGet();
+    }
+
+    /**
+     * Lock to hold while checking If-Match and writing the entity, so two
+     * updates carrying the same ETag can't both succeed.
+     *
+     * @param kind
+     * @param id
+     * @return
+     */
+    public static Object updateLock(Kind kind, int id) {
+        int hash = (kind.ordinal() * 31 + id) * 0x9E3779B9;
+        return updateLocks[(hash >>> 16) & (updateLocks.length - 1)];
+    }
+
+    /**
+     * Strong ETag of a single entity.
+     *
+     * @param kind
+     * @param id
+     * @return
+     */
+    public static EntityTag tag(Kind kind, int id) {
+        return new EntityTag(kind.name().toLowerCase() + "-" + id + "-" + EPOCH + "-" + get(kind, id));
+    }
+
+    /**
+     * Strong ETag of the whole collection of the given kind.
+     *
+     * @param kind
+     * @return
+     */
+    public static EntityTag collectionTag(Kind kind) {
+        return new EntityTag(kind.name().toLowerCase() + "s-" + EPOCH + "-" + collectionVersions.get(kind).get());
+    }
+}
@@ -0,0 +1,422 @@
+package com.mykolabs.hotel.cache;
+
+import com.mykolabs.hotel.beans.Payment;
+import com.mykolabs.hotel.beans.Reservation;
+import com.mykolabs.hotel.beans.Room;
+import com.mykolabs.hotel.beansLists.OccupancyRow;
+import com.mykolabs.hotel.persistence.PaymentDAO;
+import com.mykolabs.hotel.persistence.ReservationDAO;
+import com.mykolabs.hotel.persistence.RoomDAO;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory daily rollup of room nights sold and room revenue per ROOM_TYPE,
+ * used by the occupancy reports instead of scanning RESERVATION and PAYMENT
+ * on each request. Every room type has one column of nights and one of
+ * revenue, indexed by day.
+ *
+ * A stay's revenue is the sum of its payments, or the room price of each
+ * night while it has none, spread evenly over its nights. Nights are
+ * counted like RoomAvailabilityIndex does. Occupancy is relative to the
+ * current amount of rooms of the type.
+ *
+ * Loaded from the DB on first use and kept up to date by the reservation
+ * and payment writes. Room changes drop the rollup, it is rebuilt on the
+ * next report.
+ *
+ * @author nikprixmar
+ */
+public class OccupancyRollup {
+
+    private static final Logger log = Logger.getLogger(OccupancyRollup.class.getName());
+
+    public enum Period {
+        DAILY, WEEKLY, MONTHLY;
+
+        /**
+         * Returns the first day of the period the day falls into, weeks
+         * start on Monday.
+         *
+         * @param day
+         * @return
+         */
+        public LocalDate start(LocalDate day) {
+            switch (this) {
+                case WEEKLY:
+                    return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTHLY:
+                    return day.withDayOfMonth(1);
+                default:
+                    return day;
+            }
+        }
+
+        LocalDate next(LocalDate start) {
+            switch (this) {
+                case WEEKLY:
+                    return start.plusWeeks(1);
+                case MONTHLY:
+                    return start.plusMonths(1);
+                default:
+                    return start.plusDays(1);
+            }
+        }
+    }
+
+    private static final OccupancyRollup instance = new OccupancyRollup();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, RoomRate> rooms = new HashMap<>();
+    private final Map<String, Integer> roomCounts = new TreeMap<>();
+    private final Map<String, DailyColumns> columns = new HashMap<>();
+    private final Map<Integer, Stay> stays = new HashMap<>();
+    private volatile boolean loaded;
+
+    public static OccupancyRollup getInstance() {
+        return instance;
+    }
+
+    /**
+     * Loads rooms, reservations and payments from the DB, unless already
+     * loaded.
+     *
+     * @throws SQLException
+     */
+    public void ensureLoaded() throws SQLException {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            clear();
+            for (Room room : new RoomDAO().getAllRooms(0, 0, false)) {
+                if (room.getRoomType() == null) {
+                    continue;
+                }
+                rooms.put(room.getRoomNumber(), new RoomRate(room.getRoomType(), toCents(room.getRoomPrice())));
+                roomCounts.merge(room.getRoomType(), 1, Integer::sum);
+            }
+            for (Reservation reservation : new ReservationDAO().getAllReservationStays()) {
+                addStay(reservation);
+            }
+            for (Payment payment : new PaymentDAO().getAllPaymentAmounts()) {
+                addPaymentToStay(payment);
+            }
+            loaded = true;
+            log.log(Level.INFO, "Occupancy rollup loaded, room types: {0}, reservations: {1}",
+                    new Object[]{roomCounts.size(), stays.size()});
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the rollup, it will be rebuilt from the DB on next use.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds new or replaces existing reservation's stay. Called after the
+     * reservation was written to the DB.
+     *
+     * @param reservation
+     */
+    public void put(Reservation reservation) {
+        lock.writeLock().lock();
+        try {
+            // not loaded: will be picked up by the next load
+            if (loaded) {
+                addStay(reservation);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes reservation's stay, with its payments. Called after the
+     * reservation was deleted from the DB.
+     *
+     * @param reservationId
+     */
+    public void remove(int reservationId) {
+        lock.writeLock().lock();
+        try {
+            Stay stay = loaded ? stays.remove(reservationId) : null;
+            if (stay != null) {
+                apply(stay, -1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a payment to its reservation's revenue. Called after the payment
+     * was written to the DB, repeated calls for the same payment are
+     * ignored.
+     *
+     * @param payment
+     */
+    public void addPayment(Payment payment) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                addPaymentToStay(payment);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns occupancy, ADR and RevPAR per room type for each period
+     * starting in [from, to), ordered by period and room type.
+     *
+     * @param period
+     * @param from first day, inclusive
+     * @param to last day, exclusive
+     * @return
+     * @throws SQLException
+     */
+    public List<OccupancyRow> getReport(Period period, LocalDate from, LocalDate to) throws SQLException {
+        ensureLoaded();
+        List<OccupancyRow> rows = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (LocalDate start = period.start(from); start.isBefore(to); start = period.next(start)) {
+                long first = Math.max(start.toEpochDay(), from.toEpochDay());
+                long last = Math.min(period.next(start).toEpochDay(), to.toEpochDay());
+
+                for (Map.Entry<String, Integer> type : roomCounts.entrySet()) {
+                    DailyColumns typeColumns = columns.get(type.getKey());
+                    long nights = typeColumns == null ? 0 : typeColumns.sumNights(first, last);
+                    long revenueCents = typeColumns == null ? 0 : typeColumns.sumRevenue(first, last);
+                    long available = (long) type.getValue() * (last - first);
+
+                    OccupancyRow row = new OccupancyRow();
+                    row.setPeriodStart(LocalDate.ofEpochDay(first).toString());
+                    row.setRoomType(type.getKey());
+                    row.setRooms(type.getValue());
+                    row.setAvailableRoomNights(available);
+                    row.setRoomNightsSold(nights);
+                    row.setOccupancyRate(ratio(nights, available, 4));
+                    row.setRevenue(BigDecimal.valueOf(revenueCents, 2));
+                    row.setAdr(ratio(revenueCents, nights * 100, 2));
+                    row.setRevpar(ratio(revenueCents, available * 100, 2));
+                    rows.add(row);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rows;
+    }
+
+    /* must be called holding the write lock */
+    private void clear() {
+        rooms.clear();
+        roomCounts.clear();
+        columns.clear();
+        stays.clear();
+    }
+
+    /* must be called holding the write lock */
+    private void addStay(Reservation reservation) {
+        Integer reservationId = reservation.getReservationId();
+        if (reservationId == null || reservation.getCheckinDate() == null || reservation.getCheckoutDate() == null
+                || reservation.getRoomNumberId() == null) {
+            return;
+        }
+        Stay previous = stays.remove(reservationId);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        RoomRate room = rooms.get(reservation.getRoomNumberId());
+        if (room == null) {
+            // room added after the load, the rollup was dropped with it
+            return;
+        }
+
+        long from = reservation.getCheckinDate().toLocalDate().toEpochDay();
+        long to = reservation.getCheckoutDate().toLocalDate().toEpochDay();
+        Stay stay = new Stay(room.roomType, from, to > from ? to : from + 1, room.priceCents,
+                previous != null ? previous.payments : null);
+        stays.put(reservationId, stay);
+        apply(stay, 1);
+    }
+
+    /* must be called holding the write lock */
+    private void addPaymentToStay(Payment payment) {
+        Stay stay = stays.get(payment.getReservationId());
+        if (stay == null || payment.getPaymentId() == null || payment.getPaymentAmount() == null
+                || (stay.payments != null && stay.payments.containsKey(payment.getPaymentId()))) {
+            return;
+        }
+        apply(stay, -1);
+        if (stay.payments == null) {
+            stay.payments = new HashMap<>(2);
+        }
+        stay.payments.put(payment.getPaymentId(), toCents(payment.getPaymentAmount()));
+        apply(stay, 1);
+    }
+
+    /* must be called holding the write lock */
+    private void apply(Stay stay, int sign) {
+        DailyColumns typeColumns = columns.computeIfAbsent(stay.roomType, k -> new DailyColumns(stay.from));
+        typeColumns.add(stay.from, stay.to, sign, sign * stay.revenueCents());
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private static BigDecimal ratio(long numerator, long denominator, int scale) {
+        if (denominator == 0) {
+            return BigDecimal.ZERO.setScale(scale);
+        }
+        return BigDecimal.valueOf(numerator).divide(BigDecimal.valueOf(denominator), scale, RoundingMode.HALF_UP);
+    }
+
+    private static final class RoomRate {
+
+        private final String roomType;
+        private final long priceCents;
+
+        RoomRate(String roomType, long priceCents) {
+            this.roomType = roomType;
+            this.priceCents = priceCents;
+        }
+    }
+
+    private static final class Stay {
+
+        private final String roomType;
+        private final long from;
+        private final long to;
+        private final long priceCents;
+        // payment id to amount in cents, null until the first payment
+        private Map<Integer, Long> payments;
+
+        Stay(String roomType, long from, long to, long priceCents, Map<Integer, Long> payments) {
+            this.roomType = roomType;
+            this.from = from;
+            this.to = to;
+            this.priceCents = priceCents;
+            this.payments = payments;
+        }
+
+        long revenueCents() {
+            if (payments != null && !payments.isEmpty()) {
+                long paid = 0;
+                for (long amount : payments.values()) {
+                    paid += amount;
+                }
+                return paid;
+            }
+            return priceCents * (to - from);
+        }
+    }
+
+    /**
+     * Nights sold and revenue (cents) of one room type per day. Index 0 is
+     * baseDay (epoch day); the arrays grow on demand.
+     */
+    private static final class DailyColumns {
+
+        private long baseDay;
+        private int[] nights = new int[0];
+        private long[] revenue = new long[0];
+
+        DailyColumns(long baseDay) {
+            this.baseDay = baseDay;
+        }
+
+        /**
+         * Adds delta nights to each day of [from, to) and spreads
+         * revenueCents over them, the remainder going to the first nights.
+         */
+        void add(long from, long to, int delta, long revenueCents) {
+            ensureRange(from, to);
+            int days = (int) (to - from);
+            long share = revenueCents / days;
+            long remainder = revenueCents % days;
+            for (int night = 0; night < days; night++) {
+                int i = (int) (from - baseDay) + night;
+                nights[i] += delta;
+                revenue[i] += share + (night < Math.abs(remainder) ? Long.signum(remainder) : 0);
+            }
+        }
+
+        long sumNights(long from, long to) {
+            long sum = 0;
+            for (long day = Math.max(from, baseDay), end = Math.min(to, baseDay + nights.length); day < end; day++) {
+                sum += nights[(int) (day - baseDay)];
+            }
+            return sum;
+        }
+
+        long sumRevenue(long from, long to) {
+            long sum = 0;
+            for (long day = Math.max(from, baseDay), end = Math.min(to, baseDay + revenue.length); day < end; day++) {
+                sum += revenue[(int) (day - baseDay)];
+            }
+            return sum;
+        }
+
+        private void ensureRange(long from, long to) {
+            if (from < baseDay) {
+                // prepend days, shifting existing ones to the right
+                int shift = (int) (baseDay - from);
+                nights = grow(nights, nights.length + shift, shift);
+                revenue = grow(revenue, revenue.length + shift, shift);
+                baseDay = from;
+            }
+            int needed = (int) (to - baseDay);
+            if (needed > nights.length) {
+                // grow with some headroom for future bookings
+                int length = Math.max(needed, nights.length + 366);
+                nights = grow(nights, length, 0);
+                revenue = grow(revenue, length, 0);
+            }
+        }
+
+        private static int[] grow(int[] values, int length, int shift) {
+            int[] grown = new int[length];
+            System.arraycopy(values, 0, grown, shift, values.length);
+            return grown;
+        }
+
+        private static long[] grow(long[] values, int length, int shift) {
+            long[] grown = new long[length];
+            System.arraycopy(values, 0, grown, shift, values.length);
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.mykolabs.hotel.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mykolabs.hotel.beans.Payment;
+import com.mykolabs.hotel.beans.Reservation;
+import com.mykolabs.hotel.beansLists.Change;
+import com.mykolabs.hotel.events.ReservationEvent;
+import com.mykolabs.hotel.events.ReservationEventBus;
+import com.mykolabs.hotel.json.JsonSupport;
+import com.mykolabs.hotel.persistence.ChangeLogDAO;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Applies reservation and payment changes written by other application nodes
+ * to the in-memory indexes, versions and event stream of this one. Own
+ * changes were applied by the DAO already and are skipped. Registered with
+ * the ChangeLogTailer.
+ *
+ * @author nikprixmar
+ */
+public class ReservationCacheSync implements Consumer<Change> {
+
+    private static final ObjectMapper mapper = JsonSupport.mapper();
+
+    @Override
+    public void accept(Change change) {
+        if (ChangeLogDAO.ORIGIN.equals(change.getOrigin())) {
+            return;
+        }
+        if (change.getEntity() == Change.Entity.PAYMENT) {
+            // payments are only deleted with their reservation, which drops them from the rollup
+            if (change.getOperation() == Change.Operation.CREATED) {
+                OccupancyRollup.getInstance().addPayment(read(change, Payment.class));
+            }
+            return;
+        }
+
+        int reservationId = change.getEntityId();
+        if (change.getOperation() == Change.Operation.DELETED) {
+            RoomAvailabilityIndex.getInstance().remove(reservationId);
+            OccupancyRollup.getInstance().remove(reservationId);
+            ArrivalsIndex.getInstance().remove(reservationId);
+            EntityVersions.bump(EntityVersions.Kind.RESERVATION, reservationId);
+            ReservationEventBus.getInstance().publish(ReservationEvent.Type.DELETED, reservationId, null);
+            return;
+        }
+
+        Reservation reservation = read(change, Reservation.class);
+        RoomAvailabilityIndex.getInstance().put(reservation);
+        OccupancyRollup.getInstance().put(reservation);
+        ArrivalsIndex.getInstance().put(reservation);
+        EntityVersions.bump(EntityVersions.Kind.RESERVATION, reservationId);
+        ReservationEventBus.getInstance().publish(change.getOperation() == Change.Operation.CREATED
+                ? ReservationEvent.Type.CREATED : ReservationEvent.Type.UPDATED, reservationId, reservation);
+    }
+
+    private static <T> T read(Change change, Class<T> type) {
+        try {
+            return mapper.readValue(change.getPayload(), type);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
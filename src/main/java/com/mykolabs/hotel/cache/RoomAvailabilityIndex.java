@@ -0,0 +1,251 @@
+package com.mykolabs.hotel.cache;
+
+import com.mykolabs.hotel.beans.Reservation;
+import com.mykolabs.hotel.persistence.ReservationDAO;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory occupancy index of all reservations, used to answer room
+ * availability searches without querying RESERVATION. Every room has a
+ * per-night occupancy calendar; a stay occupies the nights from its checkin
+ * date up to (not including) its checkout date.
+ *
+ * The index is loaded from the DB on first use and kept up to date by
+ * ReservationDAO writes. All updates are idempotent per reservation id.
+ *
+ * @author nikprixmar
+ */
+public class RoomAvailabilityIndex {
+
+    private static final Logger log = Logger.getLogger(RoomAvailabilityIndex.class.getName());
+
+    private static final RoomAvailabilityIndex instance = new RoomAvailabilityIndex();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, RoomCalendar> calendars = new HashMap<>();
+    private final Map<Integer, Stay> stays = new HashMap<>();
+    private volatile boolean loaded;
+
+    public static RoomAvailabilityIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Loads all reservations from the DB, unless already loaded.
+     *
+     * @throws SQLException
+     */
+    public void ensureLoaded() throws SQLException {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            calendars.clear();
+            stays.clear();
+            List<Reservation> reservations = new ReservationDAO().getAllReservationStays();
+            for (Reservation reservation : reservations) {
+                addStay(reservation);
+            }
+            loaded = true;
+            log.log(Level.INFO, "Room availability index loaded, reservations: {0}", stays.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the index, it will be rebuilt from the DB on next use.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            calendars.clear();
+            stays.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if the room has no stays overlapping the nights of [checkin,
+     * checkout).
+     *
+     * @param roomNumber
+     * @param checkin
+     * @param checkout
+     * @return
+     * @throws SQLException
+     */
+    public boolean isAvailable(int roomNumber, LocalDate checkin, LocalDate checkout) throws SQLException {
+        ensureLoaded();
+        long from = checkin.toEpochDay();
+        long to = toNight(from, checkout.toEpochDay());
+
+        lock.readLock().lock();
+        try {
+            RoomCalendar calendar = calendars.get(roomNumber);
+            return calendar == null || !calendar.isOccupied(from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds new or replaces existing reservation's stay. Called after the
+     * reservation was written to the DB. While the index is loading this
+     * waits for the load, which may have read the DB before the write.
+     *
+     * @param reservation
+     */
+    public void put(Reservation reservation) {
+        lock.writeLock().lock();
+        try {
+            // not loaded: will be picked up by the next load
+            if (loaded) {
+                addStay(reservation);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes reservation's stay. Called after the reservation was deleted
+     * from the DB.
+     *
+     * @param reservationId
+     */
+    public void remove(int reservationId) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                removeStay(reservationId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* must be called holding the write lock */
+    private void addStay(Reservation reservation) {
+        Integer reservationId = reservation.getReservationId();
+        LocalDateTime checkin = reservation.getCheckinDate();
+        LocalDateTime checkout = reservation.getCheckoutDate();
+        if (reservationId == null || checkin == null || checkout == null || reservation.getRoomNumberId() == null) {
+            return;
+        }
+        removeStay(reservationId);
+
+        long from = checkin.toLocalDate().toEpochDay();
+        Stay stay = new Stay(reservation.getRoomNumberId(), from, toNight(from, checkout.toLocalDate().toEpochDay()));
+        stays.put(reservationId, stay);
+
+        RoomCalendar calendar = calendars.get(stay.roomNumber);
+        if (calendar == null) {
+            calendar = new RoomCalendar(stay.from);
+            calendars.put(stay.roomNumber, calendar);
+        }
+        calendar.add(stay.from, stay.to, 1);
+    }
+
+    /* must be called holding the write lock */
+    private void removeStay(int reservationId) {
+        Stay stay = stays.remove(reservationId);
+        if (stay != null) {
+            calendars.get(stay.roomNumber).add(stay.from, stay.to, -1);
+        }
+    }
+
+    /**
+     * Same-day stays still occupy one night.
+     */
+    private static long toNight(long from, long to) {
+        return to > from ? to : from + 1;
+    }
+
+    private static final class Stay {
+
+        private final int roomNumber;
+        private final long from;
+        private final long to;
+
+        Stay(int roomNumber, long from, long to) {
+            this.roomNumber = roomNumber;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Per-night reservation counts of a single room (several reservations may
+     * overlap in legacy data), mirrored into a bitset for fast range checks.
+     * Index 0 is baseDay (epoch day); the arrays grow on demand.
+     */
+    private static final class RoomCalendar {
+
+        private long baseDay;
+        private int[] counts = new int[0];
+        private BitSet occupied = new BitSet();
+
+        RoomCalendar(long baseDay) {
+            this.baseDay = baseDay;
+        }
+
+        boolean isOccupied(long from, long to) {
+            long start = Math.max(from, baseDay);
+            long end = Math.min(to, baseDay + counts.length);
+            if (start >= end) {
+                return false;
+            }
+            int next = occupied.nextSetBit((int) (start - baseDay));
+            return next >= 0 && next < end - baseDay;
+        }
+
+        void add(long from, long to, int delta) {
+            ensureRange(from, to);
+            for (long day = from; day < to; day++) {
+                int i = (int) (day - baseDay);
+                counts[i] += delta;
+                occupied.set(i, counts[i] > 0);
+            }
+        }
+
+        private void ensureRange(long from, long to) {
+            if (from < baseDay) {
+                // prepend days, shifting existing nights to the right
+                int shift = (int) (baseDay - from);
+                int[] grown = new int[counts.length + shift];
+                System.arraycopy(counts, 0, grown, shift, counts.length);
+                counts = grown;
+                BitSet shifted = new BitSet(counts.length);
+                for (int i = occupied.nextSetBit(0); i >= 0; i = occupied.nextSetBit(i + 1)) {
+                    shifted.set(i + shift);
+                }
+                occupied = shifted;
+                baseDay = from;
+            }
+            int needed = (int) (to - baseDay);
+            if (needed > counts.length) {
+                // grow with some headroom for future bookings
+                int[] grown = new int[Math.max(needed, counts.length + 366)];
+                System.arraycopy(counts, 0, grown, 0, counts.length);
+                counts = grown;
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.mykolabs.hotel.cache;
+
+import com.mykolabs.hotel.beans.Room;
+import com.mykolabs.hotel.persistence.RoomDAO;
+import com.mykolabs.hotel.util.Configuration;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-through cache of the whole ROOM table. Rooms change rarely, so the
+ * full catalog (with image URLs already resolved) is kept in memory until it
+ * expires (ROOM_CACHE_TTL_SECONDS) or RoomDAO writes invalidate it. Catalogs
+ * larger than ROOM_CACHE_MAX_SIZE are not cached.
+ *
+ * Returned Room objects are shared and must not be modified.
+ *
+ * @author nikprixmar
+ */
+public class RoomCatalog {
+
+    private static final Logger log = Logger.getLogger(RoomCatalog.class.getName());
+
+    private static final long DEFAULT_TTL_SECONDS = 300;
+    private static final int DEFAULT_MAX_SIZE = 5000;
+
+    private static final RoomCatalog instance = new RoomCatalog();
+
+    private volatile Snapshot snapshot;
+    // incremented on invalidation, so a load racing with a write is not cached
+    private volatile long generation;
+    // changes whenever the catalog content may have changed
+    private final AtomicLong version = new AtomicLong();
+
+    public static RoomCatalog getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns all rooms ordered by room number, or null if the catalog is too
+     * large to be cached.
+     *
+     * @return
+     * @throws SQLException
+     */
+    public List<Room> getAllRooms() throws SQLException {
+        Snapshot current = getSnapshot();
+        return current != null ? current.rooms : null;
+    }
+
+    /**
+     * Returns a single room, or null if there is no such room. Throws
+     * IllegalStateException if the catalog is too large to be cached, callers
+     * are expected to check isCacheable() first.
+     *
+     * @param roomNumber
+     * @return
+     * @throws SQLException
+     */
+    public Room getRoom(int roomNumber) throws SQLException {
+        Snapshot current = getSnapshot();
+        if (current == null) {
+            throw new IllegalStateException("Room catalog is not cached");
+        }
+        return current.byNumber.get(roomNumber);
+    }
+
+    /**
+     * Checks if the catalog fits into the cache.
+     *
+     * @return
+     * @throws SQLException
+     */
+    public boolean isCacheable() throws SQLException {
+        return getSnapshot() != null;
+    }
+
+    /**
+     * Returns the catalog version. Read it before the rooms: a payload built
+     * from them stays valid while the version is unchanged.
+     *
+     * @return
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Drops the cached catalog, called after ROOM was modified.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        snapshot = null;
+        version.incrementAndGet();
+    }
+
+    private Snapshot getSnapshot() throws SQLException {
+        Snapshot current = snapshot;
+        if (current != null && !current.isExpired()) {
+            return current.tooLarge ? null : current;
+        }
+        return load();
+    }
+
+    private Snapshot load() throws SQLException {
+        long loadGeneration;
+        synchronized (this) {
+            Snapshot current = snapshot;
+            if (current != null && !current.isExpired()) {
+                return current.tooLarge ? null : current;
+            }
+            loadGeneration = generation;
+        }
+
+        Configuration config = ConfigurationManager.get();
+        long ttlMillis = TimeUnit.SECONDS.toMillis(config.getLong("ROOM_CACHE_TTL_SECONDS", DEFAULT_TTL_SECONDS));
+        int maxSize = config.getInt("ROOM_CACHE_MAX_SIZE", DEFAULT_MAX_SIZE);
+
+        List<Room> rooms = new RoomDAO(config).getAllRoomsFromDB(maxSize + 1);
+        Snapshot loaded = new Snapshot(rooms, maxSize, ttlMillis);
+
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                snapshot = loaded;
+                version.incrementAndGet();
+            }
+        }
+        log.log(Level.INFO, "Room catalog loaded, rooms: {0}", rooms.size());
+        return loaded.tooLarge ? null : loaded;
+    }
+
+    private static final class Snapshot {
+
+        private final List<Room> rooms;
+        private final Map<Integer, Room> byNumber;
+        private final boolean tooLarge;
+        private final long expiresAt;
+
+        Snapshot(List<Room> rooms, int maxSize, long ttlMillis) {
+            this.tooLarge = rooms.size() > maxSize;
+            this.rooms = tooLarge ? Collections.<Room>emptyList() : Collections.unmodifiableList(rooms);
+            this.byNumber = new HashMap<>();
+            for (Room room : this.rooms) {
+                byNumber.put(room.getRoomNumber(), room);
+            }
+            this.expiresAt = System.currentTimeMillis() + ttlMillis;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.mykolabs.hotel.events;
+
+import com.mykolabs.hotel.beansLists.Change;
+import com.mykolabs.hotel.persistence.ChangeLogDAO;
+import com.mykolabs.hotel.util.Configuration;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Follows the change log from inside the application, handing every new
+ * change to the registered listeners in CHANGE_ID order. Starts at the
+ * latest change, listeners are expected to load their state separately.
+ *
+ * Polls every CHANGE_LOG_TAIL_INTERVAL_MS, 0 turns tailing off. getChanges()
+ * holds back changes behind ids still in flight, so the position only has
+ * to move past what was read.
+ *
+ * @author nikprixmar
+ */
+public final class ChangeLogTailer {
+
+    private static final Logger log = Logger.getLogger(ChangeLogTailer.class.getName());
+
+    private static final int DEFAULT_INTERVAL_MS = 1000;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final ChangeLogTailer instance = new ChangeLogTailer();
+
+    private final List<Consumer<Change>> listeners = new CopyOnWriteArrayList<>();
+
+    // guarded by this
+    private ScheduledExecutorService poller;
+
+    // only touched by the poller thread
+    private long position;
+
+    private ChangeLogTailer() {
+    }
+
+    public static ChangeLogTailer getInstance() {
+        return instance;
+    }
+
+    /**
+     * Registers a listener, called from the tailer thread.
+     *
+     * @param listener
+     */
+    public void addListener(Consumer<Change> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts tailing from the latest change, unless disabled or started.
+     *
+     * @throws SQLException if the current position can't be read
+     */
+    public synchronized void start() throws SQLException {
+        Configuration config = ConfigurationManager.get();
+        int interval = config.getInt("CHANGE_LOG_TAIL_INTERVAL_MS", DEFAULT_INTERVAL_MS);
+        if (poller != null || interval <= 0) {
+            return;
+        }
+        int batchSize = Math.max(1, config.getInt("CHANGE_LOG_TAIL_BATCH_SIZE", DEFAULT_BATCH_SIZE));
+
+        position = new ChangeLogDAO().getLastChangeId();
+
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hotel-change-log-tailer");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(() -> poll(batchSize), interval, interval, TimeUnit.MILLISECONDS);
+
+        log.log(Level.INFO, "Change log tailing started at: {0}", position);
+    }
+
+    /**
+     * Stops tailing, called on application shutdown.
+     */
+    public synchronized void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+
+    private void poll(int batchSize) {
+        try {
+            List<Change> changes;
+            do {
+                changes = new ChangeLogDAO().getChanges(position, batchSize);
+                for (Change change : changes) {
+                    for (Consumer<Change> listener : listeners) {
+                        try {
+                            listener.accept(change);
+                        } catch (RuntimeException ex) {
+                            log.log(Level.WARNING, "Change listener failed on change " + change.getChangeId(), ex);
+                        }
+                    }
+                    position = change.getChangeId();
+                }
+            } while (changes.size() == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (SQLException | RuntimeException ex) {
+            // retried on the next poll
+            log.log(Level.WARNING, "Reading change log failed", ex);
+        }
+    }
+}
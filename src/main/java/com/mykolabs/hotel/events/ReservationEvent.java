@@ -0,0 +1,50 @@
+package com.mykolabs.hotel.events;
+
+import javax.ws.rs.core.MediaType;
+import org.glassfish.jersey.media.sse.OutboundEvent;
+
+/**
+ * Reservation change published by ReservationDAO writes. The JSON data and
+ * the outbound SSE event are built once and shared by all subscribers.
+ *
+ * @author nikprixmar
+ */
+public final class ReservationEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final int reservationId;
+    private final OutboundEvent outbound;
+
+    ReservationEvent(String id, long sequence, Type type, int reservationId, String data) {
+        this.sequence = sequence;
+        this.type = type;
+        this.reservationId = reservationId;
+        this.outbound = new OutboundEvent.Builder()
+                .id(id)
+                .name(type.name().toLowerCase())
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(String.class, data)
+                .build();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getReservationId() {
+        return reservationId;
+    }
+
+    OutboundEvent getOutbound() {
+        return outbound;
+    }
+}
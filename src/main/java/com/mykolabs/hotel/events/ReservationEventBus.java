@@ -0,0 +1,325 @@
+package com.mykolabs.hotel.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mykolabs.hotel.beans.Reservation;
+import com.mykolabs.hotel.json.JsonSupport;
+import com.mykolabs.hotel.metrics.MetricsRegistry;
+import com.mykolabs.hotel.util.Configuration;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ws.rs.core.MediaType;
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.glassfish.jersey.media.sse.OutboundEvent;
+
+/**
+ * In-process fan-out of reservation changes to server-sent event
+ * subscribers, e.g. front-desk dashboards. ReservationDAO publishes after
+ * each successful write.
+ *
+ * Every subscriber has a bounded buffer, drained by a small shared pool of
+ * writers only while it holds events, so idle connections cost no thread. A
+ * subscriber falling RESERVATION_EVENTS_BUFFER_SIZE events behind is
+ * disconnected, the same amount of recent events is kept so it can resume
+ * with Last-Event-ID. Older ids, or ids handed out by a previous run, get a
+ * "reset" event telling the client to reload instead.
+ *
+ * @author nikprixmar
+ */
+public final class ReservationEventBus {
+
+    private static final Logger log = Logger.getLogger(ReservationEventBus.class.getName());
+
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+    private static final int DEFAULT_MAX_SUBSCRIBERS = 1000;
+    private static final int DEFAULT_WRITER_THREADS = 4;
+    private static final int DEFAULT_HEARTBEAT_SECONDS = 20;
+
+    // event ids are EPOCH-sequence, ids of a previous run never resume
+    private static final String EPOCH = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    // SSE comment, keeps proxies from timing out idle streams and finds closed ones
+    private static final OutboundEvent HEARTBEAT = new OutboundEvent.Builder().comment("heartbeat").build();
+
+    private static final ObjectMapper mapper = JsonSupport.mapper();
+
+    private static final ReservationEventBus instance = new ReservationEventBus();
+
+    private final Object lock = new Object();
+    // recent events by sequence, guarded by lock
+    private final ReservationEvent[] history;
+    private long sequence;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final LongAdder dropped = MetricsRegistry.counter("hotel_reservation_events_dropped_total", "");
+
+    // started with the first subscriber, written under lock
+    private volatile ThreadPoolExecutor writers;
+    private ScheduledExecutorService heartbeat;
+
+    private ReservationEventBus() {
+        history = new ReservationEvent[Math.max(1,
+                ConfigurationManager.get().getInt("RESERVATION_EVENTS_BUFFER_SIZE", DEFAULT_BUFFER_SIZE))];
+        MetricsRegistry.gauge("hotel_reservation_events_subscribers", subscribers::size);
+        MetricsRegistry.describe("hotel_reservation_events_dropped_total",
+                "Event subscribers disconnected for falling behind.");
+    }
+
+    public static ReservationEventBus getInstance() {
+        return instance;
+    }
+
+    /**
+     * Publishes a change. The reservation, null for deletes, is serialized
+     * right away.
+     *
+     * @param type
+     * @param reservationId
+     * @param reservation
+     */
+    public void publish(ReservationEvent.Type type, int reservationId, Reservation reservation) {
+        String data = toJson(type, reservationId, reservation);
+        synchronized (lock) {
+            long next = ++sequence;
+            ReservationEvent event = new ReservationEvent(EPOCH + "-" + next, next, type, reservationId, data);
+            history[(int) (next % history.length)] = event;
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(event.getOutbound());
+            }
+        }
+    }
+
+    /**
+     * Subscribes the output, replaying events after lastEventId first.
+     *
+     * @param output
+     * @param lastEventId Last-Event-ID sent by a reconnecting client, may be
+     * null
+     * @return false if RESERVATION_EVENTS_MAX_SUBSCRIBERS are connected
+     */
+    public boolean subscribe(EventOutput output, String lastEventId) {
+        int maxSubscribers = ConfigurationManager.get().getInt("RESERVATION_EVENTS_MAX_SUBSCRIBERS", DEFAULT_MAX_SUBSCRIBERS);
+        synchronized (lock) {
+            if (subscribers.size() >= maxSubscribers) {
+                return false;
+            }
+            start();
+
+            Subscriber subscriber = new Subscriber(output, history.length);
+            if (lastEventId != null && !lastEventId.isEmpty()) {
+                long last = parseSequence(lastEventId);
+                if (last < 0 || last > sequence || sequence - last > history.length) {
+                    // can't tell what was missed
+                    subscriber.offer(new OutboundEvent.Builder()
+                            .id(EPOCH + "-" + sequence)
+                            .name("reset")
+                            .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                            .data(String.class, "{}")
+                            .build());
+                } else {
+                    for (long seq = last + 1; seq <= sequence; seq++) {
+                        subscriber.offer(history[(int) (seq % history.length)].getOutbound());
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        return true;
+    }
+
+    /**
+     * Returns amount of connected subscribers.
+     *
+     * @return
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Disconnects all subscribers and stops the writers, called on
+     * application shutdown.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            if (writers != null) {
+                writers.shutdownNow();
+                heartbeat.shutdownNow();
+                writers = null;
+                heartbeat = null;
+            }
+            for (Subscriber subscriber : subscribers) {
+                subscriber.close();
+                subscriber.disconnect();
+            }
+        }
+    }
+
+    private void start() {
+        if (writers != null) {
+            return;
+        }
+        Configuration config = ConfigurationManager.get();
+        int threads = config.getInt("RESERVATION_EVENTS_WRITER_THREADS", DEFAULT_WRITER_THREADS);
+        int heartbeatSeconds = config.getInt("RESERVATION_EVENTS_HEARTBEAT_SECONDS", DEFAULT_HEARTBEAT_SECONDS);
+
+        AtomicInteger counter = new AtomicInteger();
+        // a subscriber is queued at most once, so the queue is bounded by their number
+        writers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "hotel-events-writer-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        writers.allowCoreThreadTimeOut(true);
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hotel-events-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeat.scheduleWithFixedDelay(() -> {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.ping();
+            }
+        }, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+
+        log.log(Level.INFO, "Reservation events started, writers: {0}", threads);
+    }
+
+    private static long parseSequence(String eventId) {
+        String prefix = EPOCH + "-";
+        if (!eventId.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static String toJson(ReservationEvent.Type type, int reservationId, Reservation reservation) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("type", type.name().toLowerCase());
+        node.put("reservationId", reservationId);
+        if (reservation != null) {
+            node.set("reservation", mapper.valueToTree(reservation));
+        }
+        return node.toString();
+    }
+
+    /**
+     * One connected client. Events are queued by publishing threads and
+     * written by one writer at a time.
+     */
+    private final class Subscriber implements Runnable {
+
+        private final EventOutput output;
+        private final int capacity;
+
+        // guarded by this
+        private final ArrayDeque<OutboundEvent> buffer = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean closed;
+
+        Subscriber(EventOutput output, int capacity) {
+            this.output = output;
+            this.capacity = capacity;
+        }
+
+        synchronized void offer(OutboundEvent event) {
+            if (closed) {
+                return;
+            }
+            if (buffer.size() >= capacity) {
+                // too slow, the client resumes from its last event once it reconnects
+                dropped.increment();
+                closed = true;
+                buffer.clear();
+            } else {
+                buffer.add(event);
+            }
+            schedule();
+        }
+
+        synchronized void ping() {
+            if (!closed && buffer.isEmpty()) {
+                buffer.add(HEARTBEAT);
+                schedule();
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            buffer.clear();
+        }
+
+        private void schedule() {
+            ThreadPoolExecutor current = writers;
+            if (scheduled || current == null) {
+                return;
+            }
+            scheduled = true;
+            try {
+                current.execute(this);
+            } catch (RejectedExecutionException ex) {
+                // shutting down
+                scheduled = false;
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                OutboundEvent event;
+                boolean close;
+                synchronized (this) {
+                    event = buffer.poll();
+                    close = closed;
+                    if (event == null) {
+                        scheduled = false;
+                    }
+                }
+                if (event == null) {
+                    if (close) {
+                        disconnect();
+                    }
+                    return;
+                }
+                try {
+                    output.write(event);
+                } catch (IOException | RuntimeException ex) {
+                    // client went away
+                    log.log(Level.FINE, "Event subscriber disconnected", ex);
+                    synchronized (this) {
+                        closed = true;
+                        buffer.clear();
+                    }
+                }
+            }
+        }
+
+        void disconnect() {
+            subscribers.remove(this);
+            try {
+                output.close();
+            } catch (IOException ex) {
+                log.log(Level.FINE, "Closing event output failed", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.mykolabs.hotel.exceptions;
+
+/**
+ * Thrown when a reservation would overlap another stay in the same room.
+ *
+ * @author nikprixmar
+ */
+public class RoomNotAvailableException extends Exception {
+
+    public RoomNotAvailableException(String message) {
+        super(message);
+    }
+}
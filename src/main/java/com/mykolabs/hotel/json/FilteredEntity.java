@@ -0,0 +1,39 @@
+package com.mykolabs.hotel.json;
+
+/**
+ * Response entity serialized through a named JsonSupport view, e.g.
+ * Response.ok(FilteredEntity.of(JsonSupport.PAYMENT_SUMMARY, payment)).
+ * Written by FilteredEntityWriter.
+ *
+ * @author nikprixmar
+ */
+public final class FilteredEntity {
+
+    private final String view;
+    private final Object value;
+
+    private FilteredEntity(String view, Object value) {
+        this.view = view;
+        this.value = value;
+    }
+
+    /**
+     * Wraps the value, failing fast on unknown views.
+     *
+     * @param view
+     * @param value
+     * @return
+     */
+    public static FilteredEntity of(String view, Object value) {
+        JsonSupport.writer(view);
+        return new FilteredEntity(view, value);
+    }
+
+    public String getView() {
+        return view;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,44 @@
+package com.mykolabs.hotel.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Writes FilteredEntity bodies with the cached ObjectWriter of their view.
+ *
+ * @author nikprixmar
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class FilteredEntityWriter implements MessageBodyWriter<FilteredEntity> {
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return FilteredEntity.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(FilteredEntity entity, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(FilteredEntity entity, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException {
+        // the container closes the entity stream, not the generator
+        JsonGenerator generator = JsonSupport.mapper().getFactory().createGenerator(entityStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        JsonSupport.writer(entity.getView()).writeValue(generator, entity.getValue());
+        generator.flush();
+    }
+}
@@ -0,0 +1,93 @@
+package com.mykolabs.hotel.json;
+
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shared ObjectMapper, configured the way Jersey's JacksonFeature serializes
+ * responses (Jackson annotations first, then JAXB ones). ObjectMapper is
+ * thread safe once configured, and expensive to create.
+ *
+ * Beans annotated with @JsonFilter are serialized through named views, each
+ * an ObjectWriter built once with its filters. Without a view the summary
+ * filters apply, so payment card data is only written when an endpoint asks
+ * for PAYMENT_FULL. PAYMENT_CHANGE is used for change log payloads.
+ *
+ * @author nikprixmar
+ */
+public final class JsonSupport {
+
+    /* payment amount only */
+    public static final String PAYMENT_SUMMARY = "payment-summary";
+    /* all payment properties, card details included */
+    public static final String PAYMENT_FULL = "payment-full";
+    /* ids, amount and description, no card details */
+    public static final String PAYMENT_CHANGE = "payment-change";
+
+    // filter id used by @JsonFilter on Payment
+    private static final String PAYMENT_FILTER = "paymentFilter";
+
+    private static final FilterProvider summaryFilters = new SimpleFilterProvider()
+            .addFilter(PAYMENT_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept("paymentAmount"));
+    private static final FilterProvider fullFilters = new SimpleFilterProvider()
+            .addFilter(PAYMENT_FILTER, SimpleBeanPropertyFilter.serializeAllExcept(Collections.<String>emptySet()));
+    private static final FilterProvider changeFilters = new SimpleFilterProvider()
+            .addFilter(PAYMENT_FILTER, SimpleBeanPropertyFilter.serializeAllExcept("cardType", "cardNumber", "cardExpiration"));
+
+    private static final ObjectMapper mapper = newMapper();
+    private static final Map<String, ObjectWriter> views = newViews();
+
+    private JsonSupport() {
+    }
+
+    /**
+     * Returns the shared mapper. Must not be reconfigured.
+     *
+     * @return
+     */
+    public static ObjectMapper mapper() {
+        return mapper;
+    }
+
+    /**
+     * Returns the writer of a named view.
+     *
+     * @param view
+     * @return
+     * @throws IllegalArgumentException if there is no such view
+     */
+    public static ObjectWriter writer(String view) {
+        ObjectWriter writer = views.get(view);
+        if (writer == null) {
+            throw new IllegalArgumentException("Unknown JSON view: " + view);
+        }
+        return writer;
+    }
+
+    private static ObjectMapper newMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setAnnotationIntrospector(AnnotationIntrospector.pair(
+                new JacksonAnnotationIntrospector(),
+                new JaxbAnnotationIntrospector(TypeFactory.defaultInstance())));
+        mapper.setFilters(summaryFilters);
+        return mapper;
+    }
+
+    private static Map<String, ObjectWriter> newViews() {
+        Map<String, ObjectWriter> writers = new HashMap<>();
+        writers.put(PAYMENT_SUMMARY, mapper.writer(summaryFilters));
+        writers.put(PAYMENT_FULL, mapper.writer(fullFilters));
+        writers.put(PAYMENT_CHANGE, mapper.writer(changeFilters));
+        return Collections.unmodifiableMap(writers);
+    }
+}
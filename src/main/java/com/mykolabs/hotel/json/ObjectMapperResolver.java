@@ -0,0 +1,21 @@
+package com.mykolabs.hotel.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Hands the shared mapper to Jersey's Jackson provider, so request and
+ * response bodies go through one configured ObjectMapper and its serializer
+ * caches instead of the provider's own.
+ *
+ * @author nikprixmar
+ */
+@Provider
+public class ObjectMapperResolver implements ContextResolver<ObjectMapper> {
+
+    @Override
+    public ObjectMapper getContext(Class<?> type) {
+        return JsonSupport.mapper();
+    }
+}
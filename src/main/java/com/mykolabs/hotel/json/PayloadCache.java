@@ -0,0 +1,161 @@
+package com.mykolabs.hotel.json;
+
+import com.mykolabs.hotel.metrics.Metrics;
+import com.mykolabs.hotel.metrics.MetricsRegistry;
+import com.mykolabs.hotel.util.Configuration;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of serialized list responses. A payload is stored under a key along
+ * with the version of the data it was built from, and served until the data
+ * version changes or the entry expires (RESPONSE_CACHE_TTL_SECONDS, bounds
+ * staleness after writes made outside of the application).
+ *
+ * Callers must read the data version before reading the data itself, so a
+ * payload is never stored under a newer version than its content.
+ *
+ * @author nikprixmar
+ */
+public class PayloadCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+    private static final int DEFAULT_MAX_PAYLOAD_BYTES = 8 * 1024 * 1024;
+    private static final long DEFAULT_TTL_SECONDS = 300;
+    private static final int DEFAULT_COMPRESSION_MIN_BYTES = 1024;
+
+    private static final PayloadCache instance = new PayloadCache();
+
+    static {
+        MetricsRegistry.gauge("hotel_payload_cache_bytes", instance::getSize);
+    }
+
+    // access ordered, the least recently used entry is evicted first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public static PayloadCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the cached payload if it was built from the given data version,
+     * null otherwise.
+     *
+     * @param key
+     * @param version
+     * @return
+     */
+    public SerializedPayload get(String key, long version) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.version == version && entry.expiresAt > now) {
+                Metrics.payloadCache(true);
+                return entry.payload;
+            }
+        }
+        Metrics.payloadCache(false);
+        return null;
+    }
+
+    /**
+     * Returns the cached payload, or serializes the value returned by the
+     * loader and caches it.
+     *
+     * @param key
+     * @param version data version, read before calling this method
+     * @param loader
+     * @return
+     * @throws Exception thrown by the loader
+     */
+    public SerializedPayload get(String key, long version, Callable<Object> loader) throws Exception {
+        SerializedPayload payload = get(key, version);
+        if (payload != null) {
+            return payload;
+        }
+        return put(key, version, JsonSupport.mapper().writeValueAsBytes(loader.call()));
+    }
+
+    /**
+     * Compresses the serialized body and caches it, unless it is larger than
+     * RESPONSE_CACHE_MAX_BYTES.
+     *
+     * @param key
+     * @param version
+     * @param json
+     * @return
+     * @throws IOException
+     */
+    public SerializedPayload put(String key, long version, byte[] json) throws IOException {
+        Configuration config = ConfigurationManager.get();
+        SerializedPayload payload = new SerializedPayload(json,
+                config.getInt("RESPONSE_COMPRESSION_MIN_BYTES", DEFAULT_COMPRESSION_MIN_BYTES));
+        if (json.length > getMaxPayloadBytes()) {
+            return payload;
+        }
+
+        long expiresAt = System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(config.getLong("RESPONSE_CACHE_TTL_SECONDS", DEFAULT_TTL_SECONDS));
+        int maxEntries = config.getInt("RESPONSE_CACHE_MAX_ENTRIES", DEFAULT_MAX_ENTRIES);
+
+        synchronized (this) {
+            Entry current = entries.get(key);
+            // a slower request must not replace a payload of newer data
+            if (current == null || current.version <= version) {
+                entries.put(key, new Entry(version, payload, expiresAt));
+            }
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return payload;
+    }
+
+    /**
+     * Returns the largest body which gets cached.
+     *
+     * @return
+     */
+    public int getMaxPayloadBytes() {
+        return ConfigurationManager.get().getInt("RESPONSE_CACHE_MAX_BYTES", DEFAULT_MAX_PAYLOAD_BYTES);
+    }
+
+    /**
+     * Returns memory held by cached payloads.
+     *
+     * @return
+     */
+    public synchronized long getSize() {
+        long size = 0;
+        for (Entry entry : entries.values()) {
+            size += entry.payload.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * Drops all cached payloads.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private static final class Entry {
+
+        private final long version;
+        private final SerializedPayload payload;
+        private final long expiresAt;
+
+        Entry(long version, SerializedPayload payload, long expiresAt) {
+            this.version = version;
+            this.payload = payload;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
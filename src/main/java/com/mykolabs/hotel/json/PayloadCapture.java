@@ -0,0 +1,55 @@
+package com.mykolabs.hotel.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Passes a streamed response through, keeping a copy of it for the
+ * PayloadCache. Stops copying once the body grows past maxBytes.
+ *
+ * @author nikprixmar
+ */
+public class PayloadCapture extends FilterOutputStream {
+
+    private final int maxBytes;
+    private ByteArrayOutputStream copy = new ByteArrayOutputStream(8192);
+
+    public PayloadCapture(OutputStream out, int maxBytes) {
+        super(out);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        capture(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        capture(b, off, len);
+    }
+
+    /**
+     * Returns the captured body, or null if it was too large.
+     *
+     * @return
+     */
+    public byte[] getCaptured() {
+        return copy != null ? copy.toByteArray() : null;
+    }
+
+    private void capture(byte[] b, int off, int len) {
+        if (copy == null) {
+            return;
+        }
+        if (copy.size() + len > maxBytes) {
+            copy = null;
+            return;
+        }
+        copy.write(b, off, len);
+    }
+}
@@ -0,0 +1,96 @@
+package com.mykolabs.hotel.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized JSON response body, with its gzip and deflate encodings
+ * computed once up front. Written by SerializedPayloadWriter.
+ *
+ * @author nikprixmar
+ */
+public final class SerializedPayload {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String IDENTITY = "identity";
+
+    private final byte[] identity;
+    private final byte[] gzip;
+    private final byte[] deflate;
+
+    /**
+     * Compresses bodies of at least minCompressBytes, smaller ones are only
+     * kept as is.
+     *
+     * @param json
+     * @param minCompressBytes
+     * @throws IOException
+     */
+    public SerializedPayload(byte[] json, int minCompressBytes) throws IOException {
+        this.identity = json;
+        if (json.length >= minCompressBytes) {
+            this.gzip = compress(json, true);
+            this.deflate = compress(json, false);
+        } else {
+            this.gzip = null;
+            this.deflate = null;
+        }
+    }
+
+    /**
+     * Returns the body in the given content coding, or null if it is not
+     * available in that coding.
+     *
+     * @param coding
+     * @return
+     */
+    public byte[] getBytes(String coding) {
+        switch (coding) {
+            case GZIP:
+                return gzip;
+            case DEFLATE:
+                return deflate;
+            case IDENTITY:
+                return identity;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns memory held by the payload, all codings included.
+     *
+     * @return
+     */
+    public int getSize() {
+        return identity.length + (gzip != null ? gzip.length : 0) + (deflate != null ? deflate.length : 0);
+    }
+
+    /* done once per payload, so spend the CPU on the best ratio */
+    private static byte[] compress(byte[] json, boolean gzip) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+        if (gzip) {
+            try (OutputStream out = new GZIPOutputStream(buffer) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                out.write(json);
+            }
+        } else {
+            // zlib format, which is what HTTP calls deflate
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (OutputStream out = new DeflaterOutputStream(buffer, deflater)) {
+                out.write(json);
+            } finally {
+                deflater.end();
+            }
+        }
+        return buffer.toByteArray();
+    }
+}
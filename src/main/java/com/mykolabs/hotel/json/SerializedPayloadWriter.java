@@ -0,0 +1,114 @@
+package com.mykolabs.hotel.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Writes SerializedPayload bodies as is, picking the pre-compressed encoding
+ * the client accepts (Accept-Encoding, q-values honoured, gzip preferred on a
+ * tie).
+ *
+ * @author nikprixmar
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class SerializedPayloadWriter implements MessageBodyWriter<SerializedPayload> {
+
+    @Context
+    private HttpHeaders requestHeaders;
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return SerializedPayload.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(SerializedPayload payload, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType) {
+        // deprecated by JAX-RS 2.0, Content-Length is set in writeTo
+        return -1;
+    }
+
+    @Override
+    public void writeTo(SerializedPayload payload, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException {
+
+        String coding = negotiate(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING), payload);
+        byte[] body = payload.getBytes(coding);
+
+        httpHeaders.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!SerializedPayload.IDENTITY.equals(coding)) {
+            httpHeaders.putSingle(HttpHeaders.CONTENT_ENCODING, coding);
+        }
+        httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, body.length);
+        entityStream.write(body);
+    }
+
+    /**
+     * Picks the coding with the highest q-value among the ones the payload
+     * has, identity if the client accepts none of them.
+     *
+     * @param acceptEncoding
+     * @param payload
+     * @return
+     */
+    static String negotiate(String acceptEncoding, SerializedPayload payload) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return SerializedPayload.IDENTITY;
+        }
+        // -1 until listed
+        float gzip = -1;
+        float deflate = -1;
+        float any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase();
+            float q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Float.parseFloat(param.substring(2));
+                    } catch (NumberFormatException ex) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals(SerializedPayload.GZIP) || coding.equals("x-gzip")) {
+                gzip = q;
+            } else if (coding.equals(SerializedPayload.DEFLATE)) {
+                deflate = q;
+            } else if (coding.equals("*")) {
+                any = q;
+            }
+        }
+        // codings not listed explicitly get the '*' q-value
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+
+        if (gzip > 0 && gzip >= deflate && payload.getBytes(SerializedPayload.GZIP) != null) {
+            return SerializedPayload.GZIP;
+        }
+        if (deflate > 0 && payload.getBytes(SerializedPayload.DEFLATE) != null) {
+            return SerializedPayload.DEFLATE;
+        }
+        if (gzip > 0 && payload.getBytes(SerializedPayload.GZIP) != null) {
+            return SerializedPayload.GZIP;
+        }
+        return SerializedPayload.IDENTITY;
+    }
+}
@@ -3,6 +3,7 @@ package com.mykolabs.hotel.mappers;
 import com.mykolabs.hotel.exceptions.AuthorizationException;
 import com.mykolabs.hotel.exceptions.GenericErrorMessage;
 
+import com.mykolabs.hotel.metrics.Metrics;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.ext.ExceptionMapper;
@@ -18,6 +19,8 @@ public class AuthenticationExceptionMapper implements ExceptionMapper<Authorizat
     @Override
     public Response toResponse(AuthorizationException exception) {
 
+        Metrics.exceptionMapped(getClass(), exception);
+
         GenericErrorMessage e = new GenericErrorMessage();
         e.setMessage(exception.getMessage());
         e.setCode(Status.UNAUTHORIZED.getStatusCode());
@@ -2,6 +2,7 @@ package com.mykolabs.hotel.mappers;
 
 import com.mykolabs.hotel.exceptions.EntityNotFoundException;
 import com.mykolabs.hotel.exceptions.GenericErrorMessage;
+import com.mykolabs.hotel.metrics.Metrics;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.ext.ExceptionMapper;
@@ -13,6 +14,8 @@ public class EntityNotFoundMapper implements ExceptionMapper<EntityNotFoundExcep
     @Override
     public Response toResponse(EntityNotFoundException ex) {
 
+        Metrics.exceptionMapped(getClass(), ex);
+
         GenericErrorMessage e = new GenericErrorMessage();
         e.setCode(Status.NOT_FOUND.getStatusCode());
         e.setMessage(ex.getMessage());
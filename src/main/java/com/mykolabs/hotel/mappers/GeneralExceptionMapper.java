@@ -1,6 +1,7 @@
 package com.mykolabs.hotel.mappers;
 
 import com.mykolabs.hotel.exceptions.GenericErrorMessage;
+import com.mykolabs.hotel.metrics.Metrics;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.ext.ExceptionMapper;
@@ -16,6 +17,8 @@ public class GeneralExceptionMapper implements ExceptionMapper<Exception> {
     @Override
     public Response toResponse(Exception exception) {
 
+        Metrics.exceptionMapped(getClass(), exception);
+
         GenericErrorMessage e = new GenericErrorMessage();
         e.setMessage(exception.getMessage());
         e.setCode(Status.UNAUTHORIZED.getStatusCode());
@@ -0,0 +1,29 @@
+package com.mykolabs.hotel.mappers;
+
+import com.mykolabs.hotel.exceptions.GenericErrorMessage;
+import com.mykolabs.hotel.exceptions.RoomNotAvailableException;
+import com.mykolabs.hotel.metrics.Metrics;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+@Provider
+public class RoomNotAvailableMapper implements ExceptionMapper<RoomNotAvailableException> {
+
+    @Override
+    public Response toResponse(RoomNotAvailableException ex) {
+
+        Metrics.exceptionMapped(getClass(), ex);
+
+        GenericErrorMessage e = new GenericErrorMessage();
+        e.setCode(Status.CONFLICT.getStatusCode());
+        e.setMessage(ex.getMessage());
+
+        return Response
+                .status(Status.CONFLICT)
+                .type("application/json")
+                .entity(e)
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.mykolabs.hotel.metrics;
+
+/**
+ * Names of the application metrics and helpers to record them.
+ *
+ * @author nikprixmar
+ */
+public final class Metrics {
+
+    public static final String HTTP_REQUESTS = "hotel_http_requests_total";
+    public static final String HTTP_REQUEST_DURATION = "hotel_http_request_duration_seconds";
+    public static final String MAPPED_EXCEPTIONS = "hotel_mapped_exceptions_total";
+    public static final String DB_QUERY_DURATION = "hotel_db_query_duration_seconds";
+    public static final String DB_POOL_WAIT = "hotel_db_pool_wait_seconds";
+    public static final String PAYLOAD_CACHE = "hotel_payload_cache_requests_total";
+
+    static {
+        MetricsRegistry.describe(HTTP_REQUESTS, "Handled requests by resource method and status.");
+        MetricsRegistry.describe(HTTP_REQUEST_DURATION, "Request latency by resource method, filters included.");
+        MetricsRegistry.describe(MAPPED_EXCEPTIONS, "Exceptions turned into responses by exception mapper.");
+        MetricsRegistry.describe(DB_QUERY_DURATION, "DAO method latency, connection borrowing included.");
+        MetricsRegistry.describe(DB_POOL_WAIT, "Time spent waiting for a pooled DB connection.");
+        MetricsRegistry.describe(PAYLOAD_CACHE, "Serialized list payload lookups by result.");
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Counts an exception handled by the mapper.
+     *
+     * @param mapper
+     * @param exception
+     */
+    public static void exceptionMapped(Class<?> mapper, Throwable exception) {
+        MetricsRegistry.counter(MAPPED_EXCEPTIONS,
+                MetricsRegistry.label("mapper", mapper.getSimpleName()) + ","
+                + MetricsRegistry.label("exception", exception.getClass().getSimpleName()))
+                .increment();
+    }
+
+    /**
+     * Records time spent waiting for a pooled connection.
+     *
+     * @param nanos
+     */
+    public static void poolWait(long nanos) {
+        MetricsRegistry.histogram(DB_POOL_WAIT, "").recordNanos(nanos);
+    }
+
+    /**
+     * Counts a serialized payload cache lookup.
+     *
+     * @param hit
+     */
+    public static void payloadCache(boolean hit) {
+        MetricsRegistry.counter(PAYLOAD_CACHE, MetricsRegistry.label("result", hit ? "hit" : "miss")).increment();
+    }
+}
@@ -0,0 +1,66 @@
+package com.mykolabs.hotel.metrics;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import javax.annotation.Priority;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Records latency and count of every request per matched resource method.
+ * Runs before all other request filters (authentication included) and after
+ * all other response filters. Streamed response bodies are written after
+ * this filter, so their transfer time is not included.
+ *
+ * @author nikprixmar
+ */
+@Provider
+@Priority(100)
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String START_PROPERTY = MetricsFilter.class.getName() + ".start";
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        requestContext.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
+            throws IOException {
+
+        Object start = requestContext.getProperty(START_PROPERTY);
+        String resource = resourceName();
+
+        MetricsRegistry.counter(Metrics.HTTP_REQUESTS,
+                MetricsRegistry.label("resource", resource) + ","
+                + MetricsRegistry.label("method", requestContext.getMethod()) + ","
+                + MetricsRegistry.label("status", Integer.toString(responseContext.getStatus())))
+                .increment();
+
+        if (start instanceof Long) {
+            MetricsRegistry.histogram(Metrics.HTTP_REQUEST_DURATION, MetricsRegistry.label("resource", resource))
+                    .recordNanos(System.nanoTime() - (Long) start);
+        }
+    }
+
+    /**
+     * Matched resource class and method, "unmatched" for 404s and requests
+     * aborted before matching.
+     */
+    private String resourceName() {
+        Method method = resourceInfo == null ? null : resourceInfo.getResourceMethod();
+        if (method == null) {
+            return "unmatched";
+        }
+        return resourceInfo.getResourceClass().getSimpleName() + "." + method.getName();
+    }
+}
@@ -0,0 +1,157 @@
+package com.mykolabs.hotel.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Application wide registry of counters, gauges and latency histograms.
+ * Metrics are identified by name plus a Prometheus label set, e.g.
+ * {@code resource="RoomResource.getRoom"}, and rendered in the Prometheus
+ * text exposition format.
+ *
+ * @author nikprixmar
+ */
+public final class MetricsRegistry {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Supplier<Number>> gauges = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, String> help = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Returns the counter, creating it on first use.
+     *
+     * @param name
+     * @param labels Prometheus label set without braces, may be empty
+     * @return
+     */
+    public static LongAdder counter(String name, String labels) {
+        return counters.computeIfAbsent(name, n -> new ConcurrentHashMap<>())
+                .computeIfAbsent(labels, l -> new LongAdder());
+    }
+
+    /**
+     * Returns the latency histogram, creating it on first use. Exposed in
+     * seconds.
+     *
+     * @param name
+     * @param labels Prometheus label set without braces, may be empty
+     * @return
+     */
+    public static LatencyHistogram histogram(String name, String labels) {
+        return histograms.computeIfAbsent(name, n -> new ConcurrentHashMap<>())
+                .computeIfAbsent(labels, l -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a gauge read on every scrape. Replaces the gauge with the same
+     * name.
+     *
+     * @param name
+     * @param value
+     */
+    public static void gauge(String name, Supplier<Number> value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Sets the HELP text shown for the metric.
+     *
+     * @param name
+     * @param text
+     */
+    public static void describe(String name, String text) {
+        help.put(name, text);
+    }
+
+    /**
+     * Builds a single label pair, escaping the value.
+     *
+     * @param name
+     * @param value
+     * @return
+     */
+    public static String label(String name, String value) {
+        String escaped = value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return name + "=\"" + escaped + "\"";
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text format (version 0.0.4).
+     *
+     * @param out
+     * @throws IOException
+     */
+    public static void writePrometheus(Writer out) throws IOException {
+        for (Map.Entry<String, ConcurrentMap<String, LongAdder>> metric : new TreeMap<>(counters).entrySet()) {
+            writeHeader(out, metric.getKey(), "counter");
+            for (Map.Entry<String, LongAdder> series : new TreeMap<>(metric.getValue()).entrySet()) {
+                writeSample(out, metric.getKey(), series.getKey(), null, Long.toString(series.getValue().sum()));
+            }
+        }
+
+        for (Map.Entry<String, Supplier<Number>> gauge : new TreeMap<>(gauges).entrySet()) {
+            writeHeader(out, gauge.getKey(), "gauge");
+            writeSample(out, gauge.getKey(), "", null, String.valueOf(gauge.getValue().get()));
+        }
+
+        for (Map.Entry<String, ConcurrentMap<String, LatencyHistogram>> metric : new TreeMap<>(histograms).entrySet()) {
+            String name = metric.getKey();
+            writeHeader(out, name, "summary");
+            for (Map.Entry<String, LatencyHistogram> series : new TreeMap<>(metric.getValue()).entrySet()) {
+                String labels = series.getKey();
+                LatencyHistogram histogram = series.getValue();
+                for (double quantile : QUANTILES) {
+                    writeSample(out, name, labels, label("quantile", Double.toString(quantile)),
+                            seconds(histogram.getValueAtPercentile(quantile * 100)));
+                }
+                writeSample(out, name + "_sum", labels, null, seconds(histogram.getSum()));
+                writeSample(out, name + "_count", labels, null, Long.toString(histogram.getCount()));
+            }
+
+            writeHeader(out, name + "_max", "gauge");
+            for (Map.Entry<String, LatencyHistogram> series : new TreeMap<>(metric.getValue()).entrySet()) {
+                writeSample(out, name + "_max", series.getKey(), null, seconds(series.getValue().getMax()));
+            }
+        }
+    }
+
+    private static void writeHeader(Writer out, String name, String type) throws IOException {
+        String text = help.get(name);
+        if (text != null) {
+            out.write("# HELP " + name + " " + text + "\n");
+        }
+        out.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private static void writeSample(Writer out, String name, String labels, String extraLabel, String value)
+            throws IOException {
+        out.write(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            out.write('{');
+            out.write(labels);
+            if (extraLabel != null) {
+                out.write(labels.isEmpty() ? extraLabel : "," + extraLabel);
+            }
+            out.write('}');
+        }
+        out.write(' ');
+        out.write(value);
+        out.write('\n');
+    }
+
+    private static String seconds(long micros) {
+        return Double.toString(micros / 1_000_000.0);
+    }
+}
@@ -0,0 +1,38 @@
+package com.mykolabs.hotel.metrics;
+
+/**
+ * Times a DAO method. Meant to be the first resource of the DAO's
+ * try-with-resources block, so borrowing the connection is included:
+ * <pre>
+ * try (QueryTimer timer = QueryTimer.start("RoomDAO.getRoom");
+ *         Connection connection = ConnectionHelper.getConnection(); ...) {
+ * </pre>
+ *
+ * @author nikprixmar
+ */
+public final class QueryTimer implements AutoCloseable {
+
+    private final String query;
+    private final long start;
+
+    private QueryTimer(String query) {
+        this.query = query;
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Starts timing the DAO method.
+     *
+     * @param query DAO class and method, e.g. "RoomDAO.getRoom"
+     * @return
+     */
+    public static QueryTimer start(String query) {
+        return new QueryTimer(query);
+    }
+
+    @Override
+    public void close() {
+        MetricsRegistry.histogram(Metrics.DB_QUERY_DURATION, MetricsRegistry.label("query", query))
+                .recordNanos(System.nanoTime() - start);
+    }
+}
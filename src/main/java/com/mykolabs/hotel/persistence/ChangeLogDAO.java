@@ -0,0 +1,188 @@
+package com.mykolabs.hotel.persistence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.mykolabs.hotel.beansLists.Change;
+import com.mykolabs.hotel.json.JsonSupport;
+import com.mykolabs.hotel.metrics.QueryTimer;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import com.mykolabs.hotel.util.ConnectionHelper;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change log (outbox) of reservation and payment writes. Entries are
+ * appended by the DAOs on the connection of the write, before it commits, so
+ * a change is logged if and only if the write happened.
+ *
+ * CHANGE_IDs are AUTO_INCREMENT, so logged writes don't wait on each other,
+ * but ids can commit out of order and rolled back writes leave gaps.
+ * getChanges() therefore stops at a missing id until the change after it is
+ * CHANGE_LOG_SETTLE_SECONDS old; a missing id that old is taken as rolled
+ * back. DAOs append as the last statements before the commit, which keeps
+ * the time an id is in flight well below that.
+ *
+ * @author nikprixmar
+ */
+public class ChangeLogDAO {
+
+    /* identifies entries written by this JVM, e.g. to skip own changes when tailing */
+    public static final String ORIGIN = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    private static final int DEFAULT_SETTLE_SECONDS = 10;
+
+    private static final String LAST_ID_QUERY = "SELECT MAX(CHANGE_ID) FROM CHANGE_LOG";
+    private static final String INSERT_QUERY = "INSERT INTO CHANGE_LOG "
+            + "(ENTITY, ENTITY_ID, OPERATION, ORIGIN, PAYLOAD, CHANGED_AT) "
+            + "VALUES (?,?,?,?,?,CURRENT_TIMESTAMP)";
+
+    public ChangeLogDAO() {
+        super();
+    }
+
+    /**
+     * Appends one change, in the transaction of the passed connection.
+     *
+     * @param connection connection of the write, not in auto-commit mode
+     * @param entity
+     * @param entityId
+     * @param operation
+     * @param payload written entity, serialized with the PAYMENT_CHANGE view;
+     * null for deletes
+     * @return CHANGE_ID of the entry
+     * @throws SQLException
+     */
+    static long append(Connection connection, Change.Entity entity, int entityId,
+            Change.Operation operation, Object payload) throws SQLException {
+        try (PreparedStatement pStatement = connection.prepareStatement(INSERT_QUERY, Statement.RETURN_GENERATED_KEYS)) {
+            bind(pStatement, entity, entityId, operation, payload);
+            pStatement.executeUpdate();
+
+            try (ResultSet generatedKeys = pStatement.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    return generatedKeys.getLong(1);
+                } else {
+                    throw new SQLException("Creating CHANGE_LOG entry failed, no ID obtained.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends changes of a bulk write with one batch, in the transaction of
+     * the passed connection.
+     *
+     * @param connection connection of the write, not in auto-commit mode
+     * @param entity
+     * @param entityIds
+     * @param operation
+     * @param payloads written entities, in the order of entityIds
+     * @throws SQLException
+     */
+    static void appendAll(Connection connection, Change.Entity entity, int[] entityIds,
+            Change.Operation operation, List<?> payloads) throws SQLException {
+        if (entityIds.length == 0) {
+            return;
+        }
+        try (PreparedStatement pStatement = connection.prepareStatement(INSERT_QUERY)) {
+            for (int i = 0; i < entityIds.length; i++) {
+                bind(pStatement, entity, entityIds[i], operation, payloads.get(i));
+                pStatement.addBatch();
+            }
+            pStatement.executeBatch();
+        }
+    }
+
+    /**
+     * Returns changes after the given CHANGE_ID, oldest first. Stops before a
+     * change that follows a missing id, unless the change is older than
+     * CHANGE_LOG_SETTLE_SECONDS: the missing id may still commit. So a reader
+     * that has seen CHANGE_ID n won't be handed anything before it later.
+     *
+     * @param since last CHANGE_ID seen, 0 for the beginning
+     * @param limit max amount of changes
+     * @return
+     * @throws SQLException
+     */
+    public List<Change> getChanges(long since, int limit) throws SQLException {
+        List<Change> changes = new ArrayList<>();
+        long settleMillis = TimeUnit.SECONDS.toMillis(
+                ConfigurationManager.get().getInt("CHANGE_LOG_SETTLE_SECONDS", DEFAULT_SETTLE_SECONDS));
+
+        // age is measured against the DB clock, CHANGED_AT is set by the DB
+        String selectQuery = "SELECT CHANGE_ID, ENTITY, ENTITY_ID, OPERATION, ORIGIN, PAYLOAD, CHANGED_AT, "
+                + "CURRENT_TIMESTAMP AS READ_AT "
+                + "FROM CHANGE_LOG WHERE CHANGE_ID > ? ORDER BY CHANGE_ID LIMIT ?";
+
+        try (QueryTimer timer = QueryTimer.start("ChangeLogDAO.getChanges");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
+
+            pStatement.setLong(1, since);
+            pStatement.setInt(2, limit);
+
+            try (ResultSet resultSet = pStatement.executeQuery()) {
+                long expected = since + 1;
+                while (resultSet.next()) {
+                    long changeId = resultSet.getLong("CHANGE_ID");
+                    Timestamp changedAt = resultSet.getTimestamp("CHANGED_AT");
+                    if (changeId != expected
+                            && resultSet.getTimestamp("READ_AT").getTime() - changedAt.getTime() < settleMillis) {
+                        // ids before this one are in flight, or rolled back too recently to tell
+                        break;
+                    }
+                    expected = changeId + 1;
+
+                    Change change = new Change();
+                    change.setChangeId(changeId);
+                    change.setEntity(Change.Entity.valueOf(resultSet.getString("ENTITY")));
+                    change.setEntityId(resultSet.getInt("ENTITY_ID"));
+                    change.setOperation(Change.Operation.valueOf(resultSet.getString("OPERATION")));
+                    change.setOrigin(resultSet.getString("ORIGIN"));
+                    change.setPayload(resultSet.getString("PAYLOAD"));
+                    change.setChangedAt(changedAt.toLocalDateTime());
+                    changes.add(change);
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the highest committed CHANGE_ID, 0 if none. Lower ids may still
+     * be in flight.
+     *
+     * @return
+     * @throws SQLException
+     */
+    public long getLastChangeId() throws SQLException {
+        try (QueryTimer timer = QueryTimer.start("ChangeLogDAO.getLastChangeId");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(LAST_ID_QUERY);
+                ResultSet resultSet = pStatement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    private static void bind(PreparedStatement pStatement, Change.Entity entity, int entityId,
+            Change.Operation operation, Object payload) throws SQLException {
+        pStatement.setString(1, entity.name());
+        pStatement.setInt(2, entityId);
+        pStatement.setString(3, operation.name());
+        pStatement.setString(4, ORIGIN);
+        try {
+            // ids and amounts, card details are never logged
+            pStatement.setString(5, payload == null ? null
+                    : JsonSupport.writer(JsonSupport.PAYMENT_CHANGE).writeValueAsString(payload));
+        } catch (JsonProcessingException ex) {
+            throw new SQLException("Unable to serialize change payload", ex);
+        }
+    }
+}
@@ -5,7 +5,13 @@ import com.mykolabs.hotel.beans.Employee;
 import com.mykolabs.hotel.beans.Payment;
 import com.mykolabs.hotel.beans.Reservation;
 import com.mykolabs.hotel.beans.Room;
+import com.mykolabs.hotel.cache.ArrivalsIndex;
+import com.mykolabs.hotel.cache.CustomerSearchIndex;
+import com.mykolabs.hotel.cache.EntityVersions;
+import com.mykolabs.hotel.metrics.QueryTimer;
+import com.mykolabs.hotel.util.ConfigurationManager;
 import com.mykolabs.hotel.util.ConnectionHelper;
+import java.io.IOException;
 import com.mysql.jdbc.Statement;
 import java.net.URL;
 import java.sql.Connection;
@@ -15,7 +21,9 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -32,6 +40,11 @@ public class CustomerDAO {
 
     private static final Logger log = Logger.getLogger(CustomerDAO.class.getName());
 
+    private static final String CUSTOMER_QUERY = "SELECT CUSTOMER_ID, FIRST_NAME, LAST_NAME, ADDRESS, CITY, STATE, PHONE "
+            + "FROM CUSTOMER ";
+
+    private static final int DEFAULT_STREAM_FETCH_SIZE = 1000;
+
     public CustomerDAO() {
         super();
     }
@@ -57,7 +70,8 @@ public class CustomerDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("CustomerDAO.getAllCustomers");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
@@ -108,7 +122,8 @@ public class CustomerDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("CustomerDAO.getCustomer");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
@@ -132,6 +147,112 @@ public class CustomerDAO {
         return customerData;
     }
 
+    /**
+     * Returns customers by id, in the order of the ids. Ids without a
+     * customer are skipped.
+     *
+     * @param customerIds
+     * @return
+     * @throws java.sql.SQLException
+     */
+    public List<Customer> getCustomers(List<Integer> customerIds) throws SQLException {
+
+        if (customerIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        StringBuilder selectQuery = new StringBuilder(CUSTOMER_QUERY).append("WHERE CUSTOMER_ID IN (");
+        for (int i = 0; i < customerIds.size(); i++) {
+            selectQuery.append(i == 0 ? "?" : ",?");
+        }
+        selectQuery.append(")");
+
+        Map<Integer, Customer> byId = new HashMap<>();
+
+        try (QueryTimer timer = QueryTimer.start("CustomerDAO.getCustomers");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(selectQuery.toString());) {
+
+            for (int i = 0; i < customerIds.size(); i++) {
+                pStatement.setInt(i + 1, customerIds.get(i));
+            }
+
+            try (ResultSet resultSet = pStatement.executeQuery();) {
+                while (resultSet.next()) {
+                    Customer customerData = mapCustomer(resultSet);
+                    byId.put(customerData.getCustomerId(), customerData);
+                }
+            }
+        }
+
+        List<Customer> rows = new ArrayList<>(byId.size());
+        for (Integer customerId : customerIds) {
+            Customer customerData = byId.get(customerId);
+            if (customerData != null) {
+                rows.add(customerData);
+            }
+        }
+        log.log(Level.FINE, "Amount of retrieved customers: {0}", rows.size());
+        return rows;
+    }
+
+    /**
+     * Streams all customers, by id, handing each row to the handler as soon
+     * as it is read. The driver fetches CUSTOMER_STREAM_FETCH_SIZE rows per
+     * round trip.
+     *
+     * @param handler
+     * @return amount of streamed rows
+     * @throws java.sql.SQLException
+     * @throws java.io.IOException if the handler failed, stops streaming
+     */
+    public int streamCustomers(ResultRowHandler<Customer> handler) throws SQLException, IOException {
+
+        int count = 0;
+
+        String selectQuery = CUSTOMER_QUERY + "ORDER BY CUSTOMER_ID";
+
+        try (QueryTimer timer = QueryTimer.start("CustomerDAO.streamCustomers");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(selectQuery,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);) {
+
+            pStatement.setFetchSize(ConfigurationManager.get()
+                    .getInt("CUSTOMER_STREAM_FETCH_SIZE", DEFAULT_STREAM_FETCH_SIZE));
+
+            try (ResultSet resultSet = pStatement.executeQuery();) {
+                while (resultSet.next()) {
+                    handler.handle(mapCustomer(resultSet));
+                    count++;
+                }
+            }
+        }
+        log.log(Level.INFO, "Amount of streamed customers: {0}", count);
+        return count;
+    }
+
+    /**
+     * Maps CUSTOMER columns of the current row, also used for joined
+     * queries.
+     *
+     * @param resultSet
+     * @return
+     * @throws SQLException
+     */
+    static Customer mapCustomer(ResultSet resultSet) throws SQLException {
+        Customer customerData = new Customer();
+
+        customerData.setCustomerId(resultSet.getInt("CUSTOMER_ID"));
+        customerData.setFirstName(resultSet.getString("FIRST_NAME"));
+        customerData.setLastName(resultSet.getString("LAST_NAME"));
+        customerData.setAddress(resultSet.getString("ADDRESS"));
+        customerData.setCity(resultSet.getString("CITY"));
+        customerData.setState(resultSet.getString("STATE"));
+        customerData.setPhone(resultSet.getString("PHONE"));
+
+        return customerData;
+    }
+
     /**
      * Updates single customer in the CUSTOMER table.
      *
@@ -144,7 +265,7 @@ public class CustomerDAO {
 
         String updateQuery = "UPDATE CUSTOMER "
                 + "SET CUSTOMER_ID=?, FIRST_NAME=?, LAST_NAME=?, "
-                + "ADDRESS=?, CITY=?, STATE=? "
+                + "ADDRESS=?, CITY=?, STATE=?, "
                 + "PHONE=? "
                 + "WHERE CUSTOMER_ID=?";
 
@@ -152,7 +273,8 @@ public class CustomerDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("CustomerDAO.updateCustomer");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(updateQuery);) {
 
@@ -168,6 +290,11 @@ public class CustomerDAO {
 
             result = pStatement.executeUpdate();
         }
+        if (result == 1) {
+            ArrivalsIndex.getInstance().updateGuest(customer);
+            CustomerSearchIndex.getInstance().put(customer);
+            EntityVersions.bump(EntityVersions.Kind.CUSTOMER, customer.getCustomerId());
+        }
         log.log(Level.INFO, "Updated customer with customerID: {0}", customer.getCustomerId());
         return result;
     }
@@ -190,7 +317,8 @@ public class CustomerDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("CustomerDAO.addCustomer");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(createQuery, Statement.RETURN_GENERATED_KEYS);) {
 
@@ -212,6 +340,9 @@ public class CustomerDAO {
             }
 
         }
+        ArrivalsIndex.getInstance().updateGuest(customer);
+        CustomerSearchIndex.getInstance().put(customer);
+        EntityVersions.bump(EntityVersions.Kind.CUSTOMER, customer.getCustomerId());
         log.log(Level.INFO, "Created customer with customerID: {0}", customer.getCustomerId());
         return customer.getCustomerId();
     }
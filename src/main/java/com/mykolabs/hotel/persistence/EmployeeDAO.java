@@ -1,6 +1,8 @@
 package com.mykolabs.hotel.persistence;
 
+import com.mykolabs.hotel.authentication.TokenCache;
 import com.mykolabs.hotel.beans.Employee;
+import com.mykolabs.hotel.metrics.QueryTimer;
 import com.mykolabs.hotel.util.ConnectionHelper;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -43,7 +45,8 @@ public class EmployeeDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("EmployeeDAO.getEmployeeByUsername");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
@@ -84,7 +87,8 @@ public class EmployeeDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("EmployeeDAO.getEmployeeById");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
@@ -125,7 +129,8 @@ public class EmployeeDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("EmployeeDAO.setToken");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(updateQuery);) {
 
@@ -136,6 +141,10 @@ public class EmployeeDAO {
 
         }
         log.log(Level.INFO, "Employee token set query result: {0}", result);
+
+        // previously issued tokens of this employee must be verified again
+        TokenCache.getInstance().invalidate(username);
+
         return result;
     }
 }
@@ -5,6 +5,9 @@ import com.mykolabs.hotel.beans.Employee;
 import com.mykolabs.hotel.beans.Payment;
 import com.mykolabs.hotel.beans.Reservation;
 import com.mykolabs.hotel.beans.Room;
+import com.mykolabs.hotel.beansLists.Change;
+import com.mykolabs.hotel.cache.OccupancyRollup;
+import com.mykolabs.hotel.metrics.QueryTimer;
 import com.mykolabs.hotel.util.ConnectionHelper;
 import com.mysql.jdbc.Statement;
 import java.math.BigDecimal;
@@ -16,8 +19,9 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Properties;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -59,7 +63,8 @@ public class PaymentDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("PaymentDAO.getAllPayments");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
@@ -110,7 +115,6 @@ public class PaymentDAO {
      */
     public Payment getPayment(int paymentID) throws SQLException {
 
-        Properties props = ConnectionHelper.getProperties();
         Payment paymentData = new Payment();
 
         String selectQuery = "SELECT PAYMENT_ID, CARD_TYPE, CARD_NUMBER, CARD_EXPIRATION, PAYMENT_AMOUNT, DESCRIPTION, "
@@ -122,7 +126,8 @@ public class PaymentDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("PaymentDAO.getPayment");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
@@ -165,7 +170,6 @@ public class PaymentDAO {
      */
     public Payment getPaymentByReservationId(int reservationId) throws SQLException {
 
-        Properties props = ConnectionHelper.getProperties();
         Payment paymentData = new Payment();
 
         String selectQuery = "SELECT PAYMENT_ID, CARD_TYPE, CARD_NUMBER, CARD_EXPIRATION, PAYMENT_AMOUNT, DESCRIPTION, "
@@ -177,7 +181,8 @@ public class PaymentDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("PaymentDAO.getPaymentByReservationId");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
@@ -211,6 +216,97 @@ public class PaymentDAO {
         return paymentData;
     }
 
+    /**
+     * Returns payments of the given reservations with one query, grouped in
+     * the order of the ids. Reservations without a payment are skipped.
+     *
+     * @param reservationIds
+     * @return
+     * @throws java.sql.SQLException
+     */
+    public List<Payment> getPaymentsByReservationIds(List<Integer> reservationIds) throws SQLException {
+
+        if (reservationIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        StringBuilder selectQuery = new StringBuilder("SELECT PAYMENT_ID, CARD_TYPE, CARD_NUMBER, CARD_EXPIRATION, "
+                + "PAYMENT_AMOUNT, DESCRIPTION, CUSTOMER_ID, RESERVATION_ID "
+                + "FROM PAYMENT "
+                + "WHERE RESERVATION_ID IN (");
+        for (int i = 0; i < reservationIds.size(); i++) {
+            selectQuery.append(i == 0 ? "?" : ",?");
+        }
+        selectQuery.append(") ORDER BY PAYMENT_ID");
+
+        Map<Integer, List<Payment>> byReservation = new HashMap<>();
+
+        try (QueryTimer timer = QueryTimer.start("PaymentDAO.getPaymentsByReservationIds");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(selectQuery.toString());) {
+
+            for (int i = 0; i < reservationIds.size(); i++) {
+                pStatement.setInt(i + 1, reservationIds.get(i));
+            }
+
+            try (ResultSet resultSet = pStatement.executeQuery();) {
+                while (resultSet.next()) {
+                    Payment paymentData = new Payment();
+                    paymentData.setPaymentId(resultSet.getInt("PAYMENT_ID"));
+                    paymentData.setCardType(resultSet.getString("CARD_TYPE"));
+                    paymentData.setCardNumber(resultSet.getString("CARD_NUMBER"));
+                    paymentData.setCardExpiration(resultSet.getString("CARD_EXPIRATION"));
+                    paymentData.setPaymentAmount(resultSet.getBigDecimal("PAYMENT_AMOUNT"));
+                    paymentData.setDescription(resultSet.getString("DESCRIPTION"));
+                    paymentData.setCustomerId(resultSet.getInt("CUSTOMER_ID"));
+                    paymentData.setReservationId(resultSet.getInt("RESERVATION_ID"));
+
+                    byReservation.computeIfAbsent(paymentData.getReservationId(), k -> new ArrayList<>())
+                            .add(paymentData);
+                }
+            }
+        }
+
+        List<Payment> rows = new ArrayList<>();
+        for (Integer reservationId : reservationIds) {
+            List<Payment> payments = byReservation.get(reservationId);
+            if (payments != null) {
+                rows.addAll(payments);
+            }
+        }
+        log.log(Level.FINE, "Amount of retrieved payments: {0}", rows.size());
+        return rows;
+    }
+
+    /**
+     * Returns id, reservation id and amount of all payments, used to load
+     * the OccupancyRollup. Card details are not read.
+     *
+     * @return
+     * @throws java.sql.SQLException
+     */
+    public List<Payment> getAllPaymentAmounts() throws SQLException {
+        List<Payment> rows = new ArrayList<>();
+
+        String selectQuery = "SELECT PAYMENT_ID, RESERVATION_ID, PAYMENT_AMOUNT FROM PAYMENT";
+
+        try (QueryTimer timer = QueryTimer.start("PaymentDAO.getAllPaymentAmounts");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(selectQuery);
+                ResultSet resultSet = pStatement.executeQuery()) {
+
+            while (resultSet.next()) {
+                Payment paymentData = new Payment();
+                paymentData.setPaymentId(resultSet.getInt("PAYMENT_ID"));
+                paymentData.setReservationId(resultSet.getInt("RESERVATION_ID"));
+                paymentData.setPaymentAmount(resultSet.getBigDecimal("PAYMENT_AMOUNT"));
+                rows.add(paymentData);
+            }
+        }
+        log.log(Level.INFO, "Amount of retrieved payment amounts: {0}", rows.size());
+        return rows;
+    }
+
     /**
      * Updates single payment in the PAYMENT table.
      *
@@ -231,7 +327,8 @@ public class PaymentDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("PaymentDAO.updatePayment");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(updateQuery);) {
 
@@ -263,33 +360,54 @@ public class PaymentDAO {
      * @throws java.sql.SQLException
      */
     public int addPayment(Payment payment) throws SQLException {
-        int result = 0;
 
+        // Using Java 1.7 try with resources
+        // This ensures that the objects in the parenthesis () will be closed
+        // when block ends. In this case the Connection will be closed.
+        try (QueryTimer timer = QueryTimer.start("PaymentDAO.addPayment");
+                Connection connection = ConnectionHelper.getConnection();) {
+
+            connection.setAutoCommit(false);
+            try {
+                insertPayment(connection, payment);
+                ChangeLogDAO.append(connection, Change.Entity.PAYMENT, payment.getPaymentId(),
+                        Change.Operation.CREATED, payment);
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                payment.setPaymentId(null);
+                throw ex;
+            }
+        }
+        OccupancyRollup.getInstance().addPayment(payment);
+        log.log(Level.INFO, "Created payment with paymentID: {0}", payment.getPaymentId());
+        return payment.getPaymentId();
+    }
+
+    /**
+     * Inserts a payment on the passed connection, in its transaction, and
+     * sets the generated id. Used by addPayment() and by writes spanning
+     * several tables.
+     *
+     * @param connection
+     * @param payment
+     * @throws SQLException
+     */
+    static void insertPayment(Connection connection, Payment payment) throws SQLException {
         String createQuery = "INSERT INTO PAYMENT "
                 + "(CARD_TYPE, CARD_NUMBER, "
                 + "CARD_EXPIRATION, PAYMENT_AMOUNT, DESCRIPTION, CUSTOMER_ID, RESERVATION_ID) "
                 + "VALUES (?,?,?,?,?,?,?)";
 
-        // Using Java 1.7 try with resources
-        // This ensures that the objects in the parenthesis () will be closed
-        // when block ends. In this case the Connection, PreparedStatement and
-        // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
-                // Using PreparedStatements to guard against SQL Injection
-                PreparedStatement pStatement = connection.prepareStatement(createQuery, Statement.RETURN_GENERATED_KEYS);) {
-
+        try (PreparedStatement pStatement = connection.prepareStatement(createQuery, Statement.RETURN_GENERATED_KEYS)) {
             pStatement.setString(1, payment.getCardType());
             pStatement.setString(2, payment.getCardNumber());
             pStatement.setString(3, payment.getCardExpiration());
             pStatement.setBigDecimal(4, payment.getPaymentAmount());
             pStatement.setString(5, payment.getDescription());
-//            pStatement.setInt(6, payment.getCustomerId().getCustomerId());
-//            pStatement.setInt(7, payment.getReservationId().getReservationId());
-
             pStatement.setInt(6, payment.getCustomerId());
             pStatement.setInt(7, payment.getReservationId());
-
-            result = pStatement.executeUpdate();
+            pStatement.executeUpdate();
 
             try (ResultSet generatedKeys = pStatement.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
@@ -298,10 +416,7 @@ public class PaymentDAO {
                     throw new SQLException("Creating PAYMENT failed, no ID obtained.");
                 }
             }
-
         }
-        log.log(Level.INFO, "Created payment with paymentID: {0}", payment.getPaymentId());
-        return payment.getPaymentId();
     }
 
     /**
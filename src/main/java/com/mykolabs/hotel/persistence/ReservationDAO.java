@@ -2,13 +2,28 @@ package com.mykolabs.hotel.persistence;
 
 import com.mykolabs.hotel.beans.Customer;
 import com.mykolabs.hotel.beans.Employee;
+import com.mykolabs.hotel.beans.Payment;
 import com.mykolabs.hotel.beans.Reservation;
 import com.mykolabs.hotel.beans.Room;
 import com.mykolabs.hotel.beans.ReservationSearch;
 import com.mykolabs.hotel.beans.TodayDate;
+import com.mykolabs.hotel.beansLists.Change;
+import com.mykolabs.hotel.beansLists.ReservationDetails;
 import com.mykolabs.hotel.beansLists.TodayReservation;
+import com.mykolabs.hotel.cache.Arrival;
+import com.mykolabs.hotel.cache.ArrivalsIndex;
+import com.mykolabs.hotel.cache.EntityVersions;
+import com.mykolabs.hotel.cache.OccupancyRollup;
+import com.mykolabs.hotel.cache.RoomAvailabilityIndex;
+import com.mykolabs.hotel.events.ReservationEvent;
+import com.mykolabs.hotel.events.ReservationEventBus;
+import com.mykolabs.hotel.exceptions.RoomNotAvailableException;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import com.mykolabs.hotel.metrics.QueryTimer;
 import com.mykolabs.hotel.util.ConnectionHelper;
+import com.mykolabs.hotel.util.ReservationCursor;
 import com.mysql.jdbc.Statement;
+import java.io.IOException;
 import java.net.URL;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -17,13 +32,19 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Properties;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -39,6 +60,19 @@ public class ReservationDAO {
 
     private static final Logger log = Logger.getLogger(ReservationDAO.class.getName());
 
+    private static final int DEFAULT_STREAM_FETCH_SIZE = 500;
+    private static final int DEFAULT_BULK_BATCH_SIZE = 500;
+
+    private static final String RESERVATION_WITH_CUSTOMER_QUERY
+            = "SELECT rs.RESERVATION_ID, cst.FIRST_NAME, cst.LAST_NAME, rs.ROOM_NUMBER, rs.CHECKIN_DATE "
+            + "FROM RESERVATION rs "
+            + "JOIN CUSTOMER cst ON rs.CUSTOMER_ID = cst.CUSTOMER_ID ";
+
+    private static final String RESERVATION_DETAILS_COLUMNS
+            = "SELECT rs.RESERVATION_ID, rs.CHECKIN_DATE, rs.CHECKOUT_DATE, rs.CUSTOMER_ID, rs.ROOM_NUMBER, rs.EMPLOYEE_ID ";
+    private static final String RESERVATION_DETAILS_CUSTOMER_COLUMNS
+            = ", cst.FIRST_NAME, cst.LAST_NAME, cst.ADDRESS, cst.CITY, cst.STATE, cst.PHONE ";
+
     public ReservationDAO() {
         super();
     }
@@ -65,7 +99,8 @@ public class ReservationDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("ReservationDAO.getAllReservations");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
@@ -109,158 +144,342 @@ public class ReservationDAO {
     }
 
     /**
-     * Returns all TODAYs reservations from the RESERVATION table Joined on
-     * Customer table.
+     * Returns stay details (dates and room) of all reservations from the
+     * RESERVATION table. Used to build in-memory indexes.
      *
-     * @param currentDate
      * @return
      * @throws java.sql.SQLException
      */
-    public List<TodayReservation> getAllTodayReservations(TodayDate currentDate) throws SQLException {
-
-        List<TodayReservation> rows = new ArrayList<>();
+    public List<Reservation> getAllReservationStays() throws SQLException {
 
-        log.log(Level.INFO, "=========Provided by Client Date========: {0}", currentDate.getCurrentDate().toString());
+        List<Reservation> rows = new ArrayList<>();
 
-        String selectQuery = "SELECT rs.RESERVATION_ID, cst.FIRST_NAME, cst.LAST_NAME, rs.ROOM_NUMBER, rs.CHECKIN_DATE "
-                + "FROM RESERVATION rs "
-                + "JOIN CUSTOMER cst ON rs.CUSTOMER_ID = cst.CUSTOMER_ID "
-                + "WHERE rs.CHECKIN_DATE BETWEEN ? AND DATE_ADD(?, INTERVAL 24 HOUR)";
+        String selectQuery = "SELECT RESERVATION_ID, CHECKIN_DATE, CHECKOUT_DATE, CUSTOMER_ID, ROOM_NUMBER, EMPLOYEE_ID "
+                + "FROM RESERVATION";
 
         // Using Java 1.7 try with resources
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("ReservationDAO.getAllReservationStays");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
-            pStatement.setDate(1, convertLocalDateTimeToSqlDate(currentDate.getCurrentDate()));
-            pStatement.setDate(2, convertLocalDateTimeToSqlDate(currentDate.getCurrentDate()));
-
             try (ResultSet resultSet = pStatement.executeQuery();) {
                 while (resultSet.next()) {
 
-                    TodayReservation todayReservationData = new TodayReservation();
+                    Reservation reservationsData = new Reservation();
+
+                    reservationsData.setReservationId(resultSet.getInt("RESERVATION_ID"));
+                    reservationsData.setCheckinDate(resultSet.getTimestamp("CHECKIN_DATE").toLocalDateTime());
+                    reservationsData.setCheckoutDate(resultSet.getTimestamp("CHECKOUT_DATE").toLocalDateTime());
+                    reservationsData.setCustomerId(resultSet.getInt("CUSTOMER_ID"));
+                    reservationsData.setRoomNumberId(resultSet.getInt("ROOM_NUMBER"));
+                    reservationsData.setEmployeeId(resultSet.getInt("EMPLOYEE_ID"));
+
+                    rows.add(reservationsData);
+                }
+            }
+        }
+        log.log(Level.INFO, "Amount of retrieved reservation stays: {0}", rows.size());
+        return rows;
+    }
+
+    /**
+     * Returns all TODAYs reservations with guest names. Served from the
+     * in-memory ArrivalsIndex, no DB query once the index is loaded.
+     *
+     * @param currentDate
+     * @return
+     * @throws java.sql.SQLException
+     */
+    public List<TodayReservation> getAllTodayReservations(TodayDate currentDate) throws SQLException {
+
+        log.log(Level.FINE, "=========Provided by Client Date========: {0}", currentDate.getCurrentDate());
+
+        List<TodayReservation> rows = ArrivalsIndex.getInstance().getArrivals(currentDate.getCurrentDate().toLocalDate());
+
+        log.log(Level.FINE, "Amount of retrieved reservations: {0}", rows.size());
+        return rows;
+    }
+
+    /**
+     * Returns all reservations with guest names from the RESERVATION table
+     * Joined on Customer table. Used to build the ArrivalsIndex.
+     *
+     * @return
+     * @throws java.sql.SQLException
+     */
+    public List<Arrival> getAllArrivals() throws SQLException {
+
+        List<Arrival> rows = new ArrayList<>();
 
-                    todayReservationData.setReservationId(resultSet.getInt("RESERVATION_ID"));
-                    todayReservationData.setFirstName(resultSet.getString("FIRST_NAME"));
-                    todayReservationData.setLastName(resultSet.getString("LAST_NAME"));
-                    todayReservationData.setRoomNumber(resultSet.getInt("ROOM_NUMBER"));
-                    todayReservationData.setCheckinDate(resultSet.getTimestamp("CHECKIN_DATE").toLocalDateTime());
+        String selectQuery = "SELECT rs.RESERVATION_ID, rs.CUSTOMER_ID, cst.FIRST_NAME, cst.LAST_NAME, rs.ROOM_NUMBER, rs.CHECKIN_DATE "
+                + "FROM RESERVATION rs "
+                + "JOIN CUSTOMER cst ON rs.CUSTOMER_ID = cst.CUSTOMER_ID";
 
-                    // printing converted date and time to the server logs:
-                    DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
-                    log.log(Level.INFO, "=====Retrieved Checking Date/Time====: {0}", dateFormat.format(resultSet.getDate("CHECKIN_DATE")));
+        try (QueryTimer timer = QueryTimer.start("ReservationDAO.getAllArrivals");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
-                    rows.add(todayReservationData);
+            try (ResultSet resultSet = pStatement.executeQuery();) {
+                while (resultSet.next()) {
+                    rows.add(new Arrival(
+                            resultSet.getInt("RESERVATION_ID"),
+                            resultSet.getInt("CUSTOMER_ID"),
+                            resultSet.getString("FIRST_NAME"),
+                            resultSet.getString("LAST_NAME"),
+                            resultSet.getInt("ROOM_NUMBER"),
+                            resultSet.getTimestamp("CHECKIN_DATE").toLocalDateTime()));
                 }
             }
         }
-        log.log(Level.INFO, "Amount of retrieved reservations: {0}", rows.size());
+        log.log(Level.INFO, "Amount of retrieved arrivals: {0}", rows.size());
         return rows;
     }
 
     /**
      * Returns all reservations JOINED with ROOM/CUSTOMER data from the
-     * RESERVATION/ROOM/CUSTOMER tables, Using 'TodayReservation' class
+     * RESERVATION/ROOM/CUSTOMER tables, Using 'TodayReservation' class.
+     * Materializes the whole table, prefer getReservationsPage() or
+     * streamReservationsWithCustomerData() for large listings.
      *
      * @return
      * @throws java.sql.SQLException
      */
     public List<TodayReservation> getAllReservationsWithCustomerData() throws SQLException {
-        
-        log.log(Level.INFO, "=====Entering getAllReservationsWithCustomerData() ====");
 
         List<TodayReservation> rows = new ArrayList<>();
 
-        String selectQuery = "SELECT rs.RESERVATION_ID, cst.FIRST_NAME, cst.LAST_NAME, rs.ROOM_NUMBER, rs.CHECKIN_DATE "
-                + "FROM RESERVATION rs "
-                + "JOIN CUSTOMER cst ON rs.CUSTOMER_ID = cst.CUSTOMER_ID "
-                + "ORDER BY rs.CHECKIN_DATE DESC";
+        String selectQuery = RESERVATION_WITH_CUSTOMER_QUERY
+                + "ORDER BY rs.CHECKIN_DATE DESC, rs.RESERVATION_ID DESC";
 
         // Using Java 1.7 try with resources
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("ReservationDAO.getAllReservationsWithCustomerData");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
             try (ResultSet resultSet = pStatement.executeQuery();) {
                 while (resultSet.next()) {
+                    rows.add(mapTodayReservation(resultSet));
+                }
+            }
+        }
+        log.log(Level.INFO, "Amount of retrieved reservations: {0}", rows.size());
+        return rows;
+    }
+
+    /**
+     * Returns one page of reservations JOINED with CUSTOMER data, newest
+     * checkin first. Uses keyset pagination: the page starts right after the
+     * cursor position, so the DB seeks on the (CHECKIN_DATE, RESERVATION_ID)
+     * index instead of skipping over all previous rows.
+     *
+     * Returns up to limit + 1 rows, an extra row means there is a next page.
+     *
+     * @param after position of the last row of the previous page, null for
+     * the first page
+     * @param limit
+     * @return
+     * @throws java.sql.SQLException
+     */
+    public List<TodayReservation> getReservationsPage(ReservationCursor after, int limit) throws SQLException {
+
+        List<TodayReservation> rows = new ArrayList<>(limit + 1);
+
+        String selectQuery = RESERVATION_WITH_CUSTOMER_QUERY
+                + (after != null
+                        ? "WHERE rs.CHECKIN_DATE < ? OR (rs.CHECKIN_DATE = ? AND rs.RESERVATION_ID < ?) "
+                        : "")
+                + "ORDER BY rs.CHECKIN_DATE DESC, rs.RESERVATION_ID DESC "
+                + "LIMIT ?";
+
+        try (QueryTimer timer = QueryTimer.start("ReservationDAO.getReservationsPage");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
+
+            int index = 1;
+            if (after != null) {
+                Timestamp checkin = Timestamp.valueOf(after.getCheckinDate());
+                pStatement.setTimestamp(index++, checkin);
+                pStatement.setTimestamp(index++, checkin);
+                pStatement.setInt(index++, after.getReservationId());
+            }
+            pStatement.setInt(index, limit + 1);
+
+            try (ResultSet resultSet = pStatement.executeQuery();) {
+                while (resultSet.next()) {
+                    rows.add(mapTodayReservation(resultSet));
+                }
+            }
+        }
+        log.log(Level.FINE, "Amount of retrieved reservations: {0}", rows.size());
+        return rows;
+    }
+
+    /**
+     * Returns reservations by id, in the order of the ids, with the requested
+     * parts embedded. See getReservationDetailsPage.
+     *
+     * @param reservationIds
+     * @param parts
+     * @return
+     * @throws java.sql.SQLException
+     */
+    public List<ReservationDetails> getReservationDetails(List<Integer> reservationIds,
+            Set<ReservationDetails.Part> parts) throws SQLException {
+
+        if (reservationIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        StringBuilder where = new StringBuilder("WHERE rs.RESERVATION_ID IN (");
+        for (int i = 0; i < reservationIds.size(); i++) {
+            where.append(i == 0 ? "?" : ",?");
+        }
+        where.append(")");
 
-                    TodayReservation todayReservationData = new TodayReservation();
+        Map<Integer, ReservationDetails> byId = new HashMap<>();
 
-                    todayReservationData.setReservationId(resultSet.getInt("RESERVATION_ID"));
-                    todayReservationData.setFirstName(resultSet.getString("FIRST_NAME"));
-                    todayReservationData.setLastName(resultSet.getString("LAST_NAME"));
-                    todayReservationData.setRoomNumber(resultSet.getInt("ROOM_NUMBER"));
-                    todayReservationData.setCheckinDate(resultSet.getTimestamp("CHECKIN_DATE").toLocalDateTime());
+        try (QueryTimer timer = QueryTimer.start("ReservationDAO.getReservationDetails");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(reservationDetailsQuery(parts, where.toString()));) {
 
-                    // printing converted date and time to the server logs:
-//                    DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
-//                    log.log(Level.INFO, "=====Retrieved Checking Date/Time====: {0}", dateFormat.format(resultSet.getDate("CHECKIN_DATE")));
-                    
-//                    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-                    log.log(Level.INFO, "=====Retrieved Checking Date/Time====: {0}", todayReservationData.getCheckinDate().toString());
+            for (int i = 0; i < reservationIds.size(); i++) {
+                pStatement.setInt(i + 1, reservationIds.get(i));
+            }
 
-                    rows.add(todayReservationData);
+            try (ResultSet resultSet = pStatement.executeQuery();) {
+                while (resultSet.next()) {
+                    ReservationDetails details = mapReservationDetails(resultSet, parts);
+                    byId.put(details.getReservationId(), details);
                 }
             }
         }
-        log.log(Level.INFO, "Amount of retrieved reservations: {0}", rows.size());
+
+        List<ReservationDetails> rows = new ArrayList<>(byId.size());
+        for (Integer reservationId : reservationIds) {
+            ReservationDetails details = byId.get(reservationId);
+            if (details != null) {
+                rows.add(details);
+            }
+        }
+        embedDetails(rows, parts);
+        log.log(Level.FINE, "Amount of retrieved reservation details: {0}", rows.size());
         return rows;
     }
 
     /**
-     * Returns all reservations for checkin date using 'TodayReservation' class
+     * Returns one page of reservations, newest checkin first, with the
+     * requested parts embedded. Paged like getReservationsPage, up to limit +
+     * 1 rows are returned but the extra row has no parts embedded.
      *
-     * @param reservationSearch
+     * Reservations and customers come from one joined query, rooms from the
+     * RoomCatalog (or one IN query) and payments from one IN query, instead
+     * of separate lookups per row.
+     *
+     * @param after position of the last row of the previous page, null for
+     * the first page
+     * @param limit
+     * @param parts
      * @return
      * @throws java.sql.SQLException
      */
-    public List<TodayReservation> getReservationsForCheckin(ReservationSearch reservationSearch) throws SQLException {
+    public List<ReservationDetails> getReservationDetailsPage(ReservationCursor after, int limit,
+            Set<ReservationDetails.Part> parts) throws SQLException {
 
-        List<TodayReservation> rows = new ArrayList<>();
+        List<ReservationDetails> rows = new ArrayList<>(limit + 1);
 
-        String selectQuery = "SELECT rs.RESERVATION_ID, cst.FIRST_NAME, cst.LAST_NAME, rs.ROOM_NUMBER, rs.CHECKIN_DATE "
-                + "FROM RESERVATION rs "
-                + "JOIN CUSTOMER cst ON rs.CUSTOMER_ID = cst.CUSTOMER_ID "
-                + "WHERE rs.CHECKIN_DATE BETWEEN ? AND DATE_ADD(?, INTERVAL 24 HOUR) "
-                + "ORDER BY rs.CHECKIN_DATE ASC";
+        String selectQuery = reservationDetailsQuery(parts, (after != null
+                ? "WHERE rs.CHECKIN_DATE < ? OR (rs.CHECKIN_DATE = ? AND rs.RESERVATION_ID < ?) "
+                : "")
+                + "ORDER BY rs.CHECKIN_DATE DESC, rs.RESERVATION_ID DESC "
+                + "LIMIT ?");
 
-        // Using Java 1.7 try with resources
-        // This ensures that the objects in the parenthesis () will be closed
-        // when block ends. In this case the Connection, PreparedStatement and
-        // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
-                // Using PreparedStatements to guard against SQL Injection
+        try (QueryTimer timer = QueryTimer.start("ReservationDAO.getReservationDetailsPage");
+                Connection connection = ConnectionHelper.getConnection();
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
-            pStatement.setDate(1, convertToSqlDate(reservationSearch.getCheckinDate()));
-            pStatement.setDate(2, convertToSqlDate(reservationSearch.getCheckinDate()));
+            int index = 1;
+            if (after != null) {
+                Timestamp checkin = Timestamp.valueOf(after.getCheckinDate());
+                pStatement.setTimestamp(index++, checkin);
+                pStatement.setTimestamp(index++, checkin);
+                pStatement.setInt(index++, after.getReservationId());
+            }
+            pStatement.setInt(index, limit + 1);
 
             try (ResultSet resultSet = pStatement.executeQuery();) {
                 while (resultSet.next()) {
+                    rows.add(mapReservationDetails(resultSet, parts));
+                }
+            }
+        }
+        embedDetails(rows.subList(0, Math.min(limit, rows.size())), parts);
+        log.log(Level.FINE, "Amount of retrieved reservation details: {0}", rows.size());
+        return rows;
+    }
 
-                    TodayReservation todayReservationData = new TodayReservation();
+    /**
+     * Streams all reservations JOINED with CUSTOMER data, newest checkin
+     * first, handing each row to the handler as soon as it is read. The
+     * driver fetches RESERVATION_STREAM_FETCH_SIZE rows per round trip, so
+     * memory use does not grow with the table size.
+     *
+     * The connection stays borrowed until the handler has seen every row.
+     *
+     * @param handler
+     * @return amount of streamed rows
+     * @throws java.sql.SQLException
+     * @throws java.io.IOException if the handler failed, stops streaming
+     */
+    public int streamReservationsWithCustomerData(ResultRowHandler<TodayReservation> handler)
+            throws SQLException, IOException {
+
+        int count = 0;
 
-                    todayReservationData.setReservationId(resultSet.getInt("RESERVATION_ID"));
-                    todayReservationData.setFirstName(resultSet.getString("FIRST_NAME"));
-                    todayReservationData.setLastName(resultSet.getString("LAST_NAME"));
-                    todayReservationData.setRoomNumber(resultSet.getInt("ROOM_NUMBER"));
-                    todayReservationData.setCheckinDate(resultSet.getTimestamp("CHECKIN_DATE").toLocalDateTime());
+        String selectQuery = RESERVATION_WITH_CUSTOMER_QUERY
+                + "ORDER BY rs.CHECKIN_DATE DESC, rs.RESERVATION_ID DESC";
 
-                    // printing converted date and time to the server logs:
-                    DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
-                    log.log(Level.INFO, "=====Retrieved Checking Date/Time====: {0}", dateFormat.format(resultSet.getDate("CHECKIN_DATE")));
+        try (QueryTimer timer = QueryTimer.start("ReservationDAO.streamReservationsWithCustomerData");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(selectQuery,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);) {
 
-                    rows.add(todayReservationData);
+            pStatement.setFetchSize(ConfigurationManager.get()
+                    .getInt("RESERVATION_STREAM_FETCH_SIZE", DEFAULT_STREAM_FETCH_SIZE));
+
+            try (ResultSet resultSet = pStatement.executeQuery();) {
+                while (resultSet.next()) {
+                    handler.handle(mapTodayReservation(resultSet));
+                    count++;
                 }
             }
         }
-        log.log(Level.INFO, "Amount of retrieved reservations: {0}", rows.size());
+        log.log(Level.INFO, "Amount of streamed reservations: {0}", count);
+        return count;
+    }
+
+    /**
+     * Returns all reservations for checkin date using 'TodayReservation'
+     * class, ordered by checkin time. Served from the in-memory
+     * ArrivalsIndex.
+     *
+     * @param reservationSearch
+     * @return
+     * @throws java.sql.SQLException
+     */
+    public List<TodayReservation> getReservationsForCheckin(ReservationSearch reservationSearch) throws SQLException {
+
+        LocalDate checkinDay = convertToSqlDate(reservationSearch.getCheckinDate()).toLocalDate();
+        List<TodayReservation> rows = ArrivalsIndex.getInstance().getArrivals(checkinDay);
+
+        log.log(Level.FINE, "Amount of retrieved reservations: {0}", rows.size());
         return rows;
     }
 
@@ -272,7 +491,6 @@ public class ReservationDAO {
      */
     public Reservation getReservation(int reservationID) throws SQLException {
 
-        Properties props = ConnectionHelper.getProperties();
         Reservation reservationData = new Reservation();
 
         String selectQuery = "SELECT RESERVATION_ID, CHECKIN_DATE, CHECKOUT_DATE, CUSTOMER_ID, ROOM_NUMBER, EMPLOYEE_ID " + "FROM RESERVATION "
@@ -282,7 +500,8 @@ public class ReservationDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("ReservationDAO.getReservation");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
@@ -321,8 +540,10 @@ public class ReservationDAO {
      * @param reservation
      * @return
      * @throws java.sql.SQLException
+     * @throws RoomNotAvailableException if the room is taken on some of the
+     * nights
      */
-    public int updateReservation(Reservation reservation) throws SQLException {
+    public int updateReservation(Reservation reservation) throws SQLException, RoomNotAvailableException {
         int result;
 
         String updateQuery = "UPDATE RESERVATION "
@@ -334,7 +555,9 @@ public class ReservationDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (RoomLocks.Held roomLock = RoomLocks.lock(reservation.getRoomNumberId());
+                QueryTimer timer = QueryTimer.start("ReservationDAO.updateReservation");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(updateQuery);) {
 
@@ -351,9 +574,29 @@ public class ReservationDAO {
 
             pStatement.setInt(7, reservation.getReservationId());
 
-            result = pStatement.executeUpdate();
+            connection.setAutoCommit(false);
+            try {
+                checkRoomsAvailable(connection, Collections.singletonList(reservation));
+                result = pStatement.executeUpdate();
+                if (result == 1) {
+                    ChangeLogDAO.append(connection, Change.Entity.RESERVATION, reservation.getReservationId(),
+                            Change.Operation.UPDATED, reservation);
+                }
+                connection.commit();
+            } catch (SQLException | RoomNotAvailableException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
         }
         log.log(Level.INFO, "Update status: {0}", result);
+
+        if (result == 1) {
+            RoomAvailabilityIndex.getInstance().put(reservation);
+            OccupancyRollup.getInstance().put(reservation);
+            ArrivalsIndex.getInstance().put(reservation);
+            EntityVersions.bump(EntityVersions.Kind.RESERVATION, reservation.getReservationId());
+            ReservationEventBus.getInstance().publish(ReservationEvent.Type.UPDATED, reservation.getReservationId(), reservation);
+        }
         log.log(Level.INFO, "Updated reservation with reservationID: {0}", reservation.getReservationId());
         return result;
     }
@@ -364,8 +607,10 @@ public class ReservationDAO {
      * @param reservation
      * @return
      * @throws java.sql.SQLException
+     * @throws RoomNotAvailableException if the room is taken on some of the
+     * nights
      */
-    public int addReservation(Reservation reservation) throws SQLException {
+    public int addReservation(Reservation reservation) throws SQLException, RoomNotAvailableException {
         int result;
 
         String createQuery = "INSERT INTO RESERVATION "
@@ -377,7 +622,9 @@ public class ReservationDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (RoomLocks.Held roomLock = RoomLocks.lock(reservation.getRoomNumberId());
+                QueryTimer timer = QueryTimer.start("ReservationDAO.addReservation");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(createQuery, Statement.RETURN_GENERATED_KEYS);) {
 
@@ -393,26 +640,196 @@ public class ReservationDAO {
             pStatement.setInt(4, reservation.getRoomNumberId());
             pStatement.setInt(5, reservation.getEmployeeId());
 
-            result = pStatement.executeUpdate();
-
-            try (ResultSet generatedKeys = pStatement.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    reservation.setReservationId(generatedKeys.getInt(1));
-                } else {
-                    throw new SQLException("Creating reservation failed, no ID obtained.");
+            connection.setAutoCommit(false);
+            try {
+                checkRoomsAvailable(connection, Collections.singletonList(reservation));
+                result = pStatement.executeUpdate();
+
+                try (ResultSet generatedKeys = pStatement.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        reservation.setReservationId(generatedKeys.getInt(1));
+                    } else {
+                        throw new SQLException("Creating reservation failed, no ID obtained.");
+                    }
                 }
-            }
 
+                ChangeLogDAO.append(connection, Change.Entity.RESERVATION, reservation.getReservationId(),
+                        Change.Operation.CREATED, reservation);
+                connection.commit();
+            } catch (SQLException | RoomNotAvailableException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
         }
         log.log(Level.INFO, "Create status: {0}", result);
+
+        RoomAvailabilityIndex.getInstance().put(reservation);
+        OccupancyRollup.getInstance().put(reservation);
+        ArrivalsIndex.getInstance().put(reservation);
+        EntityVersions.bump(EntityVersions.Kind.RESERVATION, reservation.getReservationId());
+        ReservationEventBus.getInstance().publish(ReservationEvent.Type.CREATED, reservation.getReservationId(), reservation);
+
         log.log(Level.INFO, "Created reservation with reservationID: {0}", reservation.getReservationId());
 
         return reservation.getReservationId();
     }
 
+    /**
+     * Adds a reservation and its payment in a single transaction, on one
+     * connection. The payment gets the generated RESERVATION_ID, generated
+     * ids are set on both.
+     *
+     * @param reservation
+     * @param payment
+     * @throws java.sql.SQLException
+     * @throws RoomNotAvailableException if the room is taken on some of the
+     * nights
+     */
+    public void addBooking(Reservation reservation, Payment payment) throws SQLException, RoomNotAvailableException {
+
+        String createQuery = "INSERT INTO RESERVATION "
+                + "(CHECKIN_DATE, CHECKOUT_DATE, "
+                + "CUSTOMER_ID, ROOM_NUMBER, EMPLOYEE_ID) "
+                + "VALUES (?,?,?,?,?)";
+
+        try (RoomLocks.Held roomLock = RoomLocks.lock(reservation.getRoomNumberId());
+                QueryTimer timer = QueryTimer.start("ReservationDAO.addBooking");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(createQuery, Statement.RETURN_GENERATED_KEYS);) {
+
+            pStatement.setTimestamp(1, Timestamp.valueOf(reservation.getCheckinDate()));
+            pStatement.setTimestamp(2, Timestamp.valueOf(reservation.getCheckoutDate()));
+            pStatement.setInt(3, reservation.getCustomerId());
+            pStatement.setInt(4, reservation.getRoomNumberId());
+            pStatement.setInt(5, reservation.getEmployeeId());
+
+            connection.setAutoCommit(false);
+            try {
+                checkRoomsAvailable(connection, Collections.singletonList(reservation));
+                pStatement.executeUpdate();
+
+                try (ResultSet generatedKeys = pStatement.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        reservation.setReservationId(generatedKeys.getInt(1));
+                    } else {
+                        throw new SQLException("Creating reservation failed, no ID obtained.");
+                    }
+                }
+
+                payment.setReservationId(reservation.getReservationId());
+                PaymentDAO.insertPayment(connection, payment);
+
+                ChangeLogDAO.append(connection, Change.Entity.RESERVATION, reservation.getReservationId(),
+                        Change.Operation.CREATED, reservation);
+                ChangeLogDAO.append(connection, Change.Entity.PAYMENT, payment.getPaymentId(),
+                        Change.Operation.CREATED, payment);
+                connection.commit();
+            } catch (SQLException | RoomNotAvailableException | RuntimeException ex) {
+                connection.rollback();
+                // ids of rolled back rows must not leak to the caller
+                reservation.setReservationId(null);
+                payment.setReservationId(null);
+                payment.setPaymentId(null);
+                throw ex;
+            }
+        }
+
+        RoomAvailabilityIndex.getInstance().put(reservation);
+        OccupancyRollup.getInstance().put(reservation);
+        OccupancyRollup.getInstance().addPayment(payment);
+        ArrivalsIndex.getInstance().put(reservation);
+        EntityVersions.bump(EntityVersions.Kind.RESERVATION, reservation.getReservationId());
+        ReservationEventBus.getInstance().publish(ReservationEvent.Type.CREATED, reservation.getReservationId(), reservation);
+
+        log.log(Level.INFO, "Created booking, reservationID: {0}, paymentID: {1}",
+                new Object[]{reservation.getReservationId(), payment.getPaymentId()});
+    }
+
+    /**
+     * Adds reservations into the RESERVATION table in a single transaction,
+     * using batched inserts. Either all reservations are added or none.
+     * Generated ids are set on the passed reservations.
+     *
+     * @param reservations
+     * @return generated RESERVATION_IDs, in the order of the reservations
+     * @throws java.sql.SQLException
+     * @throws RoomNotAvailableException if the room is taken on some of the
+     * nights
+     */
+    public int[] addReservations(List<Reservation> reservations) throws SQLException, RoomNotAvailableException {
+        int[] ids = new int[reservations.size()];
+        int batchSize = ConfigurationManager.get().getInt("RESERVATION_BULK_BATCH_SIZE", DEFAULT_BULK_BATCH_SIZE);
+
+        String createQuery = "INSERT INTO RESERVATION "
+                + "(CHECKIN_DATE, CHECKOUT_DATE, "
+                + "CUSTOMER_ID, ROOM_NUMBER, EMPLOYEE_ID) "
+                + "VALUES (?,?,?,?,?)";
+
+        // no RoomLocks: an import spanning many rooms would hold most stripes, stalling
+        // unrelated bookings for the whole batch. The ordered ROOM row locks suffice.
+        try (QueryTimer timer = QueryTimer.start("ReservationDAO.addReservations");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(createQuery, Statement.RETURN_GENERATED_KEYS);) {
+
+            connection.setAutoCommit(false);
+            try {
+                checkRoomsAvailable(connection, reservations);
+                int from = 0;
+                while (from < reservations.size()) {
+                    int to = Math.min(from + batchSize, reservations.size());
+                    for (Reservation reservation : reservations.subList(from, to)) {
+                        pStatement.setTimestamp(1, Timestamp.valueOf(reservation.getCheckinDate()));
+                        pStatement.setTimestamp(2, Timestamp.valueOf(reservation.getCheckoutDate()));
+                        pStatement.setInt(3, reservation.getCustomerId());
+                        pStatement.setInt(4, reservation.getRoomNumberId());
+                        pStatement.setInt(5, reservation.getEmployeeId());
+                        pStatement.addBatch();
+                    }
+                    pStatement.executeBatch();
+
+                    // keys come back in the order the rows were added
+                    int index = from;
+                    try (ResultSet generatedKeys = pStatement.getGeneratedKeys()) {
+                        while (generatedKeys.next() && index < to) {
+                            ids[index++] = generatedKeys.getInt(1);
+                        }
+                    }
+                    if (index != to) {
+                        throw new SQLException("Creating reservations failed, expected " + (to - from)
+                                + " IDs, obtained " + (index - from));
+                    }
+                    from = to;
+                }
+
+                for (int i = 0; i < ids.length; i++) {
+                    reservations.get(i).setReservationId(ids[i]);
+                }
+                ChangeLogDAO.appendAll(connection, Change.Entity.RESERVATION, ids,
+                        Change.Operation.CREATED, reservations);
+                connection.commit();
+            } catch (SQLException | RoomNotAvailableException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        }
+
+        for (int i = 0; i < ids.length; i++) {
+            Reservation reservation = reservations.get(i);
+            RoomAvailabilityIndex.getInstance().put(reservation);
+            OccupancyRollup.getInstance().put(reservation);
+            ArrivalsIndex.getInstance().put(reservation);
+            EntityVersions.bump(EntityVersions.Kind.RESERVATION, ids[i]);
+            ReservationEventBus.getInstance().publish(ReservationEvent.Type.CREATED, ids[i], reservation);
+        }
+        log.log(Level.INFO, "Created reservations in bulk: {0}", ids.length);
+
+        return ids;
+    }
+
     /**
      * This method deletes a single Reservation record based on the criteria of
-     * the primary key field ID value.
+     * the primary key field ID value. Its payments are deleted with it (ON
+     * DELETE CASCADE) and logged as deleted too.
      *
      * @param reservationId
      * @return The number of records deleted, should be 0 or 1
@@ -427,23 +844,228 @@ public class ReservationDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("ReservationDAO.deleteReservation");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(deleteQuery);) {
 
             pStatement.setInt(1, reservationId);
 
-            result = pStatement.executeUpdate();
+            connection.setAutoCommit(false);
+            try {
+                int[] paymentIds = lockPaymentIds(connection, reservationId);
+                result = pStatement.executeUpdate();
+                if (result == 1) {
+                    ChangeLogDAO.appendAll(connection, Change.Entity.PAYMENT, paymentIds,
+                            Change.Operation.DELETED, Collections.nCopies(paymentIds.length, null));
+                    ChangeLogDAO.append(connection, Change.Entity.RESERVATION, reservationId,
+                            Change.Operation.DELETED, null);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
         }
         log.log(Level.INFO, "Create status: {0}", result);
 
         if (result == 1) {
             log.log(Level.INFO, "Removed reservation with reservationID: {0}", reservationId);
+            RoomAvailabilityIndex.getInstance().remove(reservationId);
+            OccupancyRollup.getInstance().remove(reservationId);
+            ArrivalsIndex.getInstance().remove(reservationId);
+            EntityVersions.bump(EntityVersions.Kind.RESERVATION, reservationId);
+            ReservationEventBus.getInstance().publish(ReservationEvent.Type.DELETED, reservationId, null);
         }
 
         return result;
     }
 
+    /**
+     * Locks the reservation row until the transaction ends, so no payment can
+     * be added to it meanwhile, and returns the ids of its payments.
+     */
+    private static int[] lockPaymentIds(Connection connection, int reservationId) throws SQLException {
+        try (PreparedStatement lock = connection.prepareStatement(
+                "SELECT RESERVATION_ID FROM RESERVATION WHERE RESERVATION_ID = ? FOR UPDATE")) {
+            lock.setInt(1, reservationId);
+            lock.executeQuery().close();
+        }
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT PAYMENT_ID FROM PAYMENT WHERE RESERVATION_ID = ? ORDER BY PAYMENT_ID")) {
+            select.setInt(1, reservationId);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getInt(1));
+                }
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Locks the ROOM rows of the reservations until the transaction ends, so
+     * bookings of the same room on other nodes wait, then checks that no
+     * reservation overlaps a stored stay or another one of the list. Nights
+     * are counted like RoomAvailabilityIndex does: [checkin day, checkout
+     * day), at least one.
+     *
+     * @param connection connection of the write, not in auto-commit mode
+     * @param reservations
+     * @throws SQLException
+     * @throws RoomNotAvailableException
+     */
+    private static void checkRoomsAvailable(Connection connection, List<Reservation> reservations)
+            throws SQLException, RoomNotAvailableException {
+
+        String lockQuery = "SELECT ROOM_NUMBER FROM ROOM WHERE ROOM_NUMBER = ? FOR UPDATE";
+        // stays whose nights intersect [from, to)
+        String overlapQuery = "SELECT RESERVATION_ID FROM RESERVATION "
+                + "WHERE ROOM_NUMBER = ? AND RESERVATION_ID <> ? AND CHECKIN_DATE < ? "
+                + "AND (CHECKOUT_DATE >= ? OR CHECKIN_DATE >= ?) LIMIT 1";
+
+        // same order on every node, no deadlocks between bulk bookings
+        int[] roomNumbers = reservations.stream().mapToInt(Reservation::getRoomNumberId).sorted().distinct().toArray();
+        try (PreparedStatement pStatement = connection.prepareStatement(lockQuery)) {
+            for (int roomNumber : roomNumbers) {
+                pStatement.setInt(1, roomNumber);
+                // only the row lock is needed, unknown rooms are left to the foreign key
+                pStatement.executeQuery().close();
+            }
+        }
+
+        try (PreparedStatement pStatement = connection.prepareStatement(overlapQuery)) {
+            for (Reservation reservation : reservations) {
+                LocalDate from = reservation.getCheckinDate().toLocalDate();
+                LocalDate to = nightsEnd(reservation);
+
+                pStatement.setInt(1, reservation.getRoomNumberId());
+                pStatement.setInt(2, reservation.getReservationId() == null ? 0 : reservation.getReservationId());
+                pStatement.setTimestamp(3, Timestamp.valueOf(to.atStartOfDay()));
+                pStatement.setTimestamp(4, Timestamp.valueOf(from.plusDays(1).atStartOfDay()));
+                pStatement.setTimestamp(5, Timestamp.valueOf(from.atStartOfDay()));
+                try (ResultSet resultSet = pStatement.executeQuery()) {
+                    if (resultSet.next()) {
+                        throw new RoomNotAvailableException("Room " + reservation.getRoomNumberId()
+                                + " is already reserved between " + from + " and " + to);
+                    }
+                }
+            }
+        }
+
+        if (reservations.size() > 1) {
+            List<Reservation> ordered = new ArrayList<>(reservations);
+            ordered.sort(Comparator.comparing(Reservation::getRoomNumberId)
+                    .thenComparing(Reservation::getCheckinDate));
+            for (int i = 1; i < ordered.size(); i++) {
+                Reservation previous = ordered.get(i - 1);
+                Reservation current = ordered.get(i);
+                if (previous.getRoomNumberId().equals(current.getRoomNumberId())
+                        && current.getCheckinDate().toLocalDate().isBefore(nightsEnd(previous))) {
+                    throw new RoomNotAvailableException("Room " + current.getRoomNumberId()
+                            + " is booked twice on " + current.getCheckinDate().toLocalDate());
+                }
+            }
+        }
+    }
+
+    /**
+     * Day after the last night of the stay, same-day stays still occupy one
+     * night.
+     */
+    private static LocalDate nightsEnd(Reservation reservation) {
+        LocalDate from = reservation.getCheckinDate().toLocalDate();
+        LocalDate to = reservation.getCheckoutDate().toLocalDate();
+        return to.isAfter(from) ? to : from.plusDays(1);
+    }
+
+    /**
+     * Maps current row of a RESERVATION JOIN CUSTOMER query.
+     *
+     * @param resultSet
+     * @return
+     * @throws SQLException
+     */
+    private static TodayReservation mapTodayReservation(ResultSet resultSet) throws SQLException {
+        TodayReservation todayReservationData = new TodayReservation();
+
+        todayReservationData.setReservationId(resultSet.getInt("RESERVATION_ID"));
+        todayReservationData.setFirstName(resultSet.getString("FIRST_NAME"));
+        todayReservationData.setLastName(resultSet.getString("LAST_NAME"));
+        todayReservationData.setRoomNumber(resultSet.getInt("ROOM_NUMBER"));
+        todayReservationData.setCheckinDate(resultSet.getTimestamp("CHECKIN_DATE").toLocalDateTime());
+
+        return todayReservationData;
+    }
+
+    /**
+     * Builds the details query, joining CUSTOMER only when it is embedded.
+     */
+    private static String reservationDetailsQuery(Set<ReservationDetails.Part> parts, String whereAndOrder) {
+        if (parts.contains(ReservationDetails.Part.CUSTOMER)) {
+            return RESERVATION_DETAILS_COLUMNS + RESERVATION_DETAILS_CUSTOMER_COLUMNS
+                    + "FROM RESERVATION rs "
+                    + "JOIN CUSTOMER cst ON rs.CUSTOMER_ID = cst.CUSTOMER_ID "
+                    + whereAndOrder;
+        }
+        return RESERVATION_DETAILS_COLUMNS + "FROM RESERVATION rs " + whereAndOrder;
+    }
+
+    private static ReservationDetails mapReservationDetails(ResultSet resultSet, Set<ReservationDetails.Part> parts)
+            throws SQLException {
+        ReservationDetails details = new ReservationDetails();
+
+        details.setReservationId(resultSet.getInt("RESERVATION_ID"));
+        details.setCheckinDate(resultSet.getTimestamp("CHECKIN_DATE").toLocalDateTime());
+        details.setCheckoutDate(resultSet.getTimestamp("CHECKOUT_DATE").toLocalDateTime());
+        details.setCustomerId(resultSet.getInt("CUSTOMER_ID"));
+        details.setRoomNumber(resultSet.getInt("ROOM_NUMBER"));
+        details.setEmployeeId(resultSet.getInt("EMPLOYEE_ID"));
+
+        if (parts.contains(ReservationDetails.Part.CUSTOMER)) {
+            details.setCustomer(CustomerDAO.mapCustomer(resultSet));
+        }
+        return details;
+    }
+
+    /**
+     * Embeds rooms and payments of all rows, one batched lookup each.
+     */
+    private static void embedDetails(List<ReservationDetails> rows, Set<ReservationDetails.Part> parts)
+            throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        if (parts.contains(ReservationDetails.Part.ROOM)) {
+            Set<Integer> roomNumbers = new LinkedHashSet<>();
+            for (ReservationDetails details : rows) {
+                roomNumbers.add(details.getRoomNumber());
+            }
+            Map<Integer, Room> rooms = new HashMap<>();
+            for (Room room : new RoomDAO().getRooms(new ArrayList<>(roomNumbers))) {
+                rooms.put(room.getRoomNumber(), room);
+            }
+            for (ReservationDetails details : rows) {
+                details.setRoom(rooms.get(details.getRoomNumber()));
+            }
+        }
+
+        if (parts.contains(ReservationDetails.Part.PAYMENTS)) {
+            List<Integer> reservationIds = new ArrayList<>(rows.size());
+            Map<Integer, ReservationDetails> byId = new HashMap<>();
+            for (ReservationDetails details : rows) {
+                reservationIds.add(details.getReservationId());
+                byId.put(details.getReservationId(), details);
+                details.setPayments(new ArrayList<>());
+            }
+            for (Payment payment : new PaymentDAO().getPaymentsByReservationIds(reservationIds)) {
+                byId.get(payment.getReservationId()).getPayments().add(payment);
+            }
+        }
+    }
+
     /**
      * util DATE to sql DATE converter.
      *
@@ -0,0 +1,15 @@
+package com.mykolabs.hotel.persistence;
+
+import java.io.IOException;
+
+/**
+ * Receives rows of a streamed query one at a time, while the ResultSet is
+ * still open.
+ *
+ * @author nikprixmar
+ * @param <T> mapped row type
+ */
+public interface ResultRowHandler<T> {
+
+    void handle(T row) throws IOException;
+}
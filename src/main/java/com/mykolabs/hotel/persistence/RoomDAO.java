@@ -6,6 +6,13 @@ import com.mykolabs.hotel.beans.Payment;
 import com.mykolabs.hotel.beans.Reservation;
 import com.mykolabs.hotel.beans.Room;
 import com.mykolabs.hotel.beans.RoomSearch;
+import com.mykolabs.hotel.cache.EntityVersions;
+import com.mykolabs.hotel.cache.OccupancyRollup;
+import com.mykolabs.hotel.cache.RoomAvailabilityIndex;
+import com.mykolabs.hotel.cache.RoomCatalog;
+import com.mykolabs.hotel.util.Configuration;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import com.mykolabs.hotel.metrics.QueryTimer;
 import com.mykolabs.hotel.util.ConnectionHelper;
 import com.mysql.jdbc.Statement;
 import java.math.BigDecimal;
@@ -14,15 +21,18 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Properties;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -36,13 +46,27 @@ public class RoomDAO {
     private static final Logger log = Logger.getLogger(RoomDAO.class.getName());
     // very basic URL validation regex
     public static final String URL_REGEX = "^((https?|ftp)://|(www|ftp)\\.){1}";
+    private static final Pattern URL_PATTERN = Pattern.compile(URL_REGEX);
+
+    private final Configuration config;
 
     public RoomDAO() {
+        this(ConfigurationManager.get());
+    }
+
+    /**
+     * Creates DAO bound to the given configuration snapshot.
+     *
+     * @param config
+     */
+    public RoomDAO(Configuration config) {
         super();
+        this.config = config;
     }
 
     /**
-     * Returns all rooms from the ROOM table.
+     * Returns all rooms from the ROOM table. Served from the RoomCatalog
+     * cache, unless the catalog is too large to be cached.
      *
      * @param start
      * @param end
@@ -52,59 +76,89 @@ public class RoomDAO {
      */
     public List<Room> getAllRooms(int start, int end, boolean useLimits) throws SQLException {
 
-        Properties props = ConnectionHelper.getProperties();
+        List<Room> catalog = RoomCatalog.getInstance().getAllRooms();
+        if (catalog != null) {
+            if (!useLimits) {
+                return new ArrayList<>(catalog);
+            }
+            int from = Math.min(Math.max(start, 0), catalog.size());
+            int to = Math.min(from + Math.max(end, 0), catalog.size());
+            return new ArrayList<>(catalog.subList(from, to));
+        }
+
         List<Room> rows = new ArrayList<>();
 
         String selectQuery = "SELECT ROOM_NUMBER, ROOM_PRICE, ROOM_TYPE, IMAGE, DESCRIPTION "
                 + "FROM ROOM "
+                + "ORDER BY ROOM_NUMBER "
                 + "LIMIT ?, ?";
 
         // Using Java 1.7 try with resources
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("RoomDAO.getAllRooms");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
-            if (useLimits) {
-                pStatement.setInt(1, start);
-                pStatement.setInt(2, end);
-            } else {
-                // TODO
-            }
+            pStatement.setInt(1, useLimits ? start : 0);
+            pStatement.setInt(2, useLimits ? end : Integer.MAX_VALUE);
 
             try (ResultSet resultSet = pStatement.executeQuery();) {
+                String imageBaseUrl = config.getImageBaseUrl();
                 while (resultSet.next()) {
+                    rows.add(mapRoom(resultSet, imageBaseUrl));
+                }
+            }
+        }
+        log.log(Level.INFO, "Amount of retrieved rooms: {0}", rows.size());
+        return rows;
+    }
+
+    /**
+     * Returns up to maxRows rooms from the ROOM table, ordered by room number.
+     * Always reads the DB, used to fill the RoomCatalog.
+     *
+     * @param maxRows
+     * @return
+     * @throws java.sql.SQLException
+     */
+    public List<Room> getAllRoomsFromDB(int maxRows) throws SQLException {
 
-                    Room roomData = new Room();
+        List<Room> rows = new ArrayList<>();
 
-                    roomData.setRoomNumber(resultSet.getInt("ROOM_NUMBER"));
-                    roomData.setRoomPrice(resultSet.getBigDecimal("ROOM_PRICE"));
-                    roomData.setRoomType(resultSet.getString("ROOM_TYPE"));
+        String selectQuery = "SELECT ROOM_NUMBER, ROOM_PRICE, ROOM_TYPE, IMAGE, DESCRIPTION "
+                + "FROM ROOM "
+                + "ORDER BY ROOM_NUMBER "
+                + "LIMIT ?";
 
-                    // Validating image URL and if it's partial, adding domain URL
-                    if (isURL(resultSet.getString("IMAGE"))) {
-                        // Image path contains full URL, not adding domain path
-                        roomData.setImage(resultSet.getString("IMAGE"));
-                    } else {
-                        // adding full path to the image path, retrieved from the DB
-                        roomData.setImage(props.getProperty(props.getProperty("IMG_ENVIRONMENT")) + resultSet.getString("IMAGE"));
-                    }
+        // Using Java 1.7 try with resources
+        // This ensures that the objects in the parenthesis () will be closed
+        // when block ends. In this case the Connection, PreparedStatement and
+        // the ResultSet will all be closed.
+        try (QueryTimer timer = QueryTimer.start("RoomDAO.getAllRoomsFromDB");
+                Connection connection = ConnectionHelper.getConnection();
+                // Using PreparedStatements to guard against SQL Injection
+                PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
-                    roomData.setDescription(resultSet.getString("DESCRIPTION"));
+            pStatement.setInt(1, maxRows);
 
-                    rows.add(roomData);
+            try (ResultSet resultSet = pStatement.executeQuery();) {
+                String imageBaseUrl = config.getImageBaseUrl();
+                while (resultSet.next()) {
+                    rows.add(mapRoom(resultSet, imageBaseUrl));
                 }
             }
         }
-        log.log(Level.INFO, "Amount of retrieved rooms: {0}", rows.size());
         return rows;
     }
 
     /**
      * Returns all rooms which are available between two dates and price is
-     * lower and x.
+     * lower and x. Without a price any room price matches. Occupancy is
+     * checked against the in-memory RoomAvailabilityIndex and rooms come from
+     * the RoomCatalog, so no query is needed while the catalog is cached.
      *
      * @param roomSearch
      * @return
@@ -112,57 +166,60 @@ public class RoomDAO {
      */
     public List<Room> getAllAvailableRooms(RoomSearch roomSearch) throws SQLException {
 
-        Properties props = ConnectionHelper.getProperties();
+        RoomAvailabilityIndex availabilityIndex = RoomAvailabilityIndex.getInstance();
+        LocalDate checkin = convertToLocalDate(roomSearch.getCheckinDate());
+        LocalDate checkout = convertToLocalDate(roomSearch.getCheckoutDate());
+        BigDecimal maxPrice = roomSearch.getRoomPrice();
+
+        List<Room> catalog = RoomCatalog.getInstance().getAllRooms();
+        if (catalog == null) {
+            catalog = maxPrice == null ? getAllRooms(0, 0, false) : getAllRoomsByMaxPrice(maxPrice);
+        }
+
+        List<Room> rows = new ArrayList<>();
+        for (Room room : catalog) {
+            if (room.getRoomPrice() != null && (maxPrice == null || room.getRoomPrice().compareTo(maxPrice) <= 0)
+                    && availabilityIndex.isAvailable(room.getRoomNumber(), checkin, checkout)) {
+                rows.add(room);
+            }
+        }
+        log.log(Level.INFO, "Amount of retrieved rooms matching search criteria: {0}", rows.size());
+        return rows;
+    }
+
+    /**
+     * Returns all rooms with price lower or equal to maxPrice.
+     *
+     * @param maxPrice
+     * @return
+     * @throws java.sql.SQLException
+     */
+    private List<Room> getAllRoomsByMaxPrice(BigDecimal maxPrice) throws SQLException {
+
         List<Room> rows = new ArrayList<>();
 
         String selectQuery = "SELECT ROOM_NUMBER, ROOM_PRICE, ROOM_TYPE, IMAGE, DESCRIPTION "
                 + "FROM ROOM "
-                + "WHERE ROOM_NUMBER NOT IN "
-                + "("
-                + "SELECT rm.ROOM_NUMBER "
-                + "FROM RESERVATION rs "
-                + "JOIN ROOM rm ON rs.ROOM_NUMBER = rm.ROOM_NUMBER "
-                + "WHERE CHECKIN_DATE BETWEEN ? AND ?"
-                + ")"
-                + "AND ROOM_PRICE <= ?";
+                + "WHERE ROOM_PRICE <= ?";
 
         // Using Java 1.7 try with resources
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("RoomDAO.getAllRoomsByMaxPrice");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
-                pStatement.setDate(1, convertToSqlDate(roomSearch.getCheckinDate()));
-                pStatement.setDate(2, convertToSqlDate(roomSearch.getCheckoutDate()));
-                pStatement.setBigDecimal(3, roomSearch.getRoomPrice());
+            pStatement.setBigDecimal(1, maxPrice);
 
             try (ResultSet resultSet = pStatement.executeQuery();) {
+                String imageBaseUrl = config.getImageBaseUrl();
                 while (resultSet.next()) {
-
-                    Room roomData = new Room();
-
-                    roomData.setRoomNumber(resultSet.getInt("ROOM_NUMBER"));
-                    roomData.setRoomPrice(resultSet.getBigDecimal("ROOM_PRICE"));
-                    roomData.setRoomType(resultSet.getString("ROOM_TYPE"));
-
-                    // Validating image URL and if it's partial, adding domain URL
-                    if (isURL(resultSet.getString("IMAGE"))) {
-                        // Image path contains full URL, not adding domain path
-                        roomData.setImage(resultSet.getString("IMAGE"));
-                    } else {
-                        // adding full path to the image path, retrieved from the DB
-                        roomData.setImage(props.getProperty(props.getProperty("IMG_ENVIRONMENT")) + resultSet.getString("IMAGE"));
-                    }
-
-                    roomData.setDescription(resultSet.getString("DESCRIPTION"));
-
-                    rows.add(roomData);
+                    rows.add(mapRoom(resultSet, imageBaseUrl));
                 }
             }
         }
-        log.log(Level.INFO, "Amount of retrieved rooms matching search criteria: {0}", rows.size());
         return rows;
     }
 
@@ -175,7 +232,12 @@ public class RoomDAO {
      */
     public Room getRoom(int roomNumber) throws SQLException {
 
-        Properties props = ConnectionHelper.getProperties();
+        RoomCatalog roomCatalog = RoomCatalog.getInstance();
+        if (roomCatalog.isCacheable()) {
+            Room cached = roomCatalog.getRoom(roomNumber);
+            return cached != null ? cached : new Room();
+        }
+
         Room roomData = new Room();
 
         String selectQuery = "SELECT ROOM_NUMBER, ROOM_PRICE, ROOM_TYPE, IMAGE, DESCRIPTION "
@@ -186,35 +248,85 @@ public class RoomDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("RoomDAO.getRoom");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(selectQuery);) {
 
             pStatement.setInt(1, roomNumber);
 
             try (ResultSet resultSet = pStatement.executeQuery();) {
-                while (resultSet.next()) {
+                if (resultSet.next()) {
+                    roomData = mapRoom(resultSet, config.getImageBaseUrl());
+                }
+            }
+        }
+        log.log(Level.INFO, "Retrieved room with roomID: {0}", roomData.getRoomNumber());
+        return roomData;
+    }
+
+    /**
+     * Returns rooms by room number, in the order of the numbers. Served from
+     * the RoomCatalog while it is cached, otherwise with one query. Numbers
+     * without a room are skipped.
+     *
+     * @param roomNumbers
+     * @return
+     * @throws java.sql.SQLException
+     */
+    public List<Room> getRooms(List<Integer> roomNumbers) throws SQLException {
+
+        List<Room> rows = new ArrayList<>(roomNumbers.size());
+        if (roomNumbers.isEmpty()) {
+            return rows;
+        }
+
+        RoomCatalog roomCatalog = RoomCatalog.getInstance();
+        if (roomCatalog.isCacheable()) {
+            for (Integer roomNumber : roomNumbers) {
+                Room cached = roomCatalog.getRoom(roomNumber);
+                if (cached != null) {
+                    rows.add(cached);
+                }
+            }
+            return rows;
+        }
 
-                    roomData.setRoomNumber(resultSet.getInt("ROOM_NUMBER"));
-                    roomData.setRoomPrice(resultSet.getBigDecimal("ROOM_PRICE"));
-                    roomData.setRoomType(resultSet.getString("ROOM_TYPE"));
+        StringBuilder selectQuery = new StringBuilder("SELECT ROOM_NUMBER, ROOM_PRICE, ROOM_TYPE, IMAGE, DESCRIPTION "
+                + "FROM ROOM "
+                + "WHERE ROOM_NUMBER IN (");
+        for (int i = 0; i < roomNumbers.size(); i++) {
+            selectQuery.append(i == 0 ? "?" : ",?");
+        }
+        selectQuery.append(")");
 
-                    // Validating image URL and if it's partial, adding domain URL
-                    if (isURL(resultSet.getString("IMAGE"))) {
-                        // Image path contains full URL, not adding domain path
-                        roomData.setImage(resultSet.getString("IMAGE"));
-                    } else {
-                        // adding full path to the image path, retrieved from the DB
-                        roomData.setImage(props.getProperty(props.getProperty("IMG_ENVIRONMENT")) + resultSet.getString("IMAGE"));
-                    }
+        Map<Integer, Room> byNumber = new HashMap<>();
+        String imageBaseUrl = config.getImageBaseUrl();
 
-                    roomData.setDescription(resultSet.getString("DESCRIPTION"));
+        try (QueryTimer timer = QueryTimer.start("RoomDAO.getRooms");
+                Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement pStatement = connection.prepareStatement(selectQuery.toString());) {
+
+            for (int i = 0; i < roomNumbers.size(); i++) {
+                pStatement.setInt(i + 1, roomNumbers.get(i));
+            }
 
+            try (ResultSet resultSet = pStatement.executeQuery();) {
+                while (resultSet.next()) {
+                    Room roomData = mapRoom(resultSet, imageBaseUrl);
+                    byNumber.put(roomData.getRoomNumber(), roomData);
                 }
             }
         }
-        log.log(Level.INFO, "Retrieved room with roomID: {0}", roomData.getRoomNumber());
-        return roomData;
+
+        for (Integer roomNumber : roomNumbers) {
+            Room roomData = byNumber.get(roomNumber);
+            if (roomData != null) {
+                rows.add(roomData);
+            }
+        }
+        log.log(Level.FINE, "Amount of retrieved rooms: {0}", rows.size());
+        return rows;
     }
 
     /**
@@ -236,7 +348,8 @@ public class RoomDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("RoomDAO.updateRoom");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(updateQuery);) {
 
@@ -250,6 +363,11 @@ public class RoomDAO {
 
             result = pStatement.executeUpdate();
         }
+        RoomCatalog.getInstance().invalidate();
+        OccupancyRollup.getInstance().invalidate();
+        if (result == 1) {
+            EntityVersions.bump(EntityVersions.Kind.ROOM, room.getRoomNumber());
+        }
         log.log(Level.INFO, "Updated room with roomID: {0}", room.getRoomNumber());
         return result;
     }
@@ -272,7 +390,8 @@ public class RoomDAO {
         // This ensures that the objects in the parenthesis () will be closed
         // when block ends. In this case the Connection, PreparedStatement and
         // the ResultSet will all be closed.
-        try (Connection connection = ConnectionHelper.getConnection();
+        try (QueryTimer timer = QueryTimer.start("RoomDAO.addRoom");
+                Connection connection = ConnectionHelper.getConnection();
                 // Using PreparedStatements to guard against SQL Injection
                 PreparedStatement pStatement = connection.prepareStatement(createQuery, Statement.RETURN_GENERATED_KEYS);) {
 
@@ -292,6 +411,9 @@ public class RoomDAO {
             }
 
         }
+        RoomCatalog.getInstance().invalidate();
+        OccupancyRollup.getInstance().invalidate();
+        EntityVersions.bump(EntityVersions.Kind.ROOM, room.getRoomNumber());
         log.log(Level.INFO, "Created room with roomID: {0}", result);
         return result;
     }
@@ -306,6 +428,16 @@ public class RoomDAO {
         return new java.sql.Date(date.getTime());
     }
 
+    /**
+     * util DATE to LocalDate converter, using server's time zone.
+     *
+     * @param date
+     * @return
+     */
+    public LocalDate convertToLocalDate(java.util.Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
     /**
      * Converts string to LocalDateTime object
      *
@@ -320,6 +452,38 @@ public class RoomDAO {
         return localDateTime;
     }
 
+    /**
+     * Maps current ResultSet row to a Room, resolving partial image paths
+     * against the image base URL.
+     *
+     * @param resultSet
+     * @param imageBaseUrl
+     * @return
+     * @throws SQLException
+     */
+    private Room mapRoom(ResultSet resultSet, String imageBaseUrl) throws SQLException {
+
+        Room roomData = new Room();
+
+        roomData.setRoomNumber(resultSet.getInt("ROOM_NUMBER"));
+        roomData.setRoomPrice(resultSet.getBigDecimal("ROOM_PRICE"));
+        roomData.setRoomType(resultSet.getString("ROOM_TYPE"));
+
+        // Validating image URL and if it's partial, adding domain URL
+        String image = resultSet.getString("IMAGE");
+        if (image == null || isURL(image)) {
+            // Image path contains full URL, not adding domain path
+            roomData.setImage(image);
+        } else {
+            // adding full path to the image path, retrieved from the DB
+            roomData.setImage(imageBaseUrl + image);
+        }
+
+        roomData.setDescription(resultSet.getString("DESCRIPTION"));
+
+        return roomData;
+    }
+
     /**
      * URL validation helper method.
      *
@@ -327,10 +491,6 @@ public class RoomDAO {
      * @return
      */
     private boolean isURL(String path) {
-
-        Pattern p = Pattern.compile(URL_REGEX);
-        Matcher m = p.matcher(path);
-
-        return m.find();
+        return URL_PATTERN.matcher(path).find();
     }
 }
@@ -0,0 +1,73 @@
+package com.mykolabs.hotel.resource;
+
+import com.mykolabs.hotel.authentication.Secured;
+import com.mykolabs.hotel.util.Configuration;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import com.mykolabs.hotel.util.ConnectionHelper;
+import com.mykolabs.hotel.util.ConnectionPool;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * REST Web Service exposing operational details of the backend.
+ *
+ * @author nikprixmar
+ */
+@Path("admin")
+public class AdminResource {
+
+    /**
+     * Returns DB connection pool statistics.
+     *
+     * @return
+     */
+    @GET
+    @Secured
+    @Path("/pool")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getPoolStatistics() {
+
+        ConnectionPool pool = ConnectionHelper.getPool();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("minSize", pool.getMinSize());
+        stats.put("maxSize", pool.getMaxSize());
+        stats.put("totalConnections", pool.getTotalConnections());
+        stats.put("activeConnections", pool.getActiveConnections());
+        stats.put("idleConnections", pool.getIdleConnections());
+        stats.put("waitingThreads", pool.getWaitingThreads());
+        stats.put("borrowCount", pool.getBorrowCount());
+        stats.put("timeoutCount", pool.getTimeoutCount());
+        stats.put("createdCount", pool.getCreatedCount());
+        stats.put("evictedCount", pool.getEvictedCount());
+        stats.put("averageWaitMicros", pool.getAverageWaitMicros());
+
+        return stats;
+    }
+
+    /**
+     * Re-reads the DB properties file and swaps the configuration snapshot.
+     * The connection pool is replaced if DB settings changed. A file that
+     * can't be loaded fails the request and the current settings stay.
+     *
+     * @return
+     */
+    @POST
+    @Secured
+    @Path("/config/reload")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> reloadConfiguration() {
+
+        Configuration config = ConfigurationManager.reload();
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("loadedAt", config.getLoadedAt());
+
+        return status;
+    }
+}
@@ -1,9 +1,14 @@
 package com.mykolabs.hotel.resource;
 
 import com.mykolabs.hotel.authentication.AuthenticationFilter;
+import com.mykolabs.hotel.json.FilteredEntityWriter;
+import com.mykolabs.hotel.json.ObjectMapperResolver;
+import com.mykolabs.hotel.json.SerializedPayloadWriter;
 import com.mykolabs.hotel.mappers.AuthenticationExceptionMapper;
 import com.mykolabs.hotel.mappers.EntityNotFoundMapper;
 import com.mykolabs.hotel.mappers.GeneralExceptionMapper;
+import com.mykolabs.hotel.mappers.RoomNotAvailableMapper;
+import com.mykolabs.hotel.metrics.MetricsFilter;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.Set;
@@ -14,6 +19,7 @@ import javax.crypto.SecretKey;
 import javax.ws.rs.core.Application;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 import org.glassfish.jersey.jackson.JacksonFeature;
+import org.glassfish.jersey.media.sse.SseFeature;
 import org.glassfish.jersey.server.ResourceConfig;
 
 /**
@@ -40,14 +46,26 @@ public class ApplicationConfig extends ResourceConfig {
         register(AuthenticationExceptionMapper.class);
         register(GeneralExceptionMapper.class);
         register(EntityNotFoundMapper.class);
+        register(RoomNotAvailableMapper.class);
         register(AuthenticationEndpoint.class);
         register(AuthenticationEndpoint.class);
         register(ReservationsResource.class);
         register(RoomResource.class);
+        register(AdminResource.class);
+        register(ChangesResource.class);
+        register(ReportsResource.class);
+        register(MetricsResource.class);
+        register(MetricsFilter.class);
+        register(SerializedPayloadWriter.class);
         register(CORS.class);
 
-        // turn on Jackson
+        // turn on Jackson, with the shared ObjectMapper
         register(JacksonFeature.class);
+        register(ObjectMapperResolver.class);
+        register(FilteredEntityWriter.class);
+
+        // server-sent events, see ReservationsResource.getReservationEvents
+        register(SseFeature.class);
 
         // defining an AbstractBinder and register it in your JAX-RS application.
         // good read http://stackoverflow.com/a/17133081
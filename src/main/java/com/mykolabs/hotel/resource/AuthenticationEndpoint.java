@@ -1,6 +1,8 @@
 package com.mykolabs.hotel.resource;
 
 import com.mykolabs.hotel.exceptions.GenericErrorMessage;
+import com.mykolabs.hotel.authentication.LoginExecutor;
+import com.mykolabs.hotel.authentication.LoginThrottle;
 import com.mykolabs.hotel.authentication.PassGen;
 import com.mykolabs.hotel.authentication.Token;
 import com.mykolabs.hotel.beans.Employee;
@@ -17,10 +19,13 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.crypto.SecretKey;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 
@@ -41,40 +46,65 @@ public class AuthenticationEndpoint {
     @Context
     SecretKey key;
 
+    /**
+     * Checks employee credentials and issues a token. Attempts are throttled
+     * per username and client IP before any hashing is done; the password
+     * check itself runs on the bounded LoginExecutor.
+     *
+     * @param asyncResponse
+     * @param employee
+     * @param request
+     */
     @POST
     @Produces("application/json")
     @Consumes("application/json")
-    public Response authenticateEmployee(Employee employee) throws Exception {
+    public void authenticateEmployee(@Suspended final AsyncResponse asyncResponse, final Employee employee,
+            @Context HttpServletRequest request) {
 
         // extracting username/password from request's body
         String username = employee.getUsername();
         String password = employee.getPassword();
 
-        log.log(Level.INFO, "Username: {0}", username);
-        log.log(Level.INFO, "Password: {0}", password);
+        log.log(Level.FINE, "Username: {0}", username);
+
+        LoginThrottle throttle = LoginThrottle.getInstance();
+        String clientAddress = throttle.clientAddress(request.getRemoteAddr(), request.getHeader("X-Forwarded-For"));
+        long retryAfter = throttle.tryAcquire(username, clientAddress);
+        if (retryAfter > 0) {
+            log.log(Level.WARNING, "Login attempts throttled for username: {0}", username);
+            asyncResponse.resume(Response.status(429)
+                    .header("Retry-After", retryAfter)
+                    .type("application/json")
+                    .entity("{\"error\": \"Too many login attempts, please retry later\"}")
+                    .build());
+            return;
+        }
 
-        // Authenticate the user using the credentials provided and retrieve authenticated user obj
-        Employee authenticatedUser = authenticateEmployee(username, password);
+        LoginExecutor.submit(asyncResponse, () -> {
+            // Authenticate the user using the credentials provided and retrieve authenticated user obj
+            Employee authenticatedUser = authenticateEmployee(username, password);
+            LoginThrottle.getInstance().reset(username);
 
-        // Issue a token for the user
-        Date expiry = getExpiryDate(EXPIRATION);
+            // Issue a token for the user
+            Date expiry = getExpiryDate(EXPIRATION);
 
-        // The issued token must be associated to a user
-        // Return the issued token
-        String jwtString = TokenUtil.getJWTString(authenticatedUser.getUsername(),
-                authenticatedUser.getEmployeeId(), authenticatedUser.getRoles().split(","), 
-                expiry, key);
+            // The issued token must be associated to a user
+            // Return the issued token
+            String jwtString = TokenUtil.getJWTString(authenticatedUser.getUsername(),
+                    authenticatedUser.getEmployeeId(), authenticatedUser.getRoles().split(","),
+                    expiry, key);
 
-        Token token = new com.mykolabs.hotel.authentication.Token();
+            Token token = new com.mykolabs.hotel.authentication.Token();
 
-        token.setAuthToken(jwtString);
-        token.setExpires(expiry);
+            token.setAuthToken(jwtString);
+            token.setExpires(expiry);
 
-        return Response
-                .status(Response.Status.OK)
-                .type("application/json")
-                .entity(token)
-                .build();
+            return Response
+                    .status(Response.Status.OK)
+                    .type("application/json")
+                    .entity(token)
+                    .build();
+        });
     }
 
     /**
@@ -93,7 +123,7 @@ public class AuthenticationEndpoint {
         // retrieve user's detaiuls from the DB
         try{
          empoyee = employeeDAO.getEmployee(username);
-         log.log(Level.INFO, "Retrieved employee id: {0}", empoyee.getEmployeeId());
+         log.log(Level.FINE, "Retrieved employee id: {0}", empoyee.getEmployeeId());
         } catch (Exception ex){
              // validating if valid username was provided
              ex.printStackTrace();
@@ -17,7 +17,8 @@ public class CORS implements ContainerResponseFilter {
     public void filter(final ContainerRequestContext requestContext,
             final ContainerResponseContext cres) throws IOException {
         cres.getHeaders().add("Access-Control-Allow-Origin", "*");
-        cres.getHeaders().add("Access-Control-Allow-Headers", "origin, content-type, accept, authorization");
+        cres.getHeaders().add("Access-Control-Allow-Headers", "origin, content-type, accept, authorization, if-match, if-none-match");
+        cres.getHeaders().add("Access-Control-Expose-Headers", "etag");
         cres.getHeaders().add("Access-Control-Allow-Credentials", "true");
         cres.getHeaders().add("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS, HEAD");
         cres.getHeaders().add("Access-Control-Max-Age", "1209600");
@@ -0,0 +1,78 @@
+package com.mykolabs.hotel.resource;
+
+import com.mykolabs.hotel.authentication.Secured;
+import com.mykolabs.hotel.beansLists.Change;
+import com.mykolabs.hotel.beansLists.ChangePage;
+import com.mykolabs.hotel.persistence.ChangeLogDAO;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import com.mykolabs.hotel.util.DbExecutor;
+import java.util.List;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.OPTIONS;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Change log of reservation and payment writes, for consumers syncing
+ * incrementally (reporting, caches of other nodes) instead of re-reading
+ * whole tables.
+ *
+ * @author nikprixmar
+ */
+@Path("changes")
+public class ChangesResource {
+
+    private static final int DEFAULT_PAGE_MAX_SIZE = 1000;
+
+    /**
+     * Retrieves changes after a CHANGE_ID, oldest first. Start with since=0
+     * (or a stored position) and keep passing nextSince of the page. Changes
+     * behind a write that is still committing are held back for up to
+     * CHANGE_LOG_SETTLE_SECONDS, so a page may end early.
+     *
+     * @param asyncResponse
+     * @param since last CHANGE_ID seen
+     * @param limit max changes per page
+     */
+    @GET
+    @Secured
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getChanges(@Suspended final AsyncResponse asyncResponse,
+            @QueryParam("since") @DefaultValue("0") final long since,
+            @QueryParam("limit") @DefaultValue("100") final int limit) {
+
+        DbExecutor.submit(asyncResponse, () -> {
+            int maxLimit = ConfigurationManager.get().getInt("CHANGES_PAGE_MAX_SIZE", DEFAULT_PAGE_MAX_SIZE);
+            if (since < 0) {
+                return Response.status(400).entity("{\"error\": \"'since' can't be negative\"}").build();
+            }
+            if (limit < 1 || limit > maxLimit) {
+                return Response.status(400).entity("{\"error\": \"'limit' must be between 1 and " + maxLimit + "\"}").build();
+            }
+
+            // one extra row tells if there is more
+            List<Change> changes = new ChangeLogDAO().getChanges(since, limit + 1);
+
+            ChangePage page = new ChangePage();
+            page.setHasMore(changes.size() > limit);
+            if (page.isHasMore()) {
+                changes = changes.subList(0, limit);
+            }
+            page.setChanges(changes);
+            page.setNextSince(changes.isEmpty() ? since : changes.get(changes.size() - 1).getChangeId());
+
+            return Response.ok().entity(page).build();
+        });
+    }
+
+    @OPTIONS
+    public String getOptions() {
+        return "";
+    }
+}
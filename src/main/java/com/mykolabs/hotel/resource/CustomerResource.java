@@ -1,11 +1,19 @@
 package com.mykolabs.hotel.resource;
 
 import com.mykolabs.hotel.authentication.Secured;
+import com.mykolabs.hotel.beansLists.CustomerSearchPage;
+import com.mykolabs.hotel.cache.CustomerSearchIndex;
+import com.mykolabs.hotel.cache.EntityVersions;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import com.mykolabs.hotel.util.DbExecutor;
+import com.mykolabs.hotel.util.IdList;
 import com.mykolabs.hotel.util.Validator;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.sql.SQLException;
+import java.util.List;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.Produces;
 import javax.ws.rs.GET;
 import javax.ws.rs.OPTIONS;
@@ -13,8 +21,14 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PUT;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import org.glassfish.jersey.server.ResourceConfig;
 
@@ -36,6 +50,8 @@ import com.mykolabs.hotel.persistence.CustomerDAO;
 @Path("customers")
 public class CustomerResource extends ResourceConfig {
 
+    private static final int DEFAULT_SEARCH_MAX_LIMIT = 100;
+
     /**
      * Creates a new instance of CustomerResource
      */
@@ -58,105 +74,224 @@ public class CustomerResource extends ResourceConfig {
 //        register(GeneralExceptionMapper.class);
     }
 
+    /**
+     * Finds customers by first name, last name, phone or city, best match
+     * first. Every word of the query has to be the beginning of a word in one
+     * of the fields, a query without letters is matched against phone
+     * numbers. Served from the in-memory CustomerSearchIndex, only the
+     * returned page is read from the DB.
+     *
+     * @param asyncResponse
+     * @param query
+     * @param offset amount of results to skip
+     * @param limit page size
+     */
+    @GET
+    @Secured
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void searchCustomers(@Suspended final AsyncResponse asyncResponse, @QueryParam("q") String query,
+            @QueryParam("offset") @DefaultValue("0") int offset, @QueryParam("limit") @DefaultValue("20") int limit) {
+
+        DbExecutor.submit(asyncResponse, () -> {
+            int maxLimit = ConfigurationManager.get().getInt("CUSTOMER_SEARCH_MAX_LIMIT", DEFAULT_SEARCH_MAX_LIMIT);
+            if (limit < 1 || limit > maxLimit) {
+                return Response.status(400).entity("{\"error\": \"Page limit must be between 1 and " + maxLimit + "\"}").build();
+            }
+            if (offset < 0) {
+                return Response.status(400).entity("{\"error\": \"Offset can not be negative!\"}").build();
+            }
+            if (query == null || query.trim().isEmpty()) {
+                return Response.status(400).entity("{\"error\": \"Please add a search query!\"}").build();
+            }
+
+            CustomerSearchIndex.Matches matches = CustomerSearchIndex.getInstance().search(query, offset, limit);
+
+            CustomerSearchPage page = new CustomerSearchPage();
+            page.setCustomers(new CustomerDAO().getCustomers(matches.getIds()));
+            page.setTotal(matches.getTotal());
+            page.setOffset(offset);
+
+            return Response.ok().entity(page).build();
+        });
+    }
+
+    /**
+     * Retrieves several customers at once, e.g. GET
+     * customers/batch?ids=12,40,41, in the order of the ids. Unknown ids are
+     * skipped.
+     *
+     * @param asyncResponse
+     * @param ids comma separated customer ids
+     */
+    @GET
+    @Secured
+    @Path("/batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getCustomers(@Suspended final AsyncResponse asyncResponse, @QueryParam("ids") String ids) {
+        findCustomers(asyncResponse, IdList.parse(ids));
+    }
+
+    /**
+     * Same as GET customers/batch for id lists posted as a JSON array.
+     *
+     * @param asyncResponse
+     * @param ids
+     */
+    @POST
+    @Secured
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/batch")
+    public void getCustomers(@Suspended final AsyncResponse asyncResponse, final List<Integer> ids) {
+        findCustomers(asyncResponse, IdList.distinct(ids));
+    }
+
+    private void findCustomers(final AsyncResponse asyncResponse, final List<Integer> customerIds) {
+
+        DbExecutor.submit(asyncResponse, () -> {
+            String error = IdList.validate(customerIds);
+            if (error != null) {
+                return Response.status(400).entity(error).build();
+            }
+
+            List<Customer> customers = new CustomerDAO().getCustomers(customerIds);
+            GenericEntity<List<Customer>> entity = new GenericEntity<List<Customer>>(customers) {
+            };
+
+            return Response.ok().entity(entity).build();
+        });
+    }
+
     /**
      * Retrieves single customer from the DB by provided ID.
      *
+     * Answers 304 without a DB access when If-None-Match carries the current
+     * ETag.
+     *
+     * @param asyncResponse
      * @param id
-     * @return an instance of java.lang.String
-     * @throws java.sql.SQLException
+     * @param request
      */
     @GET
     @Secured
     @Path("{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getCustomer(@PathParam("id") int id) throws SQLException {
+    public void getCustomer(@Suspended final AsyncResponse asyncResponse, @PathParam("id") int id,
+            @Context Request request) {
 
-        if (id < 0) {
-            return Response.noContent().build();
+        EntityTag tag = EntityVersions.tag(EntityVersions.Kind.CUSTOMER, id);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            // client's copy is current, no need to touch the DB
+            asyncResponse.resume(notModified.build());
+            return;
         }
 
-        CustomerDAO customerDAO = new CustomerDAO();
-        // retrieving customer from the DB
-        Customer singleCustomerFromDB = customerDAO.getCustomer(id);
+        DbExecutor.submit(asyncResponse, () -> {
+            if (id < 0) {
+                return Response.noContent().build();
+            }
+
+            CustomerDAO customerDAO = new CustomerDAO();
+            // retrieving customer from the DB
+            Customer singleCustomerFromDB = customerDAO.getCustomer(id);
 
-        GenericEntity<Customer> entity = new GenericEntity<>(singleCustomerFromDB, Customer.class);
+            GenericEntity<Customer> entity = new GenericEntity<>(singleCustomerFromDB, Customer.class);
 
-        return Response.ok().entity(entity).build();
+            return Response.ok().entity(entity).tag(tag).build();
+        });
     }
 
     /**
      * PUT method for updating an instance of Customer
      *
+     * Honours If-Match, answering 412 when the entity changed meanwhile.
+     *
+     * @param asyncResponse
+     * @param request
      * @param customer
      * @param room
-     * @return
-     * @throws java.sql.SQLException
      */
     @PUT
     @Secured
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/update")
-    public Response editCustomer(final Customer customer) throws SQLException {
+    public void editCustomer(@Suspended final AsyncResponse asyncResponse, @Context Request request,
+            final Customer customer) {
 
-        if (!Validator.isCustomerExists(customer)) {
-            return Response.status(400).entity("{\"error\": \"Please add customer details!\"}").build();
-        }
+        DbExecutor.submitWrite(asyncResponse, () -> {
+            if (!Validator.isCustomerExists(customer)) {
+                return Response.status(400).entity("{\"error\": \"Please add customer details!\"}").build();
+            }
 
-        if (!Validator.isCustomerValid(customer)) {
-            return Response.status(400).entity("{\"error\": \"Some customer details are missing!\"}").build();
-        }
+            if (!Validator.isCustomerValid(customer)) {
+                return Response.status(400).entity("{\"error\": \"Some customer details are missing!\"}").build();
+            }
 
-        CustomerDAO customerDAO = new CustomerDAO();
+            CustomerDAO customerDAO = new CustomerDAO();
 
-        int customerStatus = 0;
+            int customerStatus = 0;
+            EntityTag updatedTag;
 
-        customerStatus = customerDAO.updateCustomer(customer);
+            // optimistic concurrency, If-Match must carry the current ETag
+            synchronized (EntityVersions.updateLock(EntityVersions.Kind.CUSTOMER, customer.getCustomerId())) {
+                Response.ResponseBuilder preconditionFailed = request.evaluatePreconditions(
+                        EntityVersions.tag(EntityVersions.Kind.CUSTOMER, customer.getCustomerId()));
+                if (preconditionFailed != null) {
+                    return preconditionFailed.build();
+                }
 
-        if (customerStatus != 1) {
-            return Response.status(400).entity("{\"error\":\"An error occured while updating customer details. Please try again\"}").build();
-        }
+                customerStatus = customerDAO.updateCustomer(customer);
+                updatedTag = EntityVersions.tag(EntityVersions.Kind.CUSTOMER, customer.getCustomerId());
+            }
+
+            if (customerStatus != 1) {
+                return Response.status(400).entity("{\"error\":\"An error occured while updating customer details. Please try again\"}").build();
+            }
 
-        return Response.ok().entity(customer).build();
+            return Response.ok().entity(customer).tag(updatedTag).build();
+        });
     }
 
     /**
      * POST method for creating an instance of Customer
      *
+     * @param asyncResponse
      * @param customer
-     * @return
-     * @throws java.net.URISyntaxException
-     * @throws java.sql.SQLException
      */
     @POST
     @Secured
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/create")
-    public Response addCustomer(final Customer customer) throws URISyntaxException, SQLException, Exception {
+    public void addCustomer(@Suspended final AsyncResponse asyncResponse, final Customer customer) {
 
-        if (!Validator.isCustomerExists(customer)) {
-            return Response.status(400).entity("{\"error\": \"Please add customer details!\"}").build();
-        }
+        DbExecutor.submitWrite(asyncResponse, () -> {
+            if (!Validator.isCustomerExists(customer)) {
+                return Response.status(400).entity("{\"error\": \"Please add customer details!\"}").build();
+            }
 
-        if (!Validator.isCustomerValid(customer)) {
-            return Response.status(400).entity("{\"error\": \"Some customer details are missing!\"}").build();
-        }
+            if (!Validator.isCustomerValid(customer)) {
+                return Response.status(400).entity("{\"error\": \"Some customer details are missing!\"}").build();
+            }
 
-        CustomerDAO customerDAO = new CustomerDAO();
+            CustomerDAO customerDAO = new CustomerDAO();
 
-        int customerId;
+            int customerId;
 
-        customerId = customerDAO.addCustomer(customer);
+            customerId = customerDAO.addCustomer(customer);
 
-        if (customerId <= 0) {
-            return Response.status(400).entity("{\"error\":\"An error occured while adding a customer. Please try again\"}").build();
-        }
+            if (customerId <= 0) {
+                return Response.status(400).entity("{\"error\":\"An error occured while adding a customer. Please try again\"}").build();
+            }
 
-        return Response
-                .created(new URI("customers/" + customerId))
-                .entity("{\"customerId\":"+customerId+"}")
-                .build();
+            return Response
+                    .created(new URI("customers/" + customerId))
+                    .entity("{\"customerId\":"+customerId+"}")
+                    .build();
+        });
     }
 
     @OPTIONS
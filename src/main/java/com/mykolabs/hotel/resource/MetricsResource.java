@@ -0,0 +1,31 @@
+package com.mykolabs.hotel.resource;
+
+import com.mykolabs.hotel.metrics.MetricsRegistry;
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Scrape endpoint for the application metrics, in the Prometheus text format.
+ *
+ * @author nikprixmar
+ */
+@Path("metrics")
+public class MetricsResource {
+
+    @GET
+    @Produces("text/plain; version=0.0.4; charset=utf-8")
+    public StreamingOutput getMetrics() {
+        return (OutputStream output) -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            MetricsRegistry.writePrometheus(writer);
+            writer.flush();
+        };
+    }
+}
@@ -1,22 +1,23 @@
 package com.mykolabs.hotel.resource;
 
-import com.fasterxml.jackson.annotation.JsonFilter;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.ser.FilterProvider;
-import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
-import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import com.mykolabs.hotel.authentication.Secured;
+import com.mykolabs.hotel.json.FilteredEntity;
+import com.mykolabs.hotel.json.JsonSupport;
+import com.mykolabs.hotel.util.DbExecutor;
+import com.mykolabs.hotel.util.IdList;
 import com.mykolabs.hotel.util.Validator;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.sql.SQLException;
+import java.util.List;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
 import javax.ws.rs.OPTIONS;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.glassfish.jersey.server.ResourceConfig;
@@ -66,77 +67,112 @@ public class PaymentResource extends ResourceConfig {
     /**
      * Retrieves single payment from the DB by provided ID.
      *
+     * @param asyncResponse
      * @param reservationId
-     * @return an instance of java.lang.String
-     * @throws java.sql.SQLException
-     * @throws com.fasterxml.jackson.core.JsonProcessingException
      */
     @GET
     @Secured
     @Path("{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getPayment(@PathParam("id") int reservationId) throws SQLException, JsonProcessingException {
+    public void getPayment(@Suspended final AsyncResponse asyncResponse, @PathParam("id") int reservationId) {
 
-        if (reservationId < 0) {
-            return Response.noContent().build();
-        }
+        DbExecutor.submit(asyncResponse, () -> {
+            if (reservationId < 0) {
+                return Response.noContent().build();
+            }
 
-        PaymentDAO paymentDAO = new PaymentDAO();
-        // retrieving payment from the DB
-        Payment singlePaymentFromDB = paymentDAO.getPaymentByReservationId(reservationId);
+            PaymentDAO paymentDAO = new PaymentDAO();
+            // retrieving payment from the DB
+            Payment singlePaymentFromDB = paymentDAO.getPaymentByReservationId(reservationId);
 
-        // Filtering out all Payment properties except 'paymentAmount'
-        ObjectMapper mapper = new ObjectMapper();
-        // first, construct filter provider to exclude all properties but 'cardNumber', bind it as 'paymentFilter'
-        FilterProvider filters = new SimpleFilterProvider().addFilter("paymentFilter",
-                SimpleBeanPropertyFilter.filterOutAllExcept("paymentAmount"));
-        // and then serialize using that filter provider:
-        mapper.setFilters(filters);
-        String json = mapper.writeValueAsString(singlePaymentFromDB);
+            // only 'paymentAmount', card details are not needed by the screens
+            return Response.ok().entity(FilteredEntity.of(JsonSupport.PAYMENT_SUMMARY, singlePaymentFromDB)).build();
+        });
+    }
+
+    /**
+     * Retrieves payments of several reservations at once, e.g. GET
+     * payments/batch?ids=7,8,9 with reservation ids like GET payments/{id}.
+     * Reservations without a payment are skipped.
+     *
+     * @param asyncResponse
+     * @param ids comma separated reservation ids
+     */
+    @GET
+    @Secured
+    @Path("/batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getPayments(@Suspended final AsyncResponse asyncResponse, @QueryParam("ids") String ids) {
+        findPayments(asyncResponse, IdList.parse(ids));
+    }
+
+    /**
+     * Same as GET payments/batch for id lists posted as a JSON array.
+     *
+     * @param asyncResponse
+     * @param ids
+     */
+    @POST
+    @Secured
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/batch")
+    public void getPayments(@Suspended final AsyncResponse asyncResponse, final List<Integer> ids) {
+        findPayments(asyncResponse, IdList.distinct(ids));
+    }
+
+    private void findPayments(final AsyncResponse asyncResponse, final List<Integer> reservationIds) {
+
+        DbExecutor.submit(asyncResponse, () -> {
+            String error = IdList.validate(reservationIds);
+            if (error != null) {
+                return Response.status(400).entity(error).build();
+            }
 
-        // No need to use this code anymore, since it returns ALL payment details
-        //GenericEntity<Payment> entity = new GenericEntity<>(singlePaymentFromDB, Payment.class);
+            List<Payment> payments = new PaymentDAO().getPaymentsByReservationIds(reservationIds);
 
-        return Response.ok().entity(json).build();
+            // same view as the single payment
+            return Response.ok().entity(FilteredEntity.of(JsonSupport.PAYMENT_SUMMARY, payments)).build();
+        });
     }
 
     /**
      * POST method for creating an instance of Payment
      *
+     * @param asyncResponse
      * @param payment
-     * @return
-     * @throws java.net.URISyntaxException
-     * @throws java.sql.SQLException
      */
     @POST
     @Secured
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/create")
-    public Response addPayment(final Payment payment) throws URISyntaxException, SQLException, Exception {
+    public void addPayment(@Suspended final AsyncResponse asyncResponse, final Payment payment) {
 
-        if (!Validator.isPaymentExists(payment)) {
-            return Response.status(400).entity("{\"error\": \"Please add payment details!\"}").build();
-        }
+        DbExecutor.submitWrite(asyncResponse, () -> {
+            if (!Validator.isPaymentExists(payment)) {
+                return Response.status(400).entity("{\"error\": \"Please add payment details!\"}").build();
+            }
 
-        if (!Validator.isPaymentValid(payment)) {
-            return Response.status(400).entity("{\"error\": \"Some payment details are missing!\"}").build();
-        }
+            if (!Validator.isPaymentValid(payment)) {
+                return Response.status(400).entity("{\"error\": \"Some payment details are missing!\"}").build();
+            }
 
-        PaymentDAO paymentDAO = new PaymentDAO();
+            PaymentDAO paymentDAO = new PaymentDAO();
 
-        int paymentId = 0;
+            int paymentId = 0;
 
-        paymentId = paymentDAO.addPayment(payment);
+            paymentId = paymentDAO.addPayment(payment);
 
-        if (paymentId <= 0) {
-            return Response.status(400).entity("{\"error\":\"An error occured while adding a payment. Please try again\"}").build();
-        }
+            if (paymentId <= 0) {
+                return Response.status(400).entity("{\"error\":\"An error occured while adding a payment. Please try again\"}").build();
+            }
 
-               return Response
-                .created(new URI("payments/" + paymentId))
-                .entity("{\"paymentId\":"+paymentId+"}")
-                .build();
+                   return Response
+                    .created(new URI("payments/" + paymentId))
+                    .entity("{\"paymentId\":"+paymentId+"}")
+                    .build();
+        });
     }
 
     @OPTIONS
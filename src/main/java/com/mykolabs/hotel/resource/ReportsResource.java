@@ -0,0 +1,91 @@
+package com.mykolabs.hotel.resource;
+
+import com.mykolabs.hotel.authentication.Secured;
+import com.mykolabs.hotel.beansLists.OccupancyReport;
+import com.mykolabs.hotel.cache.OccupancyRollup;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import com.mykolabs.hotel.util.DbExecutor;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.OPTIONS;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Management reports, served from in-memory rollups rather than queries
+ * over the booking tables.
+ *
+ * @author nikprixmar
+ */
+@Path("reports")
+public class ReportsResource {
+
+    private static final int DEFAULT_MAX_DAYS = 1096;
+
+    /**
+     * Retrieves occupancy rate, ADR and RevPAR per room type, e.g. GET
+     * reports/occupancy?period=monthly&from=2017-01-01&to=2018-01-01.
+     *
+     * @param asyncResponse
+     * @param period daily, weekly (from Monday) or monthly
+     * @param from first day, yyyy-MM-dd
+     * @param to day after the last one, yyyy-MM-dd
+     */
+    @GET
+    @Secured
+    @Path("/occupancy")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getOccupancy(@Suspended final AsyncResponse asyncResponse,
+            @QueryParam("period") @DefaultValue("monthly") final String period,
+            @QueryParam("from") final String from, @QueryParam("to") final String to) {
+
+        DbExecutor.submit(asyncResponse, () -> {
+            OccupancyRollup.Period reportPeriod;
+            try {
+                reportPeriod = OccupancyRollup.Period.valueOf(period.toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                return Response.status(400).entity("{\"error\": \"Period must be daily, weekly or monthly\"}").build();
+            }
+
+            LocalDate first;
+            LocalDate last;
+            try {
+                first = from == null ? null : LocalDate.parse(from);
+                last = to == null ? null : LocalDate.parse(to);
+            } catch (DateTimeParseException ex) {
+                first = null;
+                last = null;
+            }
+            if (first == null || last == null) {
+                return Response.status(400).entity("{\"error\": \"'from' and 'to' must be dates like 2017-01-31\"}").build();
+            }
+
+            int maxDays = ConfigurationManager.get().getInt("REPORT_MAX_DAYS", DEFAULT_MAX_DAYS);
+            long days = ChronoUnit.DAYS.between(first, last);
+            if (days < 1 || days > maxDays) {
+                return Response.status(400).entity("{\"error\": \"'to' must be 1 to " + maxDays + " days after 'from'\"}").build();
+            }
+
+            OccupancyReport report = new OccupancyReport();
+            report.setPeriod(reportPeriod.name().toLowerCase());
+            report.setFrom(first.toString());
+            report.setTo(last.toString());
+            report.setRows(OccupancyRollup.getInstance().getReport(reportPeriod, first, last));
+
+            return Response.ok().entity(report).build();
+        });
+    }
+
+    @OPTIONS
+    public String getOptions() {
+        return "";
+    }
+}
@@ -1,29 +1,75 @@
 package com.mykolabs.hotel.resource;
 
 import com.mykolabs.hotel.authentication.Secured;
+import com.mykolabs.hotel.cache.ArrivalsIndex;
+import com.mykolabs.hotel.cache.EntityVersions;
+import com.mykolabs.hotel.beans.Payment;
 import com.mykolabs.hotel.beans.Reservation;
+import com.mykolabs.hotel.beansLists.Booking;
+import com.mykolabs.hotel.beansLists.ReservationDetails;
+import com.mykolabs.hotel.beansLists.ReservationDetailsPage;
 import com.mykolabs.hotel.beansLists.ReservationList;
+import com.mykolabs.hotel.events.ReservationEventBus;
+import com.mykolabs.hotel.exceptions.EntityNotFoundException;
 import com.mykolabs.hotel.persistence.ReservationDAO;
+import com.mykolabs.hotel.json.FilteredEntity;
+import com.mykolabs.hotel.json.JsonSupport;
+import com.mykolabs.hotel.json.PayloadCache;
+import com.mykolabs.hotel.json.PayloadCapture;
+import com.mykolabs.hotel.json.SerializedPayload;
+import com.mykolabs.hotel.util.ConfigurationManager;
+import com.mykolabs.hotel.util.ReservationCursor;
+import com.mykolabs.hotel.util.DbExecutor;
+import com.mykolabs.hotel.util.IdList;
 import com.mykolabs.hotel.util.Validator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.Produces;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.OPTIONS;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PUT;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.glassfish.jersey.media.sse.SseFeature;
 import org.glassfish.jersey.server.ResourceConfig;
 
 import com.google.common.collect.Sets;
 import com.mykolabs.hotel.authentication.AuthenticationFilter;
-import com.mykolabs.hotel.beansLists.AllReservationListWithCustomer;
+import com.mykolabs.hotel.beansLists.ReservationPage;
+import com.mykolabs.hotel.beansLists.TodayReservation;
 import com.mykolabs.hotel.beans.ReservationSearch;
 import com.mykolabs.hotel.beans.TodayDate;
 import com.mykolabs.hotel.beansLists.TodayReservationList;
@@ -44,6 +90,25 @@ import javax.ws.rs.DELETE;
 @Path("reservations")
 public class ReservationsResource extends ResourceConfig {
 
+    private static final Logger log = Logger.getLogger(ReservationsResource.class.getName());
+
+    private static final int DEFAULT_PAGE_MAX_SIZE = 500;
+    private static final int DEFAULT_BULK_MAX_SIZE = 1000;
+    // answered with 503 when RESERVATION_EVENTS_MAX_SUBSCRIBERS are connected
+    private static final int EVENTS_RETRY_AFTER_SECONDS = 30;
+
+    // newline delimited JSON, accepted by the bulk import
+    private static final String NDJSON = "application/x-ndjson";
+
+    // used for streamed responses, which bypass the JAX-RS message body writers
+    private static final ObjectMapper mapper = JsonSupport.mapper();
+    private static final ObjectWriter reservationWriter = mapper.writerFor(TodayReservation.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    // PayloadCache keys
+    private static final String ALL_RESERVATIONS_KEY = "reservations";
+    private static final String ARRIVALS_KEY_PREFIX = "arrivals:";
+
     /**
      * Creates a new instance of BooksResource
      */
@@ -66,47 +131,256 @@ public class ReservationsResource extends ResourceConfig {
     }
 
     /**
-     * Retrieves ALL reservations from the DB. Future enhancement - add limits
-     * by DateOfEntry - start / end date.
+     * Retrieves ALL reservations from the DB. Rows are written to the
+     * response while they are read from the DB, so the listing is never held
+     * in memory as a whole. Same payload as AllReservationListWithCustomer.
+     *
+     * Listings up to RESPONSE_CACHE_MAX_BYTES are kept serialized and served
+     * from memory, pre-compressed, until a reservation or guest changes.
+     *
+     * The stream is written by a DbExecutor worker: resume() writes the
+     * entity on the calling thread, so the connection is held by a bounded
+     * worker and a saturated executor answers 503.
      *
-     * @return an instance of java.lang.String
-     * @throws java.sql.SQLException
+     * @param asyncResponse
      */
     @GET
     //@Secured
     @Produces(MediaType.APPLICATION_JSON)
-    public AllReservationListWithCustomer getAllReservations() throws SQLException {
+    public void getAllReservations(@Suspended final AsyncResponse asyncResponse) {
+
+        // read before the reservations, see PayloadCache
+        long version = ArrivalsIndex.getInstance().getVersion();
+        SerializedPayload cached = PayloadCache.getInstance().get(ALL_RESERVATIONS_KEY, version);
+        if (cached != null) {
+            asyncResponse.resume(Response.ok(cached).build());
+            return;
+        }
 
-        // NOTE, using 'TodayReservationList' class here, since it has 
-        // all needed data, but 
-        AllReservationListWithCustomer allReservationList = new AllReservationListWithCustomer();
-        ReservationDAO reservationDAO = new ReservationDAO();
-        // retrieving reservations from the DB
-        allReservationList.setAllReservationList(reservationDAO.getAllReservationsWithCustomerData());
+        StreamingOutput stream = (OutputStream output) -> {
+            PayloadCapture capture = new PayloadCapture(output, PayloadCache.getInstance().getMaxPayloadBytes());
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(capture)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("todayReservation");
+
+                ReservationDAO reservationDAO = new ReservationDAO();
+                // writing reservations as they come from the DB
+                reservationDAO.streamReservationsWithCustomerData(row -> {
+                    reservationWriter.writeValue(generator, row);
+                });
+
+                generator.writeEndArray();
+                generator.writeEndObject();
+            } catch (SQLException ex) {
+                // response is already committed, client gets a truncated body
+                log.log(Level.SEVERE, "Streaming reservations failed", ex);
+                throw new WebApplicationException(ex);
+            }
+
+            byte[] json = capture.getCaptured();
+            if (json != null) {
+                PayloadCache.getInstance().put(ALL_RESERVATIONS_KEY, version, json);
+            }
+        };
+        DbExecutor.submit(asyncResponse, () -> Response.ok(stream).build());
+    }
 
-        return allReservationList;
+    /**
+     * Retrieves one page of reservations, newest checkin first. The response
+     * holds nextCursor, pass it back as 'after' to get the next page.
+     *
+     * @param asyncResponse
+     * @param after cursor from the previous page, omit for the first page
+     * @param limit page size
+     */
+    @GET
+    @Secured
+    @Path("/page")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getReservationsPage(@Suspended final AsyncResponse asyncResponse, @QueryParam("after") String after,
+            @QueryParam("limit") @DefaultValue("50") int limit) {
+
+        DbExecutor.submit(asyncResponse, () -> {
+            int maxLimit = ConfigurationManager.get().getInt("RESERVATION_PAGE_MAX_SIZE", DEFAULT_PAGE_MAX_SIZE);
+            if (limit < 1 || limit > maxLimit) {
+                return Response.status(400).entity("{\"error\": \"Page limit must be between 1 and " + maxLimit + "\"}").build();
+            }
+
+            ReservationCursor cursor = null;
+            if (after != null && !after.isEmpty()) {
+                try {
+                    cursor = ReservationCursor.decode(after);
+                } catch (IllegalArgumentException ex) {
+                    return Response.status(400).entity("{\"error\": \"Invalid page cursor!\"}").build();
+                }
+            }
+
+            ReservationDAO reservationDAO = new ReservationDAO();
+            // DAO returns one extra row when there is a next page
+            List<TodayReservation> rows = reservationDAO.getReservationsPage(cursor, limit);
+
+            ReservationPage page = new ReservationPage();
+            if (rows.size() > limit) {
+                rows = rows.subList(0, limit);
+                TodayReservation last = rows.get(limit - 1);
+                page.setNextCursor(new ReservationCursor(last.getCheckinDate(), last.getReservationId()).encode());
+            }
+            page.setReservations(rows);
+
+            return Response.ok().entity(page).build();
+        });
+    }
+
+    /**
+     * Retrieves reservations with their customer, room and payments embedded,
+     * either by id (ids=1,2,3) or one page at a time like GET
+     * reservations/page. fields selects the embedded parts, e.g.
+     * fields=customer,payments, all of them by default. Payments are written
+     * with the payment-summary view and employees only by id.
+     *
+     * @param asyncResponse
+     * @param ids comma separated reservation ids, omit to page
+     * @param after cursor from the previous page, omit for the first page
+     * @param limit page size
+     * @param fields comma separated parts: customer, room, payments
+     */
+    @GET
+    @Secured
+    @Path("/details")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getReservationDetails(@Suspended final AsyncResponse asyncResponse, @QueryParam("ids") String ids,
+            @QueryParam("after") String after, @QueryParam("limit") @DefaultValue("50") int limit,
+            @QueryParam("fields") String fields) {
+
+        DbExecutor.submit(asyncResponse, () -> {
+            Set<ReservationDetails.Part> parts;
+            try {
+                parts = ReservationDetails.Part.parse(fields);
+            } catch (IllegalArgumentException ex) {
+                return Response.status(400).entity("{\"error\": \"Fields must be customer, room or payments!\"}").build();
+            }
+
+            ReservationDAO reservationDAO = new ReservationDAO();
+            ReservationDetailsPage page = new ReservationDetailsPage();
+
+            if (ids != null) {
+                List<Integer> reservationIds = IdList.parse(ids);
+                String error = IdList.validate(reservationIds);
+                if (error != null) {
+                    return Response.status(400).entity(error).build();
+                }
+                page.setReservations(reservationDAO.getReservationDetails(reservationIds, parts));
+                return Response.ok().entity(FilteredEntity.of(JsonSupport.PAYMENT_SUMMARY, page)).build();
+            }
+
+            int maxLimit = ConfigurationManager.get().getInt("RESERVATION_PAGE_MAX_SIZE", DEFAULT_PAGE_MAX_SIZE);
+            if (limit < 1 || limit > maxLimit) {
+                return Response.status(400).entity("{\"error\": \"Page limit must be between 1 and " + maxLimit + "\"}").build();
+            }
+
+            ReservationCursor cursor = null;
+            if (after != null && !after.isEmpty()) {
+                try {
+                    cursor = ReservationCursor.decode(after);
+                } catch (IllegalArgumentException ex) {
+                    return Response.status(400).entity("{\"error\": \"Invalid page cursor!\"}").build();
+                }
+            }
+
+            // DAO returns one extra row when there is a next page
+            List<ReservationDetails> rows = reservationDAO.getReservationDetailsPage(cursor, limit, parts);
+            if (rows.size() > limit) {
+                rows = rows.subList(0, limit);
+                ReservationDetails last = rows.get(limit - 1);
+                page.setNextCursor(new ReservationCursor(last.getCheckinDate(), last.getReservationId()).encode());
+            }
+            page.setReservations(rows);
+
+            return Response.ok().entity(FilteredEntity.of(JsonSupport.PAYMENT_SUMMARY, page)).build();
+        });
+    }
+
+    /**
+     * Retrieves single reservation with its customer, room and payments
+     * embedded, see GET reservations/details.
+     *
+     * @param asyncResponse
+     * @param id
+     * @param fields comma separated parts: customer, room, payments
+     */
+    @GET
+    @Secured
+    @Path("{id}/details")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getReservationDetails(@Suspended final AsyncResponse asyncResponse, @PathParam("id") int id,
+            @QueryParam("fields") String fields) {
+
+        DbExecutor.submit(asyncResponse, () -> {
+            Set<ReservationDetails.Part> parts;
+            try {
+                parts = ReservationDetails.Part.parse(fields);
+            } catch (IllegalArgumentException ex) {
+                return Response.status(400).entity("{\"error\": \"Fields must be customer, room or payments!\"}").build();
+            }
+
+            List<ReservationDetails> rows = new ReservationDAO().getReservationDetails(Collections.singletonList(id), parts);
+            if (rows.isEmpty()) {
+                throw new EntityNotFoundException("Reservation " + id + " not found");
+            }
+
+            return Response.ok().entity(FilteredEntity.of(JsonSupport.PAYMENT_SUMMARY, rows.get(0))).build();
+        });
+    }
+
+    /**
+     * Server-sent event stream of reservation changes: created, updated and
+     * deleted events carrying the reservation as JSON. Reconnecting clients
+     * send Last-Event-ID and get the events they missed, or a reset event if
+     * those are no longer kept. Replaces polling of the reservation lists.
+     *
+     * @param lastEventId id of the last received event, sent on reconnect
+     * @return
+     */
+    @GET
+    @Secured
+    @Path("/events")
+    @Produces(SseFeature.SERVER_SENT_EVENTS)
+    public Response getReservationEvents(@HeaderParam(SseFeature.LAST_EVENT_ID_HEADER) String lastEventId) {
+
+        EventOutput output = new EventOutput();
+        if (!ReservationEventBus.getInstance().subscribe(output, lastEventId)) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, EVENTS_RETRY_AFTER_SECONDS)
+                    .build();
+        }
+        return Response.ok(output).build();
     }
 
     /**
      * Retrieves ALL TODAY reservations from the DB.
      *
+     * @param asyncResponse
      * @param currentDate
-     * @return an instance of java.lang.String
-     * @throws java.sql.SQLException
      */
     @POST
     @Secured
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/todayReservations")
-    public TodayReservationList getAllTodayReservations(TodayDate currentDate) throws SQLException {
-
-        TodayReservationList todayReservationList = new TodayReservationList();
-        ReservationDAO reservationDAO = new ReservationDAO();
-        // retrieving all today reservations from the DB
-        todayReservationList.setTodayReservationList(reservationDAO.getAllTodayReservations(currentDate));
-
-        return todayReservationList;
+    public void getAllTodayReservations(@Suspended final AsyncResponse asyncResponse, TodayDate currentDate) {
+
+        DbExecutor.submit(asyncResponse, () -> {
+            LocalDate day = currentDate.getCurrentDate().toLocalDate();
+            // serialized once per day and reservations version
+            return PayloadCache.getInstance().get(ARRIVALS_KEY_PREFIX + day, ArrivalsIndex.getInstance().getVersion(), () -> {
+                TodayReservationList todayReservationList = new TodayReservationList();
+                ReservationDAO reservationDAO = new ReservationDAO();
+                // retrieving all today reservations from the DB
+                todayReservationList.setTodayReservationList(reservationDAO.getAllTodayReservations(currentDate));
+
+                return todayReservationList;
+            });
+        });
     }
 
     /**
@@ -114,124 +388,289 @@ public class ReservationsResource extends ResourceConfig {
      * Have to use 'TodayReservationList' but indeed it returns not only today
      * data, but data, which matches search criteria
      *
+     * @param asyncResponse
      * @param reservationSearch
-     * @return an instance of java.lang.String
-     * @throws java.sql.SQLException
      */
     @POST
     @Secured
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/availableReservations")
-    public TodayReservationList getAllavailableReservations(final ReservationSearch reservationSearch) throws SQLException {
-
-        TodayReservationList reservationList = new TodayReservationList();
-        ReservationDAO reservationDAO = new ReservationDAO();
-        // retrieving rooms from the DB
-        reservationList.setTodayReservationList(reservationDAO.getReservationsForCheckin(reservationSearch));
-
-        return reservationList;
+    public void getAllavailableReservations(@Suspended final AsyncResponse asyncResponse, final ReservationSearch reservationSearch) {
+
+        DbExecutor.submit(asyncResponse, () -> {
+            ReservationDAO reservationDAO = new ReservationDAO();
+            LocalDate day = reservationDAO.convertToSqlDate(reservationSearch.getCheckinDate()).toLocalDate();
+            // same listing as todayReservations for that day
+            return PayloadCache.getInstance().get(ARRIVALS_KEY_PREFIX + day, ArrivalsIndex.getInstance().getVersion(), () -> {
+                TodayReservationList reservationList = new TodayReservationList();
+                // retrieving rooms from the DB
+                reservationList.setTodayReservationList(reservationDAO.getReservationsForCheckin(reservationSearch));
+
+                return reservationList;
+            });
+        });
     }
 
     /**
      * Retrieves single reservation from the DB.
      *
+     * Answers 304 without a DB access when If-None-Match carries the current
+     * ETag.
+     *
+     * @param asyncResponse
      * @param id
-     * @return an instance of java.lang.String
-     * @throws java.sql.SQLException
+     * @param request
      */
     @GET
     @Secured
     @Path("{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getReservation(@PathParam("id") int id) throws SQLException {
-
-        if (id < 0) {
-            return Response.noContent().build();
+    public void getReservation(@Suspended final AsyncResponse asyncResponse, @PathParam("id") int id,
+            @Context Request request) {
+
+        EntityTag tag = EntityVersions.tag(EntityVersions.Kind.RESERVATION, id);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            // client's copy is current, no need to touch the DB
+            asyncResponse.resume(notModified.build());
+            return;
         }
 
-        ReservationDAO reservationDAO = new ReservationDAO();
-        // retrieving reservation from the DB
-        Reservation singleReservationFromDB = reservationDAO.getReservation(id);
+        DbExecutor.submit(asyncResponse, () -> {
+            if (id < 0) {
+                return Response.noContent().build();
+            }
+
+            ReservationDAO reservationDAO = new ReservationDAO();
+            // retrieving reservation from the DB
+            Reservation singleReservationFromDB = reservationDAO.getReservation(id);
 
-        GenericEntity<Reservation> entity = new GenericEntity<>(singleReservationFromDB, Reservation.class);
+            GenericEntity<Reservation> entity = new GenericEntity<>(singleReservationFromDB, Reservation.class);
 
-        return Response.ok().entity(entity).build();
+            return Response.ok().entity(entity).tag(tag).build();
+        });
     }
 
     /**
      * PUT method for updating an instance of ReservationsResource
      *
+     * Honours If-Match, answering 412 when the entity changed meanwhile.
+     *
+     * @param asyncResponse
+     * @param request
      * @param reservation
-     * @return
-     * @throws java.sql.SQLException
-     * @throws java.net.URISyntaxException
      */
     @PUT
     @Secured
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/update")
-    public Response editReservation(final Reservation reservation) throws SQLException {
+    public void editReservation(@Suspended final AsyncResponse asyncResponse, @Context Request request,
+            final Reservation reservation) {
+
+        DbExecutor.submitWrite(asyncResponse, () -> {
+            if (!Validator.isReservationExists(reservation)) {
+                return Response.status(400).entity("{\"error\": \"Please add reservation details!\"}").build();
+            }
+
+            if (!Validator.isReservationValid(reservation)) {
+                return Response.status(400).entity("{\"error\": \"Some reservation details are missing!\"}").build();
+            }
+
+            ReservationDAO reservationDAO = new ReservationDAO();
+
+            int reservationStatus = 0;
+            EntityTag updatedTag;
+
+            // optimistic concurrency, If-Match must carry the current ETag
+            synchronized (EntityVersions.updateLock(EntityVersions.Kind.RESERVATION, reservation.getReservationId())) {
+                Response.ResponseBuilder preconditionFailed = request.evaluatePreconditions(
+                        EntityVersions.tag(EntityVersions.Kind.RESERVATION, reservation.getReservationId()));
+                if (preconditionFailed != null) {
+                    return preconditionFailed.build();
+                }
+
+                reservationStatus = reservationDAO.updateReservation(reservation);
+                // taken under the lock, a later update must not lend its tag to this body
+                updatedTag = EntityVersions.tag(EntityVersions.Kind.RESERVATION, reservation.getReservationId());
+            }
+
+            if (reservationStatus != 1) {
+                return Response.status(400).entity("{\"error\":\"An error occured while updating reservation. Please try again\"}").build();
+            }
+
+            return Response.ok().entity(reservation).tag(updatedTag).build();
+        });
+    }
 
-        if (!Validator.isReservationExists(reservation)) {
-            return Response.status(400).entity("{\"error\": \"Please add reservation details!\"}").build();
-        }
+    /**
+     * POST method for creating an instance of ReservationsResource
+     *
+     * @param asyncResponse
+     * @param reservation
+     */
+    @POST
+    @Secured
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/create")
+    public void addReservation(@Suspended final AsyncResponse asyncResponse, final Reservation reservation) {
 
-        if (!Validator.isReservationValid(reservation)) {
-            return Response.status(400).entity("{\"error\": \"Some reservation details are missing!\"}").build();
-        }
+        DbExecutor.submitWrite(asyncResponse, () -> {
+            if (!Validator.isReservationExists(reservation)) {
+                return Response.status(400).entity("{\"error\": \"Please add reservations details!\"}").build();
+            }
 
-        ReservationDAO reservationDAO = new ReservationDAO();
+            if (!Validator.isReservationValid(reservation)) {
+                return Response.status(400).entity("{\"error\": \"Some reservation details are missing!\"}").build();
+            }
 
-        int reservationStatus = 0;
+            ReservationDAO reservationDAO = new ReservationDAO();
 
-        reservationStatus = reservationDAO.updateReservation(reservation);
+            int reservationId = 0;
 
-        if (reservationStatus != 1) {
-            return Response.status(400).entity("{\"error\":\"An error occured while updating reservation. Please try again\"}").build();
-        }
+            reservationId = reservationDAO.addReservation(reservation);
 
-        return Response.ok().entity(reservation).build();
+            if (reservationId <= 0) {
+                return Response.status(400).entity("{\"error\":\"An error occured while adding reservation. Please try again\"}").build();
+            }
+
+            return Response
+                    .created(new URI("reservations/" + reservationId))
+                    .entity("{\"reservationId\":" + reservationId + "}")
+                    .build();
+        });
     }
 
     /**
-     * POST method for creating an instance of ReservationsResource
+     * Books a room: creates the reservation and its payment together, both
+     * or none. The payment is for the reservation's customer unless it names
+     * the same one.
      *
-     * @param reservation
-     * @return
-     * @throws java.net.URISyntaxException
-     * @throws java.sql.SQLException
+     * @param asyncResponse
+     * @param booking
      */
     @POST
     @Secured
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    @Path("/create")
-    public Response addReservation(final Reservation reservation) throws URISyntaxException, SQLException, Exception {
+    @Path("/book")
+    public void addBooking(@Suspended final AsyncResponse asyncResponse, final Booking booking) {
+
+        DbExecutor.submitWrite(asyncResponse, () -> {
+            if (!Validator.isBookingValid(booking)) {
+                return Response.status(400).entity("{\"error\": \"Some reservation or payment details are missing!\"}").build();
+            }
+
+            Reservation reservation = booking.getReservation();
+            Payment payment = booking.getPayment();
+            if (payment.getCustomerId() == null) {
+                payment.setCustomerId(reservation.getCustomerId());
+            } else if (!payment.getCustomerId().equals(reservation.getCustomerId())) {
+                return Response.status(400).entity("{\"error\": \"Payment customer doesn't match the reservation!\"}").build();
+            }
+
+            new ReservationDAO().addBooking(reservation, payment);
+
+            return Response
+                    .created(new URI("reservations/" + reservation.getReservationId()))
+                    .entity("{\"reservationId\":" + reservation.getReservationId()
+                            + ",\"paymentId\":" + payment.getPaymentId() + "}")
+                    .build();
+        });
+    }
 
-        if (!Validator.isReservationExists(reservation)) {
-            return Response.status(400).entity("{\"error\": \"Please add reservations details!\"}").build();
-        }
+    /**
+     * Creates reservations in bulk (group bookings), all or nothing. Accepts
+     * a JSON array of reservations.
+     *
+     * @param asyncResponse
+     * @param reservations
+     */
+    @POST
+    @Secured
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/bulk")
+    public void addReservations(@Suspended final AsyncResponse asyncResponse, final List<Reservation> reservations) {
+        createReservations(asyncResponse, reservations);
+    }
 
-        if (!Validator.isReservationValid(reservation)) {
-            return Response.status(400).entity("{\"error\": \"Some reservation details are missing!\"}").build();
+    /**
+     * Creates reservations in bulk (group bookings), all or nothing. Accepts
+     * newline delimited JSON, one reservation per line.
+     *
+     * @param asyncResponse
+     * @param input
+     * @throws java.io.IOException
+     */
+    @POST
+    @Secured
+    @Consumes(NDJSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/bulk")
+    public void addReservationsStream(@Suspended final AsyncResponse asyncResponse, final InputStream input)
+            throws IOException {
+
+        int maxSize = ConfigurationManager.get().getInt("RESERVATION_BULK_MAX_SIZE", DEFAULT_BULK_MAX_SIZE);
+        List<Reservation> reservations = new ArrayList<>();
+        // parsed on the request thread, before any DB work is queued
+        try (MappingIterator<Reservation> it = mapper.readValues(mapper.getFactory().createParser(input), Reservation.class)) {
+            while (it.hasNextValue()) {
+                if (reservations.size() == maxSize) {
+                    // stop reading, it would be rejected anyway
+                    asyncResponse.resume(tooManyReservations(maxSize));
+                    return;
+                }
+                reservations.add(it.nextValue());
+            }
         }
+        createReservations(asyncResponse, reservations);
+    }
+
+    /**
+     * Validates and inserts bulk reservations, resuming with the generated
+     * ids in request order.
+     */
+    private void createReservations(AsyncResponse asyncResponse, List<Reservation> reservations) {
 
-        ReservationDAO reservationDAO = new ReservationDAO();
+        int maxSize = ConfigurationManager.get().getInt("RESERVATION_BULK_MAX_SIZE", DEFAULT_BULK_MAX_SIZE);
+        if (reservations == null || reservations.isEmpty()) {
+            asyncResponse.resume(Response.status(400).entity("{\"error\": \"Please add reservations details!\"}").build());
+            return;
+        }
+        if (reservations.size() > maxSize) {
+            asyncResponse.resume(tooManyReservations(maxSize));
+            return;
+        }
+        for (int i = 0; i < reservations.size(); i++) {
+            Reservation reservation = reservations.get(i);
+            if (!Validator.isReservationExists(reservation) || !Validator.isReservationValid(reservation)
+                    || reservation.getEmployeeId() == null) {
+                asyncResponse.resume(Response.status(400)
+                        .entity("{\"error\": \"Some details of reservation #" + i + " are missing!\"}").build());
+                return;
+            }
+        }
 
-        int reservationId = 0;
+        DbExecutor.submitWrite(asyncResponse, () -> {
+            ReservationDAO reservationDAO = new ReservationDAO();
+            int[] reservationIds = reservationDAO.addReservations(reservations);
 
-        reservationId = reservationDAO.addReservation(reservation);
+            StringBuilder json = new StringBuilder("{\"reservationIds\":[");
+            for (int i = 0; i < reservationIds.length; i++) {
+                json.append(i == 0 ? "" : ",").append(reservationIds[i]);
+            }
+            json.append("]}");
 
-        if (reservationId <= 0) {
-            return Response.status(400).entity("{\"error\":\"An error occured while adding reservation. Please try again\"}").build();
-        }
+            return Response.status(201).entity(json.toString()).build();
+        });
+    }
 
-        return Response
-                .created(new URI("reservations/" + reservationId))
-                .entity("{\"reservationId\":" + reservationId + "}")
-                .build();
+    private static Response tooManyReservations(int maxSize) {
+        return Response.status(413)
+                .entity("{\"error\": \"Too many reservations, at most " + maxSize + " per request!\"}").build();
     }
 
     /**
@@ -239,24 +678,25 @@ public class ReservationsResource extends ResourceConfig {
      * these tables, it will also remove related payment(s), which holds
      * reservation id. Not good idea, but works for demo purposes.
      *
+     * @param asyncResponse
      * @param id
-     * @return an instance of java.lang.String
-     * @throws java.sql.SQLException
      */
     @DELETE
     @Secured
     @Path("{id}")
-    public Response deleteReservation(@PathParam("id") int id) throws SQLException {
-
-        ReservationDAO reservationDAO = new ReservationDAO();
-        int deleteStatus = reservationDAO.deleteReservation(id);
-
-        if (deleteStatus != 1) {
-            return Response.status(400).entity("{\"error\":\"An error occured while removing reservation. "
-                    + "Please try again\"}").build();
-        } else {
-            return Response.status(202).entity("{\"message\":\"Reservation and payment info were removed\"}").build();
-        }
+    public void deleteReservation(@Suspended final AsyncResponse asyncResponse, @PathParam("id") int id) {
+
+        DbExecutor.submit(asyncResponse, () -> {
+            ReservationDAO reservationDAO = new ReservationDAO();
+            int deleteStatus = reservationDAO.deleteReservation(id);
+
+            if (deleteStatus != 1) {
+                return Response.status(400).entity("{\"error\":\"An error occured while removing reservation. "
+                        + "Please try again\"}").build();
+            } else {
+                return Response.status(202).entity("{\"message\":\"Reservation and payment info were removed\"}").build();
+            }
+        });
     }
 
     @OPTIONS
@@ -1,23 +1,36 @@
 package com.mykolabs.hotel.resource;
 
 import com.mykolabs.hotel.authentication.Secured;
+import com.mykolabs.hotel.cache.EntityVersions;
+import com.mykolabs.hotel.cache.RoomCatalog;
+import com.mykolabs.hotel.json.PayloadCache;
+import com.mykolabs.hotel.json.SerializedPayload;
 import com.mykolabs.hotel.beans.Reservation;
 import com.mykolabs.hotel.beansLists.ReservationList;
 import com.mykolabs.hotel.persistence.ReservationDAO;
+import com.mykolabs.hotel.util.DbExecutor;
+import com.mykolabs.hotel.util.IdList;
 import com.mykolabs.hotel.util.Validator;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.sql.SQLException;
+import java.util.List;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
 import javax.ws.rs.GET;
 import javax.ws.rs.OPTIONS;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.PUT;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import org.glassfish.jersey.server.ResourceConfig;
 
@@ -41,6 +54,8 @@ import com.mykolabs.hotel.persistence.RoomDAO;
 @Path("rooms")
 public class RoomResource extends ResourceConfig {
 
+    private static final String ROOM_LIST_KEY = "rooms";
+
     /**
      * Creates a new instance of BooksResource
      */
@@ -67,139 +82,230 @@ public class RoomResource extends ResourceConfig {
      * Retrieves ALL rooms from the DB. Future enhancement - add limits by
      * DateOfEntry - start / end date.
      *
-     * @return an instance of java.lang.String
-     * @throws java.sql.SQLException
+     * @param asyncResponse
+     * @param request
      */
     @GET
     @Secured
     @Produces(MediaType.APPLICATION_JSON)
-    public RoomList getAllRooms() throws SQLException {
+    public void getAllRooms(@Suspended final AsyncResponse asyncResponse, @Context Request request) {
 
-        RoomList roomList = new RoomList();
-        RoomDAO roomDAO = new RoomDAO();
-        // retrieving rooms from the DB
-        roomList.setRoomList(roomDAO.getAllRooms(0, 100, true));
+        EntityTag tag = EntityVersions.collectionTag(EntityVersions.Kind.ROOM);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            asyncResponse.resume(notModified.build());
+            return;
+        }
 
-        return roomList;
+        DbExecutor.submit(asyncResponse, () -> {
+            // serialized once per catalog version
+            SerializedPayload payload = PayloadCache.getInstance().get(ROOM_LIST_KEY,
+                    RoomCatalog.getInstance().getVersion(), () -> {
+                        RoomList roomList = new RoomList();
+                        RoomDAO roomDAO = new RoomDAO();
+                        // retrieving rooms from the DB
+                        roomList.setRoomList(roomDAO.getAllRooms(0, 100, true));
+                        return roomList;
+                    });
+
+            return Response.ok().entity(payload).tag(tag).build();
+        });
     }
 
     /**
      * Retrieves ALL rooms from the DB which match provided search criteria.
      *
+     * @param asyncResponse
      * @param roomSearch
-     * @return an instance of java.lang.String
-     * @throws java.sql.SQLException
      */
     @POST
     @Secured
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/availablerooms")
-    public RoomList getAllavailableRooms(final RoomSearch roomSearch) throws SQLException {
+    public void getAllavailableRooms(@Suspended final AsyncResponse asyncResponse, final RoomSearch roomSearch) {
 
-        RoomList roomList = new RoomList();
-        RoomDAO roomDAO = new RoomDAO();
-        // retrieving rooms from the DB
-        roomList.setRoomList(roomDAO.getAllAvailableRooms(roomSearch));
+        DbExecutor.submit(asyncResponse, () -> {
+            RoomList roomList = new RoomList();
+            RoomDAO roomDAO = new RoomDAO();
+            // retrieving rooms from the DB
+            roomList.setRoomList(roomDAO.getAllAvailableRooms(roomSearch));
 
-        return roomList;
+            return roomList;
+        });
     }
 
     /**
      * Retrieves single room from the DB by provided ID.
      *
+     * Answers 304 without a DB access when If-None-Match carries the current
+     * ETag.
+     *
+     * @param asyncResponse
      * @param id
-     * @return an instance of java.lang.String
-     * @throws java.sql.SQLException
+     * @param request
      */
     @GET
     @Secured
     @Path("{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getRoom(@PathParam("id") int id) throws SQLException {
-
-        if (id < 0) {
-            return Response.noContent().build();
+    public void getRoom(@Suspended final AsyncResponse asyncResponse, @PathParam("id") int id,
+            @Context Request request) {
+
+        EntityTag tag = EntityVersions.tag(EntityVersions.Kind.ROOM, id);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            // client's copy is current, no need to touch the DB
+            asyncResponse.resume(notModified.build());
+            return;
         }
 
-        RoomDAO roomDAO = new RoomDAO();
-        // retrieving room from the DB
-        Room singleRoomFromDB = roomDAO.getRoom(id);
+        DbExecutor.submit(asyncResponse, () -> {
+            if (id < 0) {
+                return Response.noContent().build();
+            }
+
+            RoomDAO roomDAO = new RoomDAO();
+            // retrieving room from the DB
+            Room singleRoomFromDB = roomDAO.getRoom(id);
 
-        GenericEntity<Room> entity = new GenericEntity<>(singleRoomFromDB, Room.class);
+            GenericEntity<Room> entity = new GenericEntity<>(singleRoomFromDB, Room.class);
 
-        return Response.ok().entity(entity).build();
+            return Response.ok().entity(entity).tag(tag).build();
+        });
+    }
+
+    /**
+     * Retrieves several rooms at once, e.g. GET rooms/batch?ids=101,102,205,
+     * in the order of the ids. Unknown numbers are skipped.
+     *
+     * @param asyncResponse
+     * @param ids comma separated room numbers
+     */
+    @GET
+    @Secured
+    @Path("/batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getRooms(@Suspended final AsyncResponse asyncResponse, @QueryParam("ids") String ids) {
+        findRooms(asyncResponse, IdList.parse(ids));
+    }
+
+    /**
+     * Same as GET rooms/batch for id lists posted as a JSON array.
+     *
+     * @param asyncResponse
+     * @param ids
+     */
+    @POST
+    @Secured
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/batch")
+    public void getRooms(@Suspended final AsyncResponse asyncResponse, final List<Integer> ids) {
+        findRooms(asyncResponse, IdList.distinct(ids));
+    }
+
+    private void findRooms(final AsyncResponse asyncResponse, final List<Integer> roomNumbers) {
+
+        DbExecutor.submit(asyncResponse, () -> {
+            String error = IdList.validate(roomNumbers);
+            if (error != null) {
+                return Response.status(400).entity(error).build();
+            }
+
+            RoomList roomList = new RoomList();
+            // single query, or none while the catalog is cached
+            roomList.setRoomList(new RoomDAO().getRooms(roomNumbers));
+
+            return Response.ok().entity(roomList).build();
+        });
     }
 
     /**
      * PUT method for updating an instance of Room
      *
+     * Honours If-Match, answering 412 when the entity changed meanwhile.
+     *
+     * @param asyncResponse
+     * @param request
      * @param room
-     * @return
-     * @throws java.sql.SQLException
      */
     @PUT
     @Secured
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/update")
-    public Response editRoom(final Room room) throws SQLException {
+    public void editRoom(@Suspended final AsyncResponse asyncResponse, @Context Request request,
+            final Room room) {
 
-        if (!Validator.isRoomExists(room)) {
-            return Response.status(400).entity("{\"error\": \"Please add room details!\"}").build();
-        }
+        DbExecutor.submitWrite(asyncResponse, () -> {
+            if (!Validator.isRoomExists(room)) {
+                return Response.status(400).entity("{\"error\": \"Please add room details!\"}").build();
+            }
 
-        if (!Validator.isRoomValid(room)) {
-            return Response.status(400).entity("{\"error\": \"Some room details are missing!\"}").build();
-        }
+            if (!Validator.isRoomValid(room)) {
+                return Response.status(400).entity("{\"error\": \"Some room details are missing!\"}").build();
+            }
 
-        RoomDAO roomDAO = new RoomDAO();
+            RoomDAO roomDAO = new RoomDAO();
 
-        int roomStatus = 0;
+            int roomStatus = 0;
+            EntityTag updatedTag;
 
-        roomStatus = roomDAO.updateRoom(room);
+            // optimistic concurrency, If-Match must carry the current ETag
+            synchronized (EntityVersions.updateLock(EntityVersions.Kind.ROOM, room.getRoomNumber())) {
+                Response.ResponseBuilder preconditionFailed = request.evaluatePreconditions(
+                        EntityVersions.tag(EntityVersions.Kind.ROOM, room.getRoomNumber()));
+                if (preconditionFailed != null) {
+                    return preconditionFailed.build();
+                }
 
-        if (roomStatus != 1) {
-            return Response.status(400).entity("{\"error\":\"An error occured while updating room details. Please try again\"}").build();
-        }
+                roomStatus = roomDAO.updateRoom(room);
+                updatedTag = EntityVersions.tag(EntityVersions.Kind.ROOM, room.getRoomNumber());
+            }
 
-        return Response.ok().entity(room).build();
+            if (roomStatus != 1) {
+                return Response.status(400).entity("{\"error\":\"An error occured while updating room details. Please try again\"}").build();
+            }
+
+            return Response.ok().entity(room).tag(updatedTag).build();
+        });
     }
 
     /**
      * POST method for creating an instance of Room
      *
+     * @param asyncResponse
      * @param room
-     * @return
-     * @throws java.net.URISyntaxException
-     * @throws java.sql.SQLException
      */
     @POST
     @Secured
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/create")
-    public Response addRoom(final Room room) throws URISyntaxException, SQLException, Exception {
+    public void addRoom(@Suspended final AsyncResponse asyncResponse, final Room room) {
 
-        if (!Validator.isRoomExists(room)) {
-            return Response.status(400).entity("{\"error\": \"Please add room details!\"}").build();
-        }
+        DbExecutor.submitWrite(asyncResponse, () -> {
+            if (!Validator.isRoomExists(room)) {
+                return Response.status(400).entity("{\"error\": \"Please add room details!\"}").build();
+            }
 
-        if (!Validator.isRoomValid(room)) {
-            return Response.status(400).entity("{\"error\": \"Some room details are missing!\"}").build();
-        }
+            if (!Validator.isRoomValid(room)) {
+                return Response.status(400).entity("{\"error\": \"Some room details are missing!\"}").build();
+            }
 
-        RoomDAO roomDAO = new RoomDAO();
+            RoomDAO roomDAO = new RoomDAO();
 
-        int roomStatus = 0;
+            int roomStatus = 0;
 
-        roomStatus = roomDAO.addRoom(room);
+            roomStatus = roomDAO.addRoom(room);
 
-        if (roomStatus != 1) {
-            return Response.status(400).entity("{\"error\":\"An error occured while adding a room. Please try again\"}").build();
-        }
+            if (roomStatus != 1) {
+                return Response.status(400).entity("{\"error\":\"An error occured while adding a room. Please try again\"}").build();
+            }
 
-        return Response.created(new URI("rooms/" + room.getRoomNumber())).build();
+            return Response.created(new URI("rooms/" + room.getRoomNumber())).build();
+        });
     }
 
     @OPTIONS
@@ -0,0 +1,86 @@
+package com.mykolabs.hotel.util;
+
+import com.mykolabs.hotel.authentication.LoginExecutor;
+import com.mykolabs.hotel.cache.ArrivalsIndex;
+import com.mykolabs.hotel.cache.CustomerSearchIndex;
+import com.mykolabs.hotel.cache.OccupancyRollup;
+import com.mykolabs.hotel.cache.ReservationCacheSync;
+import com.mykolabs.hotel.cache.RoomAvailabilityIndex;
+import com.mykolabs.hotel.events.ChangeLogTailer;
+import com.mykolabs.hotel.events.ReservationEventBus;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * Application lifecycle hooks. Loads the configuration, pre-warms the DB
+ * connection pool and in-memory indexes on deploy, releases them on undeploy.
+ * Registered in web.xml.
+ *
+ * @author nikprixmar
+ */
+public class AppContextListener implements ServletContextListener {
+
+    private static final Logger log = Logger.getLogger(AppContextListener.class.getName());
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ConfigurationManager.get();
+        ConfigurationManager.startWatching();
+
+        try {
+            log.log(Level.INFO, "DB pool started: {0}", ConnectionHelper.getPool());
+        } catch (RuntimeException ex) {
+            // app can still start, pool will be created on first request
+            log.log(Level.SEVERE, "Unable to start DB connection pool", ex);
+        }
+
+        // before the indexes load, so changes of other nodes made meanwhile are not missed
+        ChangeLogTailer.getInstance().addListener(new ReservationCacheSync());
+        try {
+            ChangeLogTailer.getInstance().start();
+        } catch (SQLException | RuntimeException ex) {
+            log.log(Level.WARNING, "Unable to start change log tailing", ex);
+        }
+
+        try {
+            RoomAvailabilityIndex.getInstance().ensureLoaded();
+        } catch (SQLException | RuntimeException ex) {
+            // will be loaded on first availability search
+            log.log(Level.WARNING, "Unable to load room availability index", ex);
+        }
+
+        try {
+            ArrivalsIndex.getInstance().ensureLoaded();
+        } catch (SQLException | RuntimeException ex) {
+            // will be loaded on first arrivals request
+            log.log(Level.WARNING, "Unable to load arrivals index", ex);
+        }
+
+        try {
+            OccupancyRollup.getInstance().ensureLoaded();
+        } catch (SQLException | RuntimeException ex) {
+            // will be loaded on first report
+            log.log(Level.WARNING, "Unable to load occupancy rollup", ex);
+        }
+
+        try {
+            CustomerSearchIndex.getInstance().ensureLoaded();
+        } catch (SQLException | RuntimeException ex) {
+            // will be loaded on first customer search
+            log.log(Level.WARNING, "Unable to load customer search index", ex);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        ConfigurationManager.stopWatching();
+        ChangeLogTailer.getInstance().stop();
+        ReservationEventBus.getInstance().shutdown();
+        DbExecutor.shutdown();
+        LoginExecutor.shutdown();
+        ConnectionHelper.shutdown();
+    }
+}
@@ -0,0 +1,159 @@
+package com.mykolabs.hotel.util;
+
+import com.mykolabs.hotel.metrics.MetricsRegistry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Fixed size worker pool with a bounded queue, completing suspended JAX-RS
+ * requests. Work which can't be queued, or isn't answered in time, is
+ * answered with 503 and a Retry-After header instead of piling up. Writes
+ * which time out after they started are answered with 504 and no
+ * Retry-After instead: they may still commit, a retry could apply them twice.
+ *
+ * Exports queue wait, rejections, timeouts and worker/queue gauges under
+ * hotel_&lt;name&gt;_executor_*.
+ *
+ * @author nikprixmar
+ */
+public class AsyncExecutor {
+
+    private static final Logger log = Logger.getLogger(AsyncExecutor.class.getName());
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final String queueWaitMetric;
+    private final String rejectedMetric;
+    private final String timedOutMetric;
+
+    /**
+     * Creates the executor, threads are started on demand.
+     *
+     * @param name short name used for threads and metrics, e.g. "db"
+     * @param threads
+     * @param queueSize
+     */
+    public AsyncExecutor(String name, int threads, int queueSize) {
+        this.name = name;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "hotel-" + name + "-worker-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        String prefix = "hotel_" + name + "_executor_";
+        this.queueWaitMetric = prefix + "queue_wait_seconds";
+        this.rejectedMetric = prefix + "rejected_total";
+        this.timedOutMetric = prefix + "timeouts_total";
+        MetricsRegistry.describe(queueWaitMetric, "Time work waited for a free " + name + " worker.");
+        MetricsRegistry.gauge(prefix + "active_workers", executor::getActiveCount);
+        MetricsRegistry.gauge(prefix + "queued_tasks", () -> executor.getQueue().size());
+
+        log.log(Level.INFO, "{0} executor started, threads: {1}, queue: {2}", new Object[]{name, threads, queueSize});
+    }
+
+    /**
+     * Runs the call on a worker and resumes the response with its result: a
+     * Response or an entity. Exceptions are passed to the exception mappers.
+     *
+     * @param asyncResponse suspended response of the current request
+     * @param call
+     * @param timeoutMillis max time until the response is resumed
+     * @param retryAfterSeconds sent with 503 responses
+     */
+    public void submit(AsyncResponse asyncResponse, Callable<Object> call, long timeoutMillis, int retryAfterSeconds) {
+        submit(asyncResponse, call, timeoutMillis, retryAfterSeconds, true);
+    }
+
+    /**
+     * Like submit(), for calls which must not be repeated, e.g. creates. If
+     * the call started before the timeout, the client gets 504 without
+     * Retry-After: the outcome is unknown.
+     *
+     * @param asyncResponse suspended response of the current request
+     * @param call
+     * @param timeoutMillis max time until the response is resumed
+     * @param retryAfterSeconds sent with 503 responses
+     */
+    public void submitWrite(AsyncResponse asyncResponse, Callable<Object> call, long timeoutMillis, int retryAfterSeconds) {
+        submit(asyncResponse, call, timeoutMillis, retryAfterSeconds, false);
+    }
+
+    private void submit(AsyncResponse asyncResponse, Callable<Object> call, long timeoutMillis, int retryAfterSeconds,
+            boolean idempotent) {
+
+        // claimed by either the worker or the timeout, whichever comes first
+        AtomicBoolean started = new AtomicBoolean();
+
+        // set up before submitting, the call may complete right away
+        asyncResponse.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(response -> {
+            MetricsRegistry.counter(timedOutMetric, "").increment();
+            if (started.compareAndSet(false, true) || idempotent) {
+                response.resume(unavailable("Request timed out, please retry later", retryAfterSeconds));
+            } else {
+                response.resume(Response.status(Response.Status.GATEWAY_TIMEOUT)
+                        .type(MediaType.APPLICATION_JSON)
+                        .entity("{\"error\": \"Request timed out, it may or may not have been applied\"}")
+                        .build());
+            }
+        });
+
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                MetricsRegistry.histogram(queueWaitMetric, "").recordNanos(System.nanoTime() - enqueuedAt);
+                if (!started.compareAndSet(false, true)) {
+                    // timed out while queued, skip the work
+                    return;
+                }
+                try {
+                    asyncResponse.resume(call.call());
+                } catch (Exception ex) {
+                    asyncResponse.resume(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            MetricsRegistry.counter(rejectedMetric, "").increment();
+            log.log(Level.WARNING, "{0} executor saturated, rejecting request", name);
+            asyncResponse.resume(unavailable("Server is busy, please retry later", retryAfterSeconds));
+        }
+    }
+
+    /**
+     * Stops accepting work and waits briefly for running tasks.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private static Response unavailable(String message, int retryAfter) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", retryAfter)
+                .type(MediaType.APPLICATION_JSON)
+                .entity("{\"error\": \"" + message + "\"}")
+                .build();
+    }
+}
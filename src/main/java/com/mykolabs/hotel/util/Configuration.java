@@ -0,0 +1,123 @@
+package com.mykolabs.hotel.util;
+
+import java.util.Objects;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Immutable snapshot of the application configuration (DB properties file).
+ * Obtained from ConfigurationManager; a reload produces a new snapshot rather
+ * than modifying this one.
+ *
+ * @author nikprixmar
+ */
+public final class Configuration {
+
+    private static final Logger log = Logger.getLogger(Configuration.class.getName());
+
+    private final Properties props;
+    private final long loadedAt;
+
+    public Configuration(Properties source) {
+        // private copy, so later changes to the source don't leak in
+        this.props = new Properties();
+        this.props.putAll(source);
+        this.loadedAt = System.currentTimeMillis();
+    }
+
+    public String getString(String name) {
+        return props.getProperty(name);
+    }
+
+    public String getString(String name, String defaultValue) {
+        return props.getProperty(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        return (int) getLong(name, defaultValue);
+    }
+
+    public long getLong(String name, long defaultValue) {
+        String value = props.getProperty(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            log.log(Level.WARNING, "Invalid value for {0}: {1}, using default", new Object[]{name, value});
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String name, boolean defaultValue) {
+        String value = props.getProperty(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Base URL prepended to partial room image paths, selected by
+     * IMG_ENVIRONMENT.
+     *
+     * @return
+     */
+    public String getImageBaseUrl() {
+        return props.getProperty(props.getProperty("IMG_ENVIRONMENT", ""), "");
+    }
+
+    /**
+     * Checks if DB connection settings differ from the other snapshot.
+     *
+     * @param other
+     * @return
+     */
+    public boolean isSameDatabase(Configuration other) {
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith("DB_") && !Objects.equals(getString(name), other.getString(name))) {
+                return false;
+            }
+        }
+        for (String name : other.props.stringPropertyNames()) {
+            if (name.startsWith("DB_") && getString(name) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns all properties whose name starts with the prefix, with the
+     * prefix stripped from their names.
+     *
+     * @param prefix
+     * @return
+     */
+    public Properties getProperties(String prefix) {
+        Properties matching = new Properties();
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith(prefix) && name.length() > prefix.length()) {
+                matching.setProperty(name.substring(prefix.length()), props.getProperty(name));
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Returns a mutable copy of the underlying properties.
+     *
+     * @return
+     */
+    public Properties toProperties() {
+        Properties copy = new Properties();
+        copy.putAll(props);
+        return copy;
+    }
+
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+}
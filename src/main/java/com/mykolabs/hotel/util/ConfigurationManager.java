@@ -0,0 +1,197 @@
+package com.mykolabs.hotel.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the DB properties file once and keeps it as an immutable
+ * Configuration snapshot. reload() re-reads the file and atomically swaps the
+ * snapshot, notifying registered listeners. A file that can't be read or
+ * lacks a required key is rejected and the previous snapshot stays in use.
+ * Optionally watches the file and reloads on change.
+ *
+ * @author nikprixmar
+ */
+public class ConfigurationManager {
+
+    private static final Logger log = Logger.getLogger(ConfigurationManager.class.getName());
+
+    public static final String CONFIG_RESOURCE = "prod-db.properties";
+
+    // a snapshot without these can't reach the DB
+    private static final String[] REQUIRED_KEYS = {"DB_DRIVER_CLASS", "DB_URL"};
+
+    private static final AtomicReference<Configuration> current = new AtomicReference<>();
+    private static final List<Consumer<Configuration>> listeners = new CopyOnWriteArrayList<>();
+
+    private static volatile Thread watcher;
+
+    /**
+     * Returns current configuration snapshot, loading it on first use.
+     *
+     * @return
+     * @throws IllegalStateException if the file can't be loaded
+     */
+    public static Configuration get() {
+        Configuration config = current.get();
+        if (config == null) {
+            synchronized (ConfigurationManager.class) {
+                config = current.get();
+                if (config == null) {
+                    config = load();
+                    current.set(config);
+                }
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Re-reads the properties file, swaps the snapshot and notifies listeners.
+     * If the file can't be loaded the previous snapshot is kept and listeners
+     * are not notified.
+     *
+     * @return new configuration snapshot
+     * @throws IllegalStateException if the file can't be loaded
+     */
+    public static Configuration reload() {
+        Configuration config;
+        synchronized (ConfigurationManager.class) {
+            try {
+                config = load();
+            } catch (IllegalStateException ex) {
+                log.log(Level.WARNING, "Configuration not reloaded, keeping previous: {0}", ex.getMessage());
+                throw ex;
+            }
+            current.set(config);
+        }
+        log.log(Level.INFO, "Configuration reloaded");
+        for (Consumer<Configuration> listener : listeners) {
+            try {
+                listener.accept(config);
+            } catch (RuntimeException ex) {
+                log.log(Level.WARNING, "Configuration listener failed", ex);
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Registers a callback invoked with the new snapshot after each reload.
+     *
+     * @param listener
+     */
+    public static void addListener(Consumer<Configuration> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts a daemon thread reloading the configuration when the properties
+     * file changes. Only possible when the file is on the file system
+     * (exploded deployment); otherwise reload has to be triggered explicitly.
+     */
+    public static synchronized void startWatching() {
+        if (watcher != null) {
+            return;
+        }
+        URL url = ConfigurationManager.class.getClassLoader().getResource(CONFIG_RESOURCE);
+        if (url == null || !"file".equals(url.getProtocol())) {
+            log.log(Level.INFO, "{0} is not a plain file, file watch disabled", CONFIG_RESOURCE);
+            return;
+        }
+        final Path file;
+        try {
+            file = Paths.get(url.toURI());
+        } catch (URISyntaxException ex) {
+            log.log(Level.WARNING, "Unable to resolve configuration file", ex);
+            return;
+        }
+
+        watcher = new Thread(() -> watch(file), "hotel-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stops the file watch thread, if running.
+     */
+    public static synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    private static void watch(Path file) {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_CREATE);
+            log.log(Level.INFO, "Watching {0} for changes", file);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (file.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    try {
+                        reload();
+                    } catch (IllegalStateException ex) {
+                        // e.g. the file is half written, the next event retries
+                    }
+                }
+                if (!key.reset()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException ex) {
+            log.log(Level.WARNING, "Configuration file watch stopped", ex);
+        }
+    }
+
+    /**
+     * Reads the properties file from the classpath.
+     *
+     * @throws IllegalStateException if the file is missing, unreadable or
+     * lacks a required key
+     */
+    private static Configuration load() {
+        Properties props = new Properties();
+        try (InputStream in = ConfigurationManager.class.getClassLoader().getResourceAsStream(CONFIG_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Configuration file " + CONFIG_RESOURCE + " not found on classpath");
+            }
+            props.load(in);
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new IllegalStateException("Unable to read " + CONFIG_RESOURCE, ex);
+        }
+        for (String key : REQUIRED_KEYS) {
+            String value = props.getProperty(key);
+            if (value == null || value.trim().isEmpty()) {
+                throw new IllegalStateException(CONFIG_RESOURCE + " has no " + key);
+            }
+        }
+        return new Configuration(props);
+    }
+}
@@ -1,59 +1,138 @@
 package com.mykolabs.hotel.util;
 
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import com.mykolabs.hotel.metrics.MetricsRegistry;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
-import java.util.ResourceBundle;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * JDBC Connection Manager Utility class.
+ * JDBC Connection Manager Utility class. Hands out connections from a shared
+ * pool, configured from the application Configuration.
  *
  * @author nikprixmar
  */
 public class ConnectionHelper {
-    
+
+    private static final Logger log = Logger.getLogger(ConnectionHelper.class.getName());
+
+    // pool defaults, used when db properties don't override them
+    private static final int DEFAULT_POOL_MIN_SIZE = 2;
+    private static final int DEFAULT_POOL_MAX_SIZE = 10;
+    private static final long DEFAULT_POOL_BORROW_TIMEOUT_MS = 5000;
+    private static final long DEFAULT_POOL_IDLE_TIMEOUT_MS = 10 * 60 * 1000;
+    private static final long DEFAULT_POOL_MAX_LIFETIME_MS = 30 * 60 * 1000;
+    private static final int DEFAULT_POOL_VALIDATION_TIMEOUT_S = 2;
+
+    // db properties with this prefix are passed to the JDBC driver as is
+    private static final String DRIVER_PROPERTY_PREFIX = "DB_DRIVER_PROPERTY.";
+
+    private static volatile ConnectionPool pool;
+    // configuration the current pool was built from
+    private static Configuration poolConfig;
+
+    static {
+        ConfigurationManager.addListener(ConnectionHelper::onConfigurationReload);
+
+        // read on every metrics scrape, without creating the pool
+        MetricsRegistry.gauge("hotel_db_pool_active_connections", () -> pool == null ? 0 : pool.getActiveConnections());
+        MetricsRegistry.gauge("hotel_db_pool_idle_connections", () -> pool == null ? 0 : pool.getIdleConnections());
+        MetricsRegistry.gauge("hotel_db_pool_waiting_threads", () -> pool == null ? 0 : pool.getWaitingThreads());
+        MetricsRegistry.gauge("hotel_db_pool_max_connections", () -> pool == null ? 0 : pool.getMaxSize());
+        MetricsRegistry.gauge("hotel_db_pool_timeouts", () -> pool == null ? 0 : pool.getTimeoutCount());
+    }
+
+    /**
+     * Returns pooled Connection to the HOTEL DB. Closing the connection
+     * returns it to the pool.
+     *
+     * @return
+     * @throws java.sql.SQLException
+     */
+    public static Connection getConnection() throws SQLException {
+        return getPool().getConnection();
+    }
+
+    /**
+     * Returns the shared connection pool, creating it on first use.
+     *
+     * @return
+     */
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (ConnectionHelper.class) {
+                current = pool;
+                if (current == null) {
+                    poolConfig = ConfigurationManager.get();
+                    current = createPool(poolConfig);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Closes the shared pool, called on application shutdown.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
     /**
-     * Returns Connection to the BOOKS DB
-     * @return 
+     * Builds the pool from the DB configuration.
+     *
+     * @param config
+     * @return
      */
-    public static Connection getConnection() {
-		Properties props = getProperties();
-		Connection con = null;
-		try {
-			// load the Driver Class
-			Class.forName(props.getProperty("DB_DRIVER_CLASS"));
-
-			// create the connection now
-			con = DriverManager.getConnection(props.getProperty("DB_URL"),
-					props.getProperty("DB_USERNAME"),
-					props.getProperty("DB_PASSWORD"));
-		} catch (ClassNotFoundException | SQLException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-		return con;
-	}
-    
+    private static ConnectionPool createPool(Configuration config) {
+        return new ConnectionPool(
+                config.getString("DB_DRIVER_CLASS"),
+                config.getString("DB_URL"),
+                config.getString("DB_USERNAME"),
+                config.getString("DB_PASSWORD"),
+                config.getProperties(DRIVER_PROPERTY_PREFIX),
+                config.getInt("DB_POOL_MIN_SIZE", DEFAULT_POOL_MIN_SIZE),
+                config.getInt("DB_POOL_MAX_SIZE", DEFAULT_POOL_MAX_SIZE),
+                config.getLong("DB_POOL_BORROW_TIMEOUT_MS", DEFAULT_POOL_BORROW_TIMEOUT_MS),
+                config.getLong("DB_POOL_IDLE_TIMEOUT_MS", DEFAULT_POOL_IDLE_TIMEOUT_MS),
+                config.getLong("DB_POOL_MAX_LIFETIME_MS", DEFAULT_POOL_MAX_LIFETIME_MS),
+                config.getInt("DB_POOL_VALIDATION_TIMEOUT_S", DEFAULT_POOL_VALIDATION_TIMEOUT_S));
+    }
+
     /**
-     * Returns properties 
-     * @return 
+     * Replaces the pool when a configuration reload changed DB settings.
+     * Connections borrowed from the old pool are closed when returned.
+     *
+     * @param config
      */
-    public static Properties getProperties(){
-        Properties props = new Properties();
-        InputStream in = ConnectionHelper.class.getClassLoader().getResourceAsStream("prod-db.properties");
-        
-        try {
-            props.load(in);
-        } catch (IOException ex) {
-            Logger.getLogger(ConnectionHelper.class.getName()).log(Level.SEVERE, null, ex);
+    private static void onConfigurationReload(Configuration config) {
+        ConnectionPool old;
+        synchronized (ConnectionHelper.class) {
+            if (pool == null || (poolConfig != null && poolConfig.isSameDatabase(config))) {
+                return;
+            }
+            old = pool;
+            pool = createPool(config);
+            poolConfig = config;
         }
-        return props;
+        log.log(Level.INFO, "DB settings changed, connection pool replaced");
+        old.close();
+    }
+
+    /**
+     * Returns properties. Kept for callers which need a mutable copy, DAOs
+     * should use ConfigurationManager.get() instead.
+     *
+     * @return
+     */
+    public static Properties getProperties() {
+        return ConfigurationManager.get().toProperties();
     }
 
 }
@@ -0,0 +1,418 @@
+package com.mykolabs.hotel.util;
+
+import com.mykolabs.hotel.metrics.Metrics;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC connection pool. Connections are created up front (min size),
+ * validated on borrow, evicted when idle for too long or older than their max
+ * lifetime, and handed out as proxies which return themselves to the pool on
+ * close(). Each borrow gets its own proxy: once closed it stays closed, even
+ * after the physical connection has been handed to the next borrower.
+ *
+ * @author nikprixmar
+ */
+public class ConnectionPool {
+
+    private static final Logger log = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final String url;
+    private final Properties connectionProps;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int validationTimeoutSeconds;
+
+    // most recently returned connections are at the head of the deque
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    // one permit per connection which may exist, borrowed or idle
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * Creates the pool and pre-warms it with minSize connections.
+     *
+     * @param driverClass
+     * @param url
+     * @param username
+     * @param password
+     * @param driverProperties additional JDBC driver settings, may be empty
+     * @param minSize
+     * @param maxSize
+     * @param borrowTimeoutMillis
+     * @param idleTimeoutMillis
+     * @param maxLifetimeMillis
+     * @param validationTimeoutSeconds
+     */
+    public ConnectionPool(String driverClass, String url, String username, String password,
+            Properties driverProperties, int minSize, int maxSize, long borrowTimeoutMillis, long idleTimeoutMillis,
+            long maxLifetimeMillis, int validationTimeoutSeconds) {
+
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size, min: " + minSize + ", max: " + maxSize);
+        }
+
+        try {
+            // load the Driver Class
+            Class.forName(driverClass);
+        } catch (ClassNotFoundException ex) {
+            log.log(Level.SEVERE, "JDBC driver class not found: " + driverClass, ex);
+        }
+
+        this.url = url;
+        this.connectionProps = new Properties();
+        this.connectionProps.putAll(driverProperties);
+        this.connectionProps.setProperty("user", username);
+        this.connectionProps.setProperty("password", password);
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hotel-db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+
+        fillToMinimum();
+
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, maxLifetimeMillis) / 2);
+        housekeeper.scheduleWithFixedDelay(this::evictAndRefill, period, period, TimeUnit.MILLISECONDS);
+
+        log.log(Level.INFO, "Connection pool started, min: {0}, max: {1}, idle: {2}",
+                new Object[]{minSize, maxSize, idle.size()});
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to the borrow timeout for
+     * one to become available. Closing the returned connection gives it back
+     * to the pool.
+     *
+     * @return
+     * @throws SQLException if the pool is closed, exhausted or the DB is down
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        waitingThreads.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a DB connection", ex);
+        } finally {
+            waitingThreads.decrementAndGet();
+        }
+
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            Metrics.poolWait(System.nanoTime() - start);
+            throw new SQLException("Timed out after " + borrowTimeoutMillis
+                    + " ms waiting for a DB connection (active: " + activeConnections.get() + ")");
+        }
+
+        try {
+            PooledConnection pooled = takeValidIdleConnection();
+            if (pooled == null) {
+                pooled = createConnection();
+            }
+            activeConnections.incrementAndGet();
+            borrowCount.incrementAndGet();
+            long waited = System.nanoTime() - start;
+            totalWaitNanos.addAndGet(waited);
+            Metrics.poolWait(waited);
+            return new Lease(pooled).proxy;
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeping thread. Borrowed
+     * connections are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+        log.log(Level.INFO, "Connection pool closed");
+    }
+
+    /**
+     * Pops idle connections until a valid one is found. Invalid or expired
+     * connections are discarded.
+     */
+    private PooledConnection takeValidIdleConnection() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isExpired(pooled, System.currentTimeMillis()) || !isValid(pooled)) {
+                destroy(pooled);
+                evictedCount.incrementAndGet();
+                continue;
+            }
+            return pooled;
+        }
+        return null;
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.raw.isValid(validationTimeoutSeconds);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return now - pooled.createdAt > maxLifetimeMillis;
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, connectionProps);
+        totalConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(raw);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.raw.close();
+        } catch (SQLException ex) {
+            log.log(Level.FINE, "Error closing pooled connection", ex);
+        }
+    }
+
+    /**
+     * Returns a connection to the pool, called once per borrow from the
+     * proxy's close().
+     */
+    private void release(PooledConnection pooled) {
+        activeConnections.decrementAndGet();
+
+        boolean reusable = !closed && !isExpired(pooled, System.currentTimeMillis());
+        if (reusable) {
+            try {
+                // leave the connection the way the next borrower expects it
+                if (!pooled.raw.getAutoCommit()) {
+                    pooled.raw.rollback();
+                    pooled.raw.setAutoCommit(true);
+                }
+                pooled.raw.clearWarnings();
+            } catch (SQLException ex) {
+                reusable = false;
+            }
+        }
+
+        if (reusable) {
+            pooled.lastUsedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } else {
+            destroy(pooled);
+        }
+        permits.release();
+    }
+
+    /**
+     * Housekeeping task: drops connections idle for too long or past their
+     * lifetime (down to the minimum size) and tops the pool back up.
+     */
+    private void evictAndRefill() {
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                boolean idleTooLong = now - pooled.lastUsedAt > idleTimeoutMillis
+                        && totalConnections.get() > minSize;
+                if ((idleTooLong || isExpired(pooled, now)) && idle.remove(pooled)) {
+                    destroy(pooled);
+                    evictedCount.incrementAndGet();
+                }
+            }
+            fillToMinimum();
+        } catch (RuntimeException ex) {
+            log.log(Level.WARNING, "Connection pool housekeeping failed", ex);
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && totalConnections.get() < minSize && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = createConnection();
+                pooled.lastUsedAt = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException ex) {
+                log.log(Level.WARNING, "Unable to pre-warm DB connection: {0}", ex.getMessage());
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /* Pool statistics */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    public int getWaitingThreads() {
+        return waitingThreads.get();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    /**
+     * Average time spent waiting for a connection, in microseconds.
+     *
+     * @return
+     */
+    public long getAverageWaitMicros() {
+        long borrows = borrowCount.get();
+        return borrows == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get()) / borrows;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool[total=" + getTotalConnections() + ", active=" + getActiveConnections()
+                + ", idle=" + getIdleConnections() + ", waiting=" + getWaitingThreads()
+                + ", borrows=" + getBorrowCount() + ", timeouts=" + getTimeoutCount()
+                + ", avgWaitMicros=" + getAverageWaitMicros() + "]";
+    }
+
+    /**
+     * Physical connection with its pool bookkeeping.
+     */
+    private static final class PooledConnection {
+
+        private final Connection raw;
+        private final long createdAt;
+        private volatile long lastUsedAt;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection, handed out to DAOs as a proxy. The
+     * first close() returns the connection, later calls through the proxy
+     * fail instead of reaching the next borrower's session.
+     */
+    private final class Lease implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private final Connection proxy;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+            this.proxy = (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxyObj, Method method, Object[] args) throws Throwable {
+            Connection raw = pooled.raw;
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || raw.isClosed();
+                case "equals":
+                    return proxyObj == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxyObj);
+                case "toString":
+                    return "Pooled" + raw.toString();
+                default:
+                    if (returned.get()) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(raw, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -10,21 +10,18 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Date;
 
 /**
+ * Writes LocalDateTime as "yyyy-MM-dd HH:mm:ss" through DateTimeCodec, from
+ * a per thread char buffer (the generator copies it).
  *
  * @author nikprixmar
  */
 public class CustomDateSerializer extends StdSerializer<LocalDateTime> {
-    // private SimpleDateFormat formatter = new SimpleDateFormat("dd/MM/yyyy hh:mm a z");
 
-    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    // LocalDateTime localDateTime = LocalDateTime.parse(dateTime, formatter);
- 
+    private static final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[DateTimeCodec.LENGTH]);
+
     public CustomDateSerializer() {
         this(null);
     }
@@ -36,6 +33,12 @@ public class CustomDateSerializer extends StdSerializer<LocalDateTime> {
     @Override
     public void serialize (LocalDateTime value, JsonGenerator gen, SerializerProvider arg2)
       throws IOException, JsonProcessingException {
-        gen.writeString(formatter.format(value));
+        char[] buffer = buffers.get();
+        int len = DateTimeCodec.format(value, buffer, 0);
+        if (len < 0) {
+            gen.writeString(DateTimeCodec.FORMATTER.format(value));
+        } else {
+            gen.writeString(buffer, 0, len);
+        }
     }
 }
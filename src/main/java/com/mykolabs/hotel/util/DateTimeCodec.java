@@ -0,0 +1,146 @@
+package com.mykolabs.hotel.util;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Reads and writes LocalDateTime in the fixed "yyyy-MM-dd HH:mm:ss" wire
+ * format straight from and into char arrays, without going through
+ * DateTimeFormatter or intermediate Strings.
+ *
+ * Anything the fast path does not recognise (other lengths, years outside
+ * 0001-9999, out of range fields) is handed to FORMATTER, so results and
+ * errors stay the same as with the formatter alone.
+ *
+ * @author nikprixmar
+ */
+public final class DateTimeCodec {
+
+    public static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+    public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(PATTERN);
+
+    /* length of a formatted value */
+    public static final int LENGTH = 19;
+
+    private DateTimeCodec() {
+    }
+
+    /**
+     * Parses len chars of buffer starting at offset.
+     *
+     * @param buffer
+     * @param offset
+     * @param len
+     * @return
+     * @throws java.time.format.DateTimeParseException if the text is not a
+     * valid date and time
+     */
+    public static LocalDateTime parse(char[] buffer, int offset, int len) {
+        LocalDateTime value = len == LENGTH ? parseFixed(buffer, offset) : null;
+        if (value == null) {
+            value = LocalDateTime.parse(new String(buffer, offset, len), FORMATTER);
+        }
+        return value;
+    }
+
+    /**
+     * Parses a String value.
+     *
+     * @param text
+     * @return
+     * @throws java.time.format.DateTimeParseException if the text is not a
+     * valid date and time
+     */
+    public static LocalDateTime parse(String text) {
+        return parse(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Writes value into buffer, which must have room for LENGTH chars after
+     * offset.
+     *
+     * @param value
+     * @param buffer
+     * @param offset
+     * @return number of chars written, or -1 if the value has to go through
+     * FORMATTER (year outside 0001-9999)
+     */
+    public static int format(LocalDateTime value, char[] buffer, int offset) {
+        int year = value.getYear();
+        if (year < 1 || year > 9999) {
+            return -1;
+        }
+        write4(buffer, offset, year);
+        buffer[offset + 4] = '-';
+        write2(buffer, offset + 5, value.getMonthValue());
+        buffer[offset + 7] = '-';
+        write2(buffer, offset + 8, value.getDayOfMonth());
+        buffer[offset + 10] = ' ';
+        write2(buffer, offset + 11, value.getHour());
+        buffer[offset + 13] = ':';
+        write2(buffer, offset + 14, value.getMinute());
+        buffer[offset + 16] = ':';
+        write2(buffer, offset + 17, value.getSecond());
+        return LENGTH;
+    }
+
+    /**
+     * Formats a value into a String.
+     *
+     * @param value
+     * @return
+     */
+    public static String format(LocalDateTime value) {
+        char[] buffer = new char[LENGTH];
+        return format(value, buffer, 0) == LENGTH ? new String(buffer) : FORMATTER.format(value);
+    }
+
+    private static LocalDateTime parseFixed(char[] b, int o) {
+        if (b[o + 4] != '-' || b[o + 7] != '-' || b[o + 10] != ' '
+                || b[o + 13] != ':' || b[o + 16] != ':') {
+            return null;
+        }
+        int year = read4(b, o);
+        int month = read2(b, o + 5);
+        int day = read2(b, o + 8);
+        int hour = read2(b, o + 11);
+        int minute = read2(b, o + 14);
+        int second = read2(b, o + 17);
+        // yyyy is year-of-era, leave year 0 to the formatter
+        if ((year | month | day | hour | minute | second) < 0 || year == 0) {
+            return null;
+        }
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second);
+        } catch (DateTimeException ex) {
+            // e.g. 31st of a 30 day month, the formatter decides
+            return null;
+        }
+    }
+
+    private static int read2(char[] b, int o) {
+        int d1 = b[o] - '0';
+        int d2 = b[o + 1] - '0';
+        if (d1 < 0 || d1 > 9 || d2 < 0 || d2 > 9) {
+            return -1;
+        }
+        return d1 * 10 + d2;
+    }
+
+    private static int read4(char[] b, int o) {
+        int high = read2(b, o);
+        int low = read2(b, o + 2);
+        return high < 0 || low < 0 ? -1 : high * 100 + low;
+    }
+
+    private static void write2(char[] b, int o, int value) {
+        b[o] = (char) ('0' + value / 10);
+        b[o + 1] = (char) ('0' + value % 10);
+    }
+
+    private static void write4(char[] b, int o, int value) {
+        write2(b, o, value / 100);
+        write2(b, o + 2, value % 100);
+    }
+}
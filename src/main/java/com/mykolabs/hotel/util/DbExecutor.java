@@ -0,0 +1,83 @@
+package com.mykolabs.hotel.util;
+
+import java.util.concurrent.Callable;
+import javax.ws.rs.container.AsyncResponse;
+
+/**
+ * Bounded executor running DAO work of suspended (async) JAX-RS requests, so
+ * container threads are not blocked on JDBC. Sized to the connection pool:
+ * more workers than connections would only queue up on the pool.
+ *
+ * When all workers are busy and the queue is full, or a request was not
+ * answered within ASYNC_REQUEST_TIMEOUT_MS, the client gets 503 with a
+ * Retry-After header. Writes submitted with submitWrite() which time out
+ * while running get 504 without Retry-After, as they may still commit.
+ *
+ * @author nikprixmar
+ */
+public class DbExecutor {
+
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+    private static final long DEFAULT_REQUEST_TIMEOUT_MS = 10000;
+    private static final int DEFAULT_RETRY_AFTER_SECONDS = 2;
+
+    private static volatile AsyncExecutor executor;
+
+    /**
+     * Runs the call on a DB worker and resumes the response with its result:
+     * a Response or an entity. Exceptions are passed to the exception
+     * mappers.
+     *
+     * @param asyncResponse suspended response of the current request
+     * @param call DAO work
+     */
+    public static void submit(AsyncResponse asyncResponse, Callable<Object> call) {
+        Configuration config = ConfigurationManager.get();
+        getExecutor().submit(asyncResponse, call,
+                config.getLong("ASYNC_REQUEST_TIMEOUT_MS", DEFAULT_REQUEST_TIMEOUT_MS),
+                config.getInt("ASYNC_RETRY_AFTER_SECONDS", DEFAULT_RETRY_AFTER_SECONDS));
+    }
+
+    /**
+     * Like submit(), for DAO work which must not be repeated, e.g. creates. A
+     * call which times out after it started is answered with 504 and no
+     * Retry-After.
+     *
+     * @param asyncResponse suspended response of the current request
+     * @param call DAO work
+     */
+    public static void submitWrite(AsyncResponse asyncResponse, Callable<Object> call) {
+        Configuration config = ConfigurationManager.get();
+        getExecutor().submitWrite(asyncResponse, call,
+                config.getLong("ASYNC_REQUEST_TIMEOUT_MS", DEFAULT_REQUEST_TIMEOUT_MS),
+                config.getInt("ASYNC_RETRY_AFTER_SECONDS", DEFAULT_RETRY_AFTER_SECONDS));
+    }
+
+    /**
+     * Stops accepting work and waits briefly for running tasks, called on
+     * application shutdown.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private static AsyncExecutor getExecutor() {
+        AsyncExecutor current = executor;
+        if (current == null) {
+            synchronized (DbExecutor.class) {
+                current = executor;
+                if (current == null) {
+                    Configuration config = ConfigurationManager.get();
+                    current = new AsyncExecutor("db",
+                            config.getInt("ASYNC_EXECUTOR_THREADS", ConnectionHelper.getPool().getMaxSize()),
+                            config.getInt("ASYNC_EXECUTOR_QUEUE_SIZE", DEFAULT_QUEUE_SIZE));
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mykolabs.hotel.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Id lists of the multi-get endpoints, e.g. GET /rooms/batch?ids=1,2,3 or a
+ * JSON array posted to the same path.
+ *
+ * @author nikprixmar
+ */
+public final class IdList {
+
+    /* used when MULTI_GET_MAX_IDS is not configured */
+    public static final int DEFAULT_MAX_IDS = 200;
+
+    private IdList() {
+    }
+
+    /**
+     * Parses comma separated ids, dropping duplicates but keeping the order.
+     *
+     * @param ids
+     * @return parsed ids, or null if the list is missing or malformed
+     */
+    public static List<Integer> parse(String ids) {
+        if (ids == null) {
+            return null;
+        }
+        Set<Integer> parsed = new LinkedHashSet<>();
+        for (String id : ids.split(",")) {
+            try {
+                parsed.add(Integer.valueOf(id.trim()));
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+        return new ArrayList<>(parsed);
+    }
+
+    /**
+     * Drops nulls and duplicates of a posted id array, keeping the order.
+     *
+     * @param ids
+     * @return distinct ids, or null if the array is missing
+     */
+    public static List<Integer> distinct(List<Integer> ids) {
+        if (ids == null) {
+            return null;
+        }
+        Set<Integer> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        return new ArrayList<>(distinct);
+    }
+
+    /**
+     * Checks the list against MULTI_GET_MAX_IDS.
+     *
+     * @param ids
+     * @return error message for a 400 response, or null if the list is fine
+     */
+    public static String validate(List<Integer> ids) {
+        int maxIds = ConfigurationManager.get().getInt("MULTI_GET_MAX_IDS", DEFAULT_MAX_IDS);
+        if (ids == null || ids.isEmpty()) {
+            return "{\"error\": \"Please add a comma separated list of ids!\"}";
+        }
+        if (ids.size() > maxIds) {
+            return "{\"error\": \"At most " + maxIds + " ids can be requested at once\"}";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.mykolabs.hotel.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the reservations listing, which is ordered by CHECKIN_DATE and
+ * RESERVATION_ID, both descending. Handed to clients as an opaque url-safe
+ * token pointing at the last reservation of a page.
+ *
+ * @author nikprixmar
+ */
+public final class ReservationCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime checkinDate;
+    private final int reservationId;
+
+    public ReservationCursor(LocalDateTime checkinDate, int reservationId) {
+        this.checkinDate = checkinDate;
+        this.reservationId = reservationId;
+    }
+
+    public LocalDateTime getCheckinDate() {
+        return checkinDate;
+    }
+
+    public int getReservationId() {
+        return reservationId;
+    }
+
+    /**
+     * Encodes the cursor into a token.
+     *
+     * @return
+     */
+    public String encode() {
+        String value = checkinDate.toString() + SEPARATOR + reservationId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by encode().
+     *
+     * @param token
+     * @return
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static ReservationCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed cursor: " + token);
+            }
+            return new ReservationCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Integer.parseInt(value.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException ex) {
+            throw new IllegalArgumentException("Malformed cursor: " + token, ex);
+        }
+    }
+}
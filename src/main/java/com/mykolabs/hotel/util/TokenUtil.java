@@ -1,10 +1,12 @@
 package com.mykolabs.hotel.util;
 
+import com.mykolabs.hotel.authentication.TokenClaims;
 import com.mykolabs.hotel.persistence.EmployeeDAO;
 import javax.crypto.spec.SecretKeySpec;
 import javax.xml.bind.DatatypeConverter;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.Jwts;
@@ -96,23 +98,53 @@ public class TokenUtil {
     }
 
     /**
-     * Validates provided by client token.
+     * Parses provided by client token and verifies its signature once.
+     * Returns null if the token is malformed or the signature doesn't match.
+     * Expiry is NOT checked here, see TokenClaims.isExpired(); the claim
+     * getters below return nothing for expired tokens.
      *
      * @param token
      * @param key
      * @return
      */
-    public static boolean isValid(String token, Key key) {
+    public static TokenClaims parseClaims(String token, Key key) {
         try {
-            log.log(Level.INFO, "Secret KEY passed to the validation: {0}", Base64.getEncoder().encodeToString(key.getEncoded()));
-            Jwts.parser().setSigningKey(key).parseClaimsJws(token.trim());
-            return true;
+            Claims claims = Jwts.parser().setSigningKey(key).parseClaimsJws(token.trim()).getBody();
+            String audience = claims.getAudience();
+            return new TokenClaims(claims.getSubject(),
+                    Integer.parseInt(claims.getId()),
+                    audience == null ? new String[]{} : audience.split(","),
+                    claims.getExpiration());
+        } catch (ExpiredJwtException e) {
+            // signature was verified before the expiry check failed
+            Claims claims = e.getClaims();
+            return new TokenClaims(claims.getSubject(), Integer.parseInt(claims.getId()),
+                    new String[]{}, claims.getExpiration());
         } catch (Exception e) {
-            e.printStackTrace();
-            return false;
+            log.log(Level.FINE, "Token validation failed: {0}", e.getMessage());
+            return null;
         }
     }
 
+    /**
+     * Validates provided by client token.
+     *
+     * @param token
+     * @param key
+     * @return
+     */
+    public static boolean isValid(String token, Key key) {
+        return validClaims(token, key) != null;
+    }
+
+    /**
+     * Returns claims of a valid, not expired token, null otherwise.
+     */
+    private static TokenClaims validClaims(String token, Key key) {
+        TokenClaims claims = parseClaims(token, key);
+        return claims != null && !claims.isExpired() ? claims : null;
+    }
+
     /**
      * Returns Name from token's claim.
      *
@@ -121,11 +153,8 @@ public class TokenUtil {
      * @return
      */
     public static String getName(String jwsToken, Key key) {
-        if (isValid(jwsToken, key)) {
-            Jws<Claims> claimsJws = Jwts.parser().setSigningKey(key).parseClaimsJws(jwsToken);
-            return claimsJws.getBody().getSubject();
-        }
-        return null;
+        TokenClaims claims = validClaims(jwsToken, key);
+        return claims != null ? claims.getUsername() : null;
     }
 
     /**
@@ -136,11 +165,8 @@ public class TokenUtil {
      * @return
      */
     public static String[] getRoles(String jwsToken, Key key) {
-        if (isValid(jwsToken, key)) {
-            Jws<Claims> claimsJws = Jwts.parser().setSigningKey(key).parseClaimsJws(jwsToken);
-            return claimsJws.getBody().getAudience().split(",");
-        }
-        return new String[]{};
+        TokenClaims claims = validClaims(jwsToken, key);
+        return claims != null ? claims.getRoles() : new String[]{};
     }
 
     /**
@@ -151,11 +177,8 @@ public class TokenUtil {
      * @return
      */
     public static int getId(String jwsToken, Key key) {
-        if (isValid(jwsToken, key)) {
-            Jws<Claims> claimsJws = Jwts.parser().setSigningKey(key).parseClaimsJws(jwsToken);
-            return Integer.parseInt(claimsJws.getBody().getId());
-        }
-        return -1;
+        TokenClaims claims = validClaims(jwsToken, key);
+        return claims != null ? claims.getId() : -1;
     }
 
     /**
@@ -166,11 +189,8 @@ public class TokenUtil {
      * @return
      */
     public static Date getExpiryDate(String jwsToken, Key key) {
-        if (isValid(jwsToken, key)) {
-            Jws<Claims> claimsJws = Jwts.parser().setSigningKey(key).parseClaimsJws(jwsToken);
-            return claimsJws.getBody().getExpiration();
-        }
-        return null;
+        TokenClaims claims = validClaims(jwsToken, key);
+        return claims != null ? claims.getExpiryDate() : null;
     }
 
     /**
@@ -4,6 +4,7 @@ import com.mykolabs.hotel.beans.Customer;
 import com.mykolabs.hotel.beans.Payment;
 import com.mykolabs.hotel.beans.Reservation;
 import com.mykolabs.hotel.beans.Room;
+import com.mykolabs.hotel.beansLists.Booking;
 
 /**
  * Validation helper for JSON objects / Parameters in requests.
@@ -97,6 +98,32 @@ public class Validator {
                 || payment.getReservationId() == null);
     }
     
+    /**
+     * Validates if Booking instance has a reservation and a payment with
+     * valid data. Ids are generated, so they are not required.
+     *
+     * @param booking
+     * @return
+     */
+    public static boolean isBookingValid(Booking booking) {
+        if (booking == null || booking.getReservation() == null || booking.getPayment() == null) {
+            return false;
+        }
+        Reservation reservation = booking.getReservation();
+        Payment payment = booking.getPayment();
+
+        return !(reservation.getCheckinDate() == null
+                || reservation.getCheckoutDate() == null
+                || reservation.getCustomerId() == null
+                || reservation.getRoomNumberId() == null
+                || reservation.getEmployeeId() == null
+                || payment.getCardType() == null
+                || payment.getCardNumber() == null
+                || payment.getCardExpiration() == null
+                || payment.getPaymentAmount() == null
+                || payment.getDescription() == null);
+    }
+
      /**
      * Validates passed to the POST / PUT methods Room instances are not null
      *
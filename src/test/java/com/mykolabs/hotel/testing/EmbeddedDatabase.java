@@ -0,0 +1,108 @@
+package com.mykolabs.hotel.testing;
+
+import com.mykolabs.hotel.cache.ArrivalsIndex;
+import com.mykolabs.hotel.cache.CustomerSearchIndex;
+import com.mykolabs.hotel.cache.OccupancyRollup;
+import com.mykolabs.hotel.cache.RoomAvailabilityIndex;
+import com.mykolabs.hotel.cache.RoomCatalog;
+import com.mykolabs.hotel.json.PayloadCache;
+import com.mykolabs.hotel.util.ConnectionHelper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Creates the HOTEL schema and sample data in the embedded H2 database
+ * configured in prod-db.properties, using the MySQL script from the test
+ * resources. H2 runs in MySQL compatibility mode, so the DAOs run their
+ * production SQL against it.
+ *
+ * @author nikprixmar
+ */
+public class EmbeddedDatabase {
+
+    private static final String SCHEMA_SCRIPT = "HotelTableCreate.sql";
+
+    private static boolean initialized;
+
+    /**
+     * Runs the schema script once per JVM.
+     *
+     * @throws SQLException
+     * @throws IOException
+     */
+    public static synchronized void init() throws SQLException, IOException {
+        if (initialized) {
+            return;
+        }
+        runScript(false);
+        initialized = true;
+    }
+
+    /**
+     * Drops all data and recreates the schema with the sample rows only.
+     *
+     * @throws SQLException
+     * @throws IOException
+     */
+    public static synchronized void reset() throws SQLException, IOException {
+        runScript(true);
+        initialized = true;
+    }
+
+    /**
+     * Drops everything the application keeps in memory about the DB, called
+     * after the DB was changed behind the DAOs' back.
+     */
+    public static void invalidateCaches() {
+        RoomCatalog.getInstance().invalidate();
+        RoomAvailabilityIndex.getInstance().invalidate();
+        ArrivalsIndex.getInstance().invalidate();
+        CustomerSearchIndex.getInstance().invalidate();
+        OccupancyRollup.getInstance().invalidate();
+        PayloadCache.getInstance().clear();
+    }
+
+    private static void runScript(boolean dropAll) throws SQLException, IOException {
+        try (Connection connection = ConnectionHelper.getConnection();
+                Statement statement = connection.createStatement()) {
+            if (dropAll) {
+                // the script's DROP TABLEs don't respect foreign keys
+                statement.execute("DROP ALL OBJECTS");
+            }
+            for (String sql : toH2(readScript()).split(";")) {
+                if (!sql.trim().isEmpty()) {
+                    statement.execute(sql);
+                }
+            }
+        }
+        invalidateCaches();
+    }
+
+    private static String readScript() throws IOException {
+        try (InputStream in = EmbeddedDatabase.class.getClassLoader().getResourceAsStream(SCHEMA_SCRIPT)) {
+            if (in == null) {
+                throw new IOException(SCHEMA_SCRIPT + " not found on classpath");
+            }
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Rewrites the MySQL specific parts of the script H2 doesn't understand.
+     */
+    private static String toH2(String script) {
+        return script
+                .replaceAll("(?m)^--.*$", "")
+                .replaceAll("(?im)^USE \\w+;", "")
+                .replaceAll("(?i)\\s*ENGINE=INNODB", "")
+                .replaceAll("(?i) UNSIGNED", "")
+                .replaceAll("(?i)ALTER TABLE (\\w+) ADD INDEX\\s*\\(([\\w, ]+)\\)", "CREATE INDEX ON $1($2)")
+                // MySQL accepts double quoted string literals
+                .replaceAll("\"([^\"]*)\"", "'$1'");
+    }
+}
@@ -0,0 +1,321 @@
+package com.mykolabs.hotel.testing;
+
+import com.mykolabs.hotel.beans.Reservation;
+import com.mykolabs.hotel.beans.RoomSearch;
+import com.mykolabs.hotel.beans.TodayDate;
+import com.mykolabs.hotel.exceptions.RoomNotAvailableException;
+import com.mykolabs.hotel.metrics.LatencyHistogram;
+import com.mykolabs.hotel.persistence.ReservationDAO;
+import com.mykolabs.hotel.persistence.RoomDAO;
+import com.mykolabs.hotel.util.ConnectionHelper;
+import com.mykolabs.hotel.util.ReservationCursor;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Multi-threaded load driver replaying the DAO calls behind the busiest
+ * RoomResource and ReservationsResource endpoints, in a fixed weighted mix,
+ * against the embedded DB. Reports throughput and latency percentiles per
+ * operation, measured after a warmup.
+ *
+ * Run with: mvn -Pload-test test-compile exec:exec, the data set and load are
+ * set with -Dload.* system properties (see main()).
+ *
+ * @author nikprixmar
+ */
+public class LoadDriver {
+
+    private static final Logger appLog = Logger.getLogger("com.mykolabs.hotel");
+
+    /**
+     * Replayed calls with their share of the mix.
+     */
+    public enum Operation {
+        ROOMS_LIST("GET /rooms", 20),
+        ROOM_GET("GET /rooms/{id}", 15),
+        ROOMS_AVAILABLE("POST /rooms/availablerooms", 15),
+        TODAY_RESERVATIONS("POST /reservations/todayReservations", 15),
+        RESERVATION_GET("GET /reservations/{id}", 15),
+        RESERVATIONS_PAGE("GET /reservations/page", 10),
+        RESERVATION_UPDATE("PUT /reservations/update", 5),
+        RESERVATION_CREATE("POST /reservations/create", 5);
+
+        private final String endpoint;
+        private final int weight;
+
+        Operation(String endpoint, int weight) {
+            this.endpoint = endpoint;
+            this.weight = weight;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+    }
+
+    private final SyntheticDataGenerator.Dataset dataset;
+    private int threads = 8;
+    private int warmupSeconds = 5;
+    private int durationSeconds = 30;
+    private long seed = 42;
+
+    public LoadDriver(SyntheticDataGenerator.Dataset dataset) {
+        this.dataset = dataset;
+    }
+
+    public LoadDriver threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public LoadDriver warmupSeconds(int warmupSeconds) {
+        this.warmupSeconds = warmupSeconds;
+        return this;
+    }
+
+    public LoadDriver durationSeconds(int durationSeconds) {
+        this.durationSeconds = durationSeconds;
+        return this;
+    }
+
+    public LoadDriver seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Runs the warmup, then the measured phase.
+     *
+     * @return results of the measured phase
+     * @throws InterruptedException
+     */
+    public Report run() throws InterruptedException {
+        if (warmupSeconds > 0) {
+            runPhase(warmupSeconds, seed - 1);
+        }
+        return runPhase(durationSeconds, seed);
+    }
+
+    private Report runPhase(int seconds, long phaseSeed) throws InterruptedException {
+        Report report = new Report(threads);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        for (int i = 0; i < threads; i++) {
+            Random random = new Random(phaseSeed * 31 + i);
+            workers.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    Operation operation = pick(random);
+                    long began = System.nanoTime();
+                    try {
+                        execute(operation, random);
+                        report.histograms.get(operation).recordNanos(System.nanoTime() - began);
+                    } catch (Exception ex) {
+                        report.errors.get(operation).increment();
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(seconds + 60L, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private static Operation pick(Random random) {
+        int total = 0;
+        for (Operation operation : Operation.values()) {
+            total += operation.weight;
+        }
+        int ticket = random.nextInt(total);
+        for (Operation operation : Operation.values()) {
+            ticket -= operation.weight;
+            if (ticket < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private void execute(Operation operation, Random random) throws Exception {
+        switch (operation) {
+            case ROOMS_LIST:
+                new RoomDAO().getAllRooms(0, 100, true);
+                break;
+            case ROOM_GET:
+                new RoomDAO().getRoom(pick(random, dataset.getRoomNumbers()));
+                break;
+            case ROOMS_AVAILABLE: {
+                LocalDate checkin = randomDay(random);
+                RoomSearch roomSearch = new RoomSearch();
+                roomSearch.setCheckinDate(Date.valueOf(checkin));
+                roomSearch.setCheckoutDate(Date.valueOf(checkin.plusDays(1 + random.nextInt(7))));
+                roomSearch.setRoomPrice(BigDecimal.valueOf(100 + random.nextInt(400)));
+                new RoomDAO().getAllAvailableRooms(roomSearch);
+                break;
+            }
+            case TODAY_RESERVATIONS: {
+                TodayDate today = new TodayDate();
+                today.setCurrentDate(randomDay(random).atStartOfDay());
+                new ReservationDAO().getAllTodayReservations(today);
+                break;
+            }
+            case RESERVATION_GET:
+                new ReservationDAO().getReservation(pick(random, dataset.getReservationIds()));
+                break;
+            case RESERVATIONS_PAGE:
+                new ReservationDAO().getReservationsPage(
+                        new ReservationCursor(randomDay(random).atStartOfDay(), Integer.MAX_VALUE), 50);
+                break;
+            case RESERVATION_UPDATE: {
+                ReservationDAO reservationDAO = new ReservationDAO();
+                Reservation reservation = reservationDAO.getReservation(pick(random, dataset.getReservationIds()));
+                // late checkout
+                reservation.setCheckoutDate(reservation.getCheckoutDate().toLocalDate().atTime(11 + random.nextInt(3), 0));
+                reservationDAO.updateReservation(reservation);
+                break;
+            }
+            case RESERVATION_CREATE: {
+                // after the generated stays, so it never collides with them
+                LocalDateTime checkin = LocalDateTime.of(
+                        dataset.getLastDay().plusDays(random.nextInt(365)), LocalTime.of(15, 0));
+                Reservation reservation = new Reservation(null, checkin, checkin.plusDays(1 + random.nextInt(7)));
+                reservation.setCustomerId(pick(random, dataset.getCustomerIds()));
+                reservation.setRoomNumberId(pick(random, dataset.getRoomNumbers()));
+                reservation.setEmployeeId(dataset.getEmployeeId());
+                try {
+                    new ReservationDAO().addReservation(reservation);
+                } catch (RoomNotAvailableException ex) {
+                    // room taken by an earlier create, a regular answer
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    private LocalDate randomDay(Random random) {
+        long days = dataset.getLastDay().toEpochDay() - dataset.getFirstDay().toEpochDay();
+        return dataset.getFirstDay().plusDays(random.nextInt((int) Math.max(1, days)));
+    }
+
+    private static int pick(Random random, int[] ids) {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    /**
+     * Results of one measured run.
+     */
+    public static final class Report {
+
+        private final int threads;
+        private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+        private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+        private volatile long elapsedNanos;
+
+        Report(int threads) {
+            this.threads = threads;
+            for (Operation operation : Operation.values()) {
+                histograms.put(operation, new LatencyHistogram());
+                errors.put(operation, new LongAdder());
+            }
+        }
+
+        public LatencyHistogram getHistogram(Operation operation) {
+            return histograms.get(operation);
+        }
+
+        public long getErrors(Operation operation) {
+            return errors.get(operation).sum();
+        }
+
+        public long getTotalCount() {
+            long total = 0;
+            for (LatencyHistogram histogram : histograms.values()) {
+                total += histogram.getCount();
+            }
+            return total;
+        }
+
+        public long getTotalErrors() {
+            long total = 0;
+            for (LongAdder adder : errors.values()) {
+                total += adder.sum();
+            }
+            return total;
+        }
+
+        /**
+         * Successful operations per second.
+         *
+         * @return
+         */
+        public double getThroughput() {
+            return getTotalCount() / (elapsedNanos / 1e9);
+        }
+
+        public void print(PrintStream out) {
+            double seconds = elapsedNanos / 1e9;
+            out.printf("%d threads, %.1f s, %.0f ops/s, %d errors%n", threads, seconds, getThroughput(), getTotalErrors());
+            out.printf("%-40s %9s %9s %9s %9s %9s %7s%n", "operation", "count", "ops/s", "p50 ms", "p99 ms", "max ms", "errors");
+            for (Operation operation : Operation.values()) {
+                LatencyHistogram histogram = histograms.get(operation);
+                out.printf("%-40s %9d %9.0f %9.2f %9.2f %9.2f %7d%n", operation.getEndpoint(),
+                        histogram.getCount(), histogram.getCount() / seconds,
+                        histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                        histogram.getMax() / 1000.0, getErrors(operation));
+            }
+        }
+    }
+
+    /**
+     * Boots the embedded DB, generates the data set and runs the load. All
+     * settings are optional system properties: load.rooms, load.customers,
+     * load.reservations, load.payments, load.years, load.seed, load.threads,
+     * load.warmup and load.duration (seconds).
+     *
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        // DAOs log every call at INFO
+        appLog.setLevel(Level.WARNING);
+
+        EmbeddedDatabase.reset();
+        SyntheticDataGenerator.Dataset dataset = new SyntheticDataGenerator()
+                .rooms(Integer.getInteger("load.rooms", 200))
+                .customers(Integer.getInteger("load.customers", 20000))
+                .reservations(Integer.getInteger("load.reservations", 100000))
+                .payments(Integer.getInteger("load.payments", 80000))
+                .years(Integer.getInteger("load.years", 3))
+                .seed(Long.getLong("load.seed", 42L))
+                .generate();
+
+        Report report = new LoadDriver(dataset)
+                .threads(Integer.getInteger("load.threads", 8))
+                .warmupSeconds(Integer.getInteger("load.warmup", 5))
+                .durationSeconds(Integer.getInteger("load.duration", 30))
+                .seed(Long.getLong("load.seed", 42L))
+                .run();
+        report.print(System.out);
+
+        ConnectionHelper.shutdown();
+    }
+}
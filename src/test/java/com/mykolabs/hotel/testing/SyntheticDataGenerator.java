@@ -0,0 +1,303 @@
+package com.mykolabs.hotel.testing;
+
+import com.mykolabs.hotel.util.ConnectionHelper;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fills the HOTEL tables with reproducible synthetic data: the same seed and
+ * counts always produce the same rows.
+ *
+ * Reservations are spread over the given number of years starting at
+ * firstDay, round robin over the rooms. Stays of the same room don't
+ * overlap as long as there are enough days for them (years * 365 * rooms
+ * nights in total).
+ *
+ * @author nikprixmar
+ */
+public class SyntheticDataGenerator {
+
+    private static final Logger log = Logger.getLogger(SyntheticDataGenerator.class.getName());
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_STAY_NIGHTS = 14;
+
+    private static final String[] FIRST_NAMES = {"Anna", "Boris", "Chloe", "David", "Emma", "Felix", "Grace",
+        "Hugo", "Iris", "Jacob", "Kate", "Liam", "Mia", "Noah", "Olga", "Paul", "Rosa", "Sam", "Tina", "Victor"};
+    private static final String[] LAST_NAMES = {"Smith", "Tremblay", "Roy", "Gagnon", "Brown", "Wilson", "Martin",
+        "Lee", "Taylor", "Campbell", "Anderson", "Moreau", "Lavoie", "Fortin", "Kowalski", "Novak", "Garcia"};
+    private static final String[] CITIES = {"Montreal", "Toronto", "Quebec", "Ottawa", "Vancouver", "Calgary",
+        "Halifax", "Boston", "New York", "Chicago"};
+    private static final String[] STATES = {"QC", "ON", "BC", "AB", "NS", "MA", "NY", "IL"};
+    private static final String[] ROOM_TYPES = {"Single", "Double", "Queen", "King", "Suite"};
+    private static final String[] CARD_TYPES = {"VISA", "MASTERCARD", "AMEX"};
+
+    private int rooms = 100;
+    private int customers = 1000;
+    private int reservations = 5000;
+    private int payments = 4000;
+    private int years = 3;
+    private LocalDate firstDay = LocalDate.now().minusYears(1).withDayOfYear(1);
+    private long seed = 42;
+
+    public SyntheticDataGenerator rooms(int rooms) {
+        this.rooms = rooms;
+        return this;
+    }
+
+    public SyntheticDataGenerator customers(int customers) {
+        this.customers = customers;
+        return this;
+    }
+
+    public SyntheticDataGenerator reservations(int reservations) {
+        this.reservations = reservations;
+        return this;
+    }
+
+    public SyntheticDataGenerator payments(int payments) {
+        this.payments = payments;
+        return this;
+    }
+
+    public SyntheticDataGenerator years(int years) {
+        this.years = years;
+        return this;
+    }
+
+    public SyntheticDataGenerator firstDay(LocalDate firstDay) {
+        this.firstDay = firstDay;
+        return this;
+    }
+
+    public SyntheticDataGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Adds the rows to the tables and drops the application caches, so they
+     * are rebuilt with the new data. Payments need reservations, and
+     * reservations need rooms and customers to refer to.
+     *
+     * @return ids of the generated rows
+     * @throws SQLException
+     */
+    public Dataset generate() throws SQLException {
+        if (reservations > 0 && (rooms <= 0 || customers <= 0)) {
+            throw new IllegalArgumentException("Reservations need rooms and customers");
+        }
+        if (payments > 0 && reservations <= 0) {
+            throw new IllegalArgumentException("Payments need reservations");
+        }
+        Random random = new Random(seed);
+        long start = System.nanoTime();
+
+        Dataset dataset = new Dataset();
+        try (Connection connection = ConnectionHelper.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                int employeeId = firstEmployeeId(connection);
+                dataset.employeeId = employeeId;
+                dataset.roomNumbers = insertRooms(connection, random);
+                dataset.customerIds = insertCustomers(connection, random);
+                dataset.reservationIds = insertReservations(connection, random, dataset, employeeId);
+                insertPayments(connection, random, dataset);
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        dataset.firstDay = firstDay;
+        dataset.lastDay = firstDay.plusYears(years);
+
+        EmbeddedDatabase.invalidateCaches();
+        log.log(Level.INFO, "Generated {0} rooms, {1} customers, {2} reservations, {3} payments in {4} ms",
+                new Object[]{rooms, customers, reservations, payments, (System.nanoTime() - start) / 1000000});
+        return dataset;
+    }
+
+    private int[] insertRooms(Connection connection, Random random) throws SQLException {
+        String sql = "INSERT INTO ROOM (ROOM_PRICE, ROOM_TYPE, IMAGE, DESCRIPTION) VALUES (?,?,?,?)";
+        try (PreparedStatement pStatement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < rooms; i++) {
+                pStatement.setBigDecimal(1, BigDecimal.valueOf(60 + random.nextInt(400)));
+                pStatement.setString(2, pick(random, ROOM_TYPES));
+                // mix partial paths and full URLs, as the real data does
+                pStatement.setString(3, i % 2 == 0 ? "room" + (i % 8 + 1) + ".jpg" : "https://cdn.example.com/room" + i + ".jpg");
+                pStatement.setString(4, "Recently renovated room with a view, number " + i);
+                pStatement.addBatch();
+                flushEvery(pStatement, i);
+            }
+            pStatement.executeBatch();
+            return lastIds(connection, "ROOM", rooms);
+        }
+    }
+
+    private int[] insertCustomers(Connection connection, Random random) throws SQLException {
+        String sql = "INSERT INTO CUSTOMER (FIRST_NAME, LAST_NAME, ADDRESS, CITY, STATE, PHONE) VALUES (?,?,?,?,?,?)";
+        try (PreparedStatement pStatement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < customers; i++) {
+                pStatement.setString(1, pick(random, FIRST_NAMES));
+                pStatement.setString(2, pick(random, LAST_NAMES));
+                pStatement.setString(3, (1 + random.nextInt(9999)) + " Main Street");
+                pStatement.setString(4, pick(random, CITIES));
+                pStatement.setString(5, pick(random, STATES));
+                pStatement.setString(6, String.format("%03d-555-%04d", 200 + random.nextInt(800), random.nextInt(10000)));
+                pStatement.addBatch();
+                flushEvery(pStatement, i);
+            }
+            pStatement.executeBatch();
+            return lastIds(connection, "CUSTOMER", customers);
+        }
+    }
+
+    private int[] insertReservations(Connection connection, Random random, Dataset dataset, int employeeId)
+            throws SQLException {
+        String sql = "INSERT INTO RESERVATION (CHECKIN_DATE, CHECKOUT_DATE, CUSTOMER_ID, ROOM_NUMBER, EMPLOYEE_ID) "
+                + "VALUES (?,?,?,?,?)";
+        long spanDays = firstDay.plusYears(years).toEpochDay() - firstDay.toEpochDay();
+        // days available to every stay of a room
+        long slot = Math.max(1, spanDays * dataset.roomNumbers.length / Math.max(1, reservations));
+
+        try (PreparedStatement pStatement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < reservations; i++) {
+                int room = i % dataset.roomNumbers.length;
+                long slotStart = (long) (i / dataset.roomNumbers.length) * slot;
+                int nights = 1 + random.nextInt((int) Math.min(MAX_STAY_NIGHTS, Math.max(1, slot - 1)));
+                long offset = slot > nights ? random.nextInt((int) (slot - nights)) : 0;
+
+                LocalDate checkinDay = firstDay.plusDays((slotStart + offset) % spanDays);
+                // some guests arrive at midnight, most in the afternoon
+                LocalDateTime checkin = LocalDateTime.of(checkinDay,
+                        random.nextInt(10) == 0 ? LocalTime.MIDNIGHT : LocalTime.of(14 + random.nextInt(8), 0));
+                LocalDateTime checkout = LocalDateTime.of(checkinDay.plusDays(nights), LocalTime.of(11, 0));
+
+                pStatement.setTimestamp(1, Timestamp.valueOf(checkin));
+                pStatement.setTimestamp(2, Timestamp.valueOf(checkout));
+                pStatement.setInt(3, dataset.customerIds[random.nextInt(dataset.customerIds.length)]);
+                pStatement.setInt(4, dataset.roomNumbers[room]);
+                pStatement.setInt(5, employeeId);
+                pStatement.addBatch();
+                flushEvery(pStatement, i);
+            }
+            pStatement.executeBatch();
+            return lastIds(connection, "RESERVATION", reservations);
+        }
+    }
+
+    private void insertPayments(Connection connection, Random random, Dataset dataset) throws SQLException {
+        String sql = "INSERT INTO PAYMENT (CARD_TYPE, CARD_NUMBER, CARD_EXPIRATION, PAYMENT_AMOUNT, DESCRIPTION, "
+                + "CUSTOMER_ID, RESERVATION_ID) VALUES (?,?,?,?,?,?,?)";
+        try (PreparedStatement pStatement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < payments; i++) {
+                pStatement.setString(1, pick(random, CARD_TYPES));
+                pStatement.setString(2, String.format("4%015d", Math.abs(random.nextLong() % 1000000000000000L)));
+                pStatement.setString(3, String.format("%02d/%02d", 1 + random.nextInt(12), 20 + random.nextInt(10)));
+                pStatement.setBigDecimal(4, BigDecimal.valueOf(60 + random.nextInt(4000)));
+                pStatement.setString(5, "Synthetic payment " + i);
+                pStatement.setInt(6, dataset.customerIds[random.nextInt(dataset.customerIds.length)]);
+                pStatement.setInt(7, dataset.reservationIds[i % dataset.reservationIds.length]);
+                pStatement.addBatch();
+                flushEvery(pStatement, i);
+            }
+            pStatement.executeBatch();
+        }
+    }
+
+    private static int firstEmployeeId(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT MIN(EMPLOYEE_ID) FROM EMPLOYEE")) {
+            if (resultSet.next() && resultSet.getInt(1) > 0) {
+                return resultSet.getInt(1);
+            }
+            throw new SQLException("No EMPLOYEE to make reservations with");
+        }
+    }
+
+    private static void flushEvery(PreparedStatement pStatement, int i) throws SQLException {
+        if ((i + 1) % BATCH_SIZE == 0) {
+            pStatement.executeBatch();
+        }
+    }
+
+    /**
+     * Ids of the rows just inserted, which are the highest ones. Batches
+     * don't reliably return generated keys.
+     */
+    private static int[] lastIds(Connection connection, String table, int count) throws SQLException {
+        String idColumn = table.equals("ROOM") ? "ROOM_NUMBER" : table + "_ID";
+        int[] ids = new int[count];
+        try (PreparedStatement pStatement = connection.prepareStatement(
+                "SELECT " + idColumn + " FROM " + table + " ORDER BY " + idColumn + " DESC LIMIT ?")) {
+            pStatement.setInt(1, count);
+            try (ResultSet resultSet = pStatement.executeQuery()) {
+                int i = count;
+                while (resultSet.next()) {
+                    ids[--i] = resultSet.getInt(1);
+                }
+            }
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Ids of the generated rows, for tests and load drivers to pick from.
+     */
+    public static final class Dataset {
+
+        private int[] roomNumbers = new int[0];
+        private int[] customerIds = new int[0];
+        private int[] reservationIds = new int[0];
+        private int employeeId;
+        private LocalDate firstDay;
+        private LocalDate lastDay;
+
+        public int[] getRoomNumbers() {
+            return roomNumbers;
+        }
+
+        public int[] getCustomerIds() {
+            return customerIds;
+        }
+
+        public int[] getReservationIds() {
+            return reservationIds;
+        }
+
+        /* employee the reservations were made by */
+        public int getEmployeeId() {
+            return employeeId;
+        }
+
+        /* first day reservations may start on */
+        public LocalDate getFirstDay() {
+            return firstDay;
+        }
+
+        /* day after the last day reservations may start on */
+        public LocalDate getLastDay() {
+            return lastDay;
+        }
+    }
+}
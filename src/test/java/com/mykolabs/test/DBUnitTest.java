@@ -6,16 +6,524 @@ package com.mykolabs.test;
  * and open the template in the editor.
  */
 
+import com.mykolabs.hotel.beans.Customer;
+import com.mykolabs.hotel.beans.Payment;
+import com.mykolabs.hotel.beans.Reservation;
+import com.mykolabs.hotel.beans.Room;
+import com.mykolabs.hotel.beans.RoomSearch;
+import com.mykolabs.hotel.beansLists.Change;
+import com.mykolabs.hotel.beansLists.OccupancyRow;
+import com.mykolabs.hotel.beansLists.ReservationDetails;
+import com.mykolabs.hotel.beansLists.TodayReservation;
+import com.mykolabs.hotel.cache.CustomerSearchIndex;
+import com.mykolabs.hotel.cache.OccupancyRollup;
+import com.mykolabs.hotel.events.ReservationEventBus;
+import com.mykolabs.hotel.exceptions.RoomNotAvailableException;
+import com.mykolabs.hotel.persistence.ChangeLogDAO;
+import com.mykolabs.hotel.persistence.CustomerDAO;
+import com.mykolabs.hotel.persistence.PaymentDAO;
+import com.mykolabs.hotel.persistence.ReservationDAO;
+import com.mykolabs.hotel.persistence.RoomDAO;
+import com.mykolabs.hotel.testing.EmbeddedDatabase;
+import com.mykolabs.hotel.testing.LoadDriver;
+import com.mykolabs.hotel.testing.SyntheticDataGenerator;
+import com.mykolabs.hotel.util.ConnectionHelper;
+import com.mykolabs.hotel.util.IdList;
+import com.mykolabs.hotel.util.ReservationCursor;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.glassfish.jersey.media.sse.OutboundEvent;
+import org.junit.BeforeClass;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
 /**
+ * DAO tests against the embedded H2 database, seeded with a small synthetic
+ * data set.
  *
  * @author nikprixmar
  */
 public class DBUnitTest {
-    
+
+    private static SyntheticDataGenerator.Dataset dataset;
+
     public DBUnitTest() {
     }
-    
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        EmbeddedDatabase.reset();
+        dataset = new SyntheticDataGenerator()
+                .rooms(20)
+                .customers(200)
+                .reservations(500)
+                .payments(300)
+                .years(1)
+                .seed(7)
+                .generate();
+    }
+
+    @Test
+    public void generatedRowsAreReadable() throws Exception {
+        assertEquals(20, dataset.getRoomNumbers().length);
+        assertEquals(200, dataset.getCustomerIds().length);
+        assertEquals(500, dataset.getReservationIds().length);
+
+        assertTrue(new RoomDAO().getAllRooms(0, 100, true).size() >= 20);
+        assertNotNull(new ReservationDAO().getReservation(dataset.getReservationIds()[0]));
+    }
+
+    @Test
+    public void customerUpdateRoundTrip() throws Exception {
+        CustomerDAO customerDAO = new CustomerDAO();
+        Customer customer = customerDAO.getCustomer(dataset.getCustomerIds()[0]);
+        customer.setCity("Montreal");
+        customer.setState("QC");
+        customer.setPhone("514-555-0100");
+
+        assertEquals(1, customerDAO.updateCustomer(customer));
+
+        Customer updated = customerDAO.getCustomer(customer.getCustomerId());
+        assertEquals("Montreal", updated.getCity());
+        assertEquals("QC", updated.getState());
+        assertEquals("514-555-0100", updated.getPhone());
+    }
+
+    @Test
+    public void customerSearchFollowsUpdates() throws Exception {
+        CustomerDAO customerDAO = new CustomerDAO();
+        Customer customer = customerDAO.getCustomer(dataset.getCustomerIds()[1]);
+        customer.setLastName("Zweistein");
+        customer.setPhone("(450) 555-0199");
+        customerDAO.updateCustomer(customer);
+
+        CustomerSearchIndex.Matches byName = CustomerSearchIndex.getInstance().search("zweis", 0, 10);
+        assertEquals(1, byName.getTotal());
+        assertEquals(customer.getCustomerId(), byName.getIds().get(0));
+
+        CustomerSearchIndex.Matches byPhone = CustomerSearchIndex.getInstance().search("555-0199", 0, 10);
+        assertTrue(byPhone.getIds().contains(customer.getCustomerId()));
+        assertEquals(customer.getCustomerId(), customerDAO.getCustomers(byName.getIds()).get(0).getCustomerId());
+    }
+
+    @Test
+    public void addedRoomIsListed() throws Exception {
+        RoomDAO roomDAO = new RoomDAO();
+        Room room = new Room();
+        room.setRoomPrice(new BigDecimal("149.00"));
+        room.setRoomType("Suite");
+        room.setImage("http://example.com/suite.jpg");
+        room.setDescription("Corner suite");
+
+        assertEquals(1, roomDAO.addRoom(room));
+        assertNotNull(room.getRoomNumber());
+
+        Room stored = roomDAO.getRoom(room.getRoomNumber());
+        assertEquals(0, new BigDecimal("149.00").compareTo(stored.getRoomPrice()));
+        assertTrue(roomDAO.getAllRooms(0, 100, true).contains(room));
+    }
+
+    @Test
+    public void roomSearchWithoutPriceIsUncapped() throws Exception {
+        RoomDAO roomDAO = new RoomDAO();
+        RoomSearch search = new RoomSearch();
+        search.setCheckinDate(java.sql.Date.valueOf(LocalDate.of(2095, 3, 1)));
+        search.setCheckoutDate(java.sql.Date.valueOf(LocalDate.of(2095, 3, 4)));
+
+        List<Room> uncapped = roomDAO.getAllAvailableRooms(search);
+        assertEquals(roomDAO.getAllRooms(0, 0, false).size(), uncapped.size());
+
+        search.setRoomPrice(BigDecimal.ZERO);
+        assertTrue(roomDAO.getAllAvailableRooms(search).isEmpty());
+    }
+
+    @Test
+    public void multiGetKeepsRequestedOrder() throws Exception {
+        int[] rooms = dataset.getRoomNumbers();
+        List<Room> fetchedRooms = new RoomDAO().getRooms(Arrays.asList(rooms[3], -1, rooms[0]));
+        assertEquals(2, fetchedRooms.size());
+        assertEquals(rooms[3], fetchedRooms.get(0).getRoomNumber().intValue());
+        assertEquals(rooms[0], fetchedRooms.get(1).getRoomNumber().intValue());
+
+        // payments only cover the first 300 reservations
+        int[] reservations = dataset.getReservationIds();
+        List<Payment> payments = new PaymentDAO().getPaymentsByReservationIds(
+                Arrays.asList(reservations[1], reservations[499], reservations[0]));
+        assertEquals(2, payments.size());
+        assertEquals(reservations[1], payments.get(0).getReservationId().intValue());
+        assertEquals(reservations[0], payments.get(1).getReservationId().intValue());
+
+        assertNull(IdList.parse("1,x"));
+        assertEquals(Arrays.asList(3, 1), IdList.parse("3, 1,3"));
+    }
+
+    @Test
+    public void reservationDetailsEmbedRequestedParts() throws Exception {
+        ReservationDAO reservationDAO = new ReservationDAO();
+        int reservationId = dataset.getReservationIds()[0];
+        Reservation reservation = reservationDAO.getReservation(reservationId);
+
+        List<ReservationDetails> rows = reservationDAO.getReservationDetails(Arrays.asList(reservationId),
+                ReservationDetails.Part.parse("customer,payments"));
+        assertEquals(1, rows.size());
+        ReservationDetails details = rows.get(0);
+        assertEquals(reservation.getCustomerId(), details.getCustomer().getCustomerId());
+        assertNull(details.getRoom());
+        assertFalse(details.getPayments().isEmpty());
+        assertEquals(reservationId, details.getPayments().get(0).getReservationId().intValue());
+
+        List<ReservationDetails> page = reservationDAO.getReservationDetailsPage(null, 10,
+                ReservationDetails.Part.parse(null));
+        assertEquals(11, page.size());
+        assertEquals(page.get(0).getRoomNumber(), page.get(0).getRoom().getRoomNumber().intValue());
+        assertNotNull(page.get(9).getPayments());
+    }
+
+    @Test
+    public void reservationUpdatesAreStreamed() throws Exception {
+        List<OutboundEvent> received = new CopyOnWriteArrayList<>();
+        EventOutput output = new EventOutput() {
+            @Override
+            public void write(OutboundEvent event) {
+                received.add(event);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertTrue(ReservationEventBus.getInstance().subscribe(output, null));
+
+        ReservationDAO reservationDAO = new ReservationDAO();
+        Reservation reservation = reservationDAO.getReservation(dataset.getReservationIds()[2]);
+        reservation.setCheckoutDate(reservation.getCheckoutDate().plusHours(1));
+        assertEquals(1, reservationDAO.updateReservation(reservation));
+
+        // written by the event writers
+        long deadline = System.currentTimeMillis() + 5000;
+        while (received.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        OutboundEvent event = received.get(0);
+        assertEquals("updated", event.getName());
+        assertTrue(event.getData().toString().contains("\"reservationId\":" + reservation.getReservationId()));
+
+        // a client from a previous run can't resume
+        List<OutboundEvent> resumed = new CopyOnWriteArrayList<>();
+        ReservationEventBus.getInstance().subscribe(new EventOutput() {
+            @Override
+            public void write(OutboundEvent event) {
+                resumed.add(event);
+            }
+
+            @Override
+            public void close() {
+            }
+        }, "stale-1");
+        deadline = System.currentTimeMillis() + 5000;
+        while (resumed.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("reset", resumed.get(0).getName());
+    }
+
+    @Test
+    public void changeLogFollowsWrites() throws Exception {
+        ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+        long since = changeLogDAO.getLastChangeId();
+
+        ReservationDAO reservationDAO = new ReservationDAO();
+        Reservation reservation = reservationDAO.getReservation(dataset.getReservationIds()[3]);
+        reservation.setReservationId(null);
+        // same stay ten years later, the room is free then
+        reservation.setCheckinDate(reservation.getCheckinDate().plusYears(10));
+        reservation.setCheckoutDate(reservation.getCheckoutDate().plusYears(10));
+        int reservationId = reservationDAO.addReservation(reservation);
+        Payment payment = newPayment(reservation.getCustomerId());
+        payment.setReservationId(reservationId);
+        new PaymentDAO().addPayment(payment);
+        assertEquals(1, reservationDAO.deleteReservation(reservationId));
+
+        List<Change> changes = changeLogDAO.getChanges(since, 100);
+        assertEquals(4, changes.size());
+        assertTrue(changes.get(0).getChangeId() > since);
+        for (int i = 1; i < changes.size(); i++) {
+            assertTrue(changes.get(i).getChangeId() > changes.get(i - 1).getChangeId());
+        }
+        assertEquals(Change.Operation.CREATED, changes.get(0).getOperation());
+        assertEquals(reservationId, changes.get(0).getEntityId());
+        assertTrue(changes.get(0).getPayload().contains("\"reservationId\":" + reservationId));
+
+        // payment payloads keep the ids, not the card
+        assertEquals(Change.Entity.PAYMENT, changes.get(1).getEntity());
+        assertTrue(changes.get(1).getPayload().contains("\"reservationId\":" + reservationId));
+        assertTrue(changes.get(1).getPayload().contains("\"paymentId\":" + payment.getPaymentId()));
+        assertFalse(changes.get(1).getPayload().contains(payment.getCardNumber()));
+
+        // the payment is deleted with the reservation (ON DELETE CASCADE)
+        assertEquals(Change.Entity.PAYMENT, changes.get(2).getEntity());
+        assertEquals(Change.Operation.DELETED, changes.get(2).getOperation());
+        assertEquals((int) payment.getPaymentId(), changes.get(2).getEntityId());
+
+        assertEquals(Change.Entity.RESERVATION, changes.get(3).getEntity());
+        assertEquals(Change.Operation.DELETED, changes.get(3).getOperation());
+        assertNull(changes.get(3).getPayload());
+        assertEquals(changes.get(3).getChangeId(), changeLogDAO.getLastChangeId());
+    }
+
+    @Test
+    public void changeLogHoldsBackChangesBehindGaps() throws Exception {
+        ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+        ReservationDAO reservationDAO = new ReservationDAO();
+        long since = changeLogDAO.getLastChangeId();
+
+        Reservation reservation = newReservation();
+        reservation.setCheckinDate(LocalDateTime.of(2031, 5, 1, 15, 0));
+        reservation.setCheckoutDate(LocalDateTime.of(2031, 5, 3, 11, 0));
+
+        // a write that took its CHANGE_ID first commits last
+        try (Connection inFlight = ConnectionHelper.getConnection()) {
+            inFlight.setAutoCommit(false);
+            insertChange(inFlight);
+            reservationDAO.addReservation(reservation);
+            assertTrue(changeLogDAO.getChanges(since, 10).isEmpty());
+            inFlight.commit();
+            inFlight.setAutoCommit(true);
+        }
+        List<Change> changes = changeLogDAO.getChanges(since, 10);
+        assertEquals(2, changes.size());
+        since = changes.get(1).getChangeId();
+
+        // a rolled back write leaves a gap, skipped once the next change is old enough
+        try (Connection rolledBack = ConnectionHelper.getConnection()) {
+            rolledBack.setAutoCommit(false);
+            insertChange(rolledBack);
+            rolledBack.rollback();
+            rolledBack.setAutoCommit(true);
+        }
+        reservationDAO.deleteReservation(reservation.getReservationId());
+        assertTrue(changeLogDAO.getChanges(since, 10).isEmpty());
+
+        try (Connection connection = ConnectionHelper.getConnection();
+                PreparedStatement age = connection.prepareStatement(
+                        "UPDATE CHANGE_LOG SET CHANGED_AT = ? WHERE CHANGE_ID > ?")) {
+            age.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now().minusHours(1)));
+            age.setLong(2, since);
+            age.executeUpdate();
+        }
+        changes = changeLogDAO.getChanges(since, 10);
+        assertEquals(1, changes.size());
+        assertEquals(Change.Operation.DELETED, changes.get(0).getOperation());
+    }
+
+    private static void insertChange(Connection connection) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO CHANGE_LOG "
+                + "(ENTITY, ENTITY_ID, OPERATION, ORIGIN, CHANGED_AT) VALUES ('RESERVATION', 0, 'DELETED', 'test', CURRENT_TIMESTAMP)")) {
+            insert.executeUpdate();
+        }
+    }
+
+    @Test
+    public void bookingIsAllOrNothing() throws Exception {
+        ReservationDAO reservationDAO = new ReservationDAO();
+        ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+
+        Reservation reservation = newReservation();
+        Payment payment = newPayment(reservation.getCustomerId());
+        reservationDAO.addBooking(reservation, payment);
+        assertNotNull(reservationDAO.getReservation(reservation.getReservationId()));
+        assertEquals(payment.getPaymentId(),
+                new PaymentDAO().getPaymentByReservationId(reservation.getReservationId()).getPaymentId());
+
+        // unknown customer: the payment fails, the reservation is rolled back with it
+        long lastChangeId = changeLogDAO.getLastChangeId();
+        Reservation failed = newReservation();
+        failed.setRoomNumberId(dataset.getRoomNumbers()[6]);
+        try {
+            reservationDAO.addBooking(failed, newPayment(-1));
+            fail("payment of an unknown customer was added");
+        } catch (SQLException expected) {
+        }
+        assertNull(failed.getReservationId());
+        assertEquals(lastChangeId, changeLogDAO.getLastChangeId());
+
+        // nothing was left behind, the room is still free
+        reservationDAO.addBooking(failed, newPayment(failed.getCustomerId()));
+        assertNotNull(reservationDAO.getReservation(failed.getReservationId()).getReservationId());
+    }
+
+    @Test
+    public void overlappingStaysAreRejected() throws Exception {
+        ReservationDAO reservationDAO = new ReservationDAO();
+        int roomNumber = dataset.getRoomNumbers()[7];
+        reservationDAO.addReservation(stay(roomNumber, 2031, 5, 1, 4));
+
+        try {
+            reservationDAO.addReservation(stay(roomNumber, 2031, 5, 3, 5));
+            fail("overlapping stay was added");
+        } catch (RoomNotAvailableException expected) {
+        }
+        // checkin on the checkout day is fine
+        Reservation next = stay(roomNumber, 2031, 5, 4, 6);
+        reservationDAO.addReservation(next);
+
+        // so is keeping own nights, but not moving onto another stay
+        next.setCheckoutDate(next.getCheckoutDate().plusHours(2));
+        assertEquals(1, reservationDAO.updateReservation(next));
+        next.setCheckinDate(next.getCheckinDate().minusDays(1));
+        try {
+            reservationDAO.updateReservation(next);
+            fail("stay was moved onto another one");
+        } catch (RoomNotAvailableException expected) {
+        }
+
+        // concurrent bookings of the same nights, one wins
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            attempts.add(workers.submit(() -> {
+                try {
+                    new ReservationDAO().addReservation(stay(roomNumber, 2031, 6, 10, 12));
+                    return true;
+                } catch (RoomNotAvailableException ex) {
+                    return false;
+                }
+            }));
+        }
+        int booked = 0;
+        for (Future<Boolean> attempt : attempts) {
+            booked += attempt.get() ? 1 : 0;
+        }
+        workers.shutdown();
+        assertEquals(1, booked);
+    }
+
+    @Test
+    public void occupancyReportFollowsBookings() throws Exception {
+        int roomNumber = dataset.getRoomNumbers()[8];
+        String roomType = new RoomDAO().getRoom(roomNumber).getRoomType();
+        LocalDate from = LocalDate.of(2032, 8, 1);
+        LocalDate to = LocalDate.of(2032, 9, 1);
+        OccupancyRow before = occupancy(roomType, from, to);
+
+        Reservation reservation = stay(roomNumber, 2032, 8, 10, 13);
+        Payment payment = newPayment(reservation.getCustomerId());
+        new ReservationDAO().addBooking(reservation, payment);
+
+        OccupancyRow after = occupancy(roomType, from, to);
+        assertEquals(before.getRoomNightsSold() + 3, after.getRoomNightsSold());
+        assertEquals(0, before.getRevenue().add(payment.getPaymentAmount()).compareTo(after.getRevenue()));
+        assertTrue(after.getOccupancyRate().compareTo(before.getOccupancyRate()) > 0);
+    }
+
+    private static OccupancyRow occupancy(String roomType, LocalDate from, LocalDate to) throws Exception {
+        for (OccupancyRow row : OccupancyRollup.getInstance().getReport(OccupancyRollup.Period.MONTHLY, from, to)) {
+            if (row.getRoomType().equals(roomType)) {
+                return row;
+            }
+        }
+        fail("no row for " + roomType);
+        return null;
+    }
+
+    private static Reservation stay(int roomNumber, int year, int month, int checkinDay, int checkoutDay) {
+        Reservation reservation = new Reservation();
+        reservation.setCheckinDate(LocalDateTime.of(year, month, checkinDay, 15, 0));
+        reservation.setCheckoutDate(LocalDateTime.of(year, month, checkoutDay, 11, 0));
+        reservation.setCustomerId(dataset.getCustomerIds()[7]);
+        reservation.setRoomNumberId(roomNumber);
+        reservation.setEmployeeId(dataset.getEmployeeId());
+        return reservation;
+    }
+
+    private static Reservation newReservation() {
+        Reservation reservation = new Reservation();
+        reservation.setCheckinDate(LocalDateTime.of(2030, 3, 1, 15, 0));
+        reservation.setCheckoutDate(LocalDateTime.of(2030, 3, 4, 11, 0));
+        reservation.setCustomerId(dataset.getCustomerIds()[5]);
+        reservation.setRoomNumberId(dataset.getRoomNumbers()[5]);
+        reservation.setEmployeeId(dataset.getEmployeeId());
+        return reservation;
+    }
+
+    private static Payment newPayment(int customerId) {
+        Payment payment = new Payment();
+        payment.setCardType("VISA");
+        payment.setCardNumber("4111111111111111");
+        payment.setCardExpiration("12/30");
+        payment.setPaymentAmount(new BigDecimal("387.00"));
+        payment.setDescription("Booking");
+        payment.setCustomerId(customerId);
+        return payment;
+    }
+
+    @Test
+    public void closedConnectionStaysClosedAfterReborrow() throws Exception {
+        int active = ConnectionHelper.getPool().getActiveConnections();
+
+        Connection stale = ConnectionHelper.getConnection();
+        stale.close();
+        stale.close();
+        assertEquals(active, ConnectionHelper.getPool().getActiveConnections());
+
+        // most recently returned connection is handed out first
+        try (Connection current = ConnectionHelper.getConnection()) {
+            assertTrue(stale.isClosed());
+            assertFalse(current.isClosed());
+            try {
+                stale.setAutoCommit(false);
+                fail("Call through a returned connection must fail");
+            } catch (SQLException ex) {
+                // expected
+            }
+            stale.close();
+            assertTrue(current.getAutoCommit());
+            assertEquals(active + 1, ConnectionHelper.getPool().getActiveConnections());
+        }
+        assertEquals(active, ConnectionHelper.getPool().getActiveConnections());
+    }
+
+    @Test
+    public void reservationPagesAreOrderedAndDisjoint() throws Exception {
+        ReservationDAO reservationDAO = new ReservationDAO();
+        List<TodayReservation> first = reservationDAO.getReservationsPage(null, 50);
+        assertEquals(51, first.size());
+
+        TodayReservation last = first.get(49);
+        List<TodayReservation> second = reservationDAO.getReservationsPage(
+                new ReservationCursor(last.getCheckinDate(), last.getReservationId()), 50);
+        assertFalse(second.isEmpty());
+
+        TodayReservation previous = last;
+        for (TodayReservation row : second) {
+            int order = row.getCheckinDate().compareTo(previous.getCheckinDate());
+            assertTrue(order < 0 || (order == 0 && row.getReservationId() < previous.getReservationId()));
+            previous = row;
+        }
+    }
+
+    @Test
+    public void loadDriverSmoke() throws Exception {
+        LoadDriver.Report report = new LoadDriver(dataset)
+                .threads(2)
+                .warmupSeconds(0)
+                .durationSeconds(1)
+                .run();
+
+        assertTrue(report.getTotalCount() > 0);
+        assertEquals(0, report.getTotalErrors());
+    }
 }
@@ -5,6 +5,7 @@ DROP TABLE IF EXISTS EMPLOYEE;
 DROP TABLE IF EXISTS ROOM;
 DROP TABLE IF EXISTS RESERVATION;
 DROP TABLE IF EXISTS PAYMENT;
+DROP TABLE IF EXISTS CHANGE_LOG;
 
 CREATE TABLE CUSTOMER (
 CUSTOMER_ID INT UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
@@ -70,9 +71,23 @@ ON DELETE CASCADE
 ON UPDATE CASCADE
 ) ENGINE=INNODB;
 
+-- Change log (outbox) of reservation and payment writes, written in the
+-- same transaction. CHANGE_IDs may commit out of order and have gaps.
+CREATE TABLE CHANGE_LOG (
+CHANGE_ID BIGINT UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+ENTITY VARCHAR(20) NOT NULL,
+ENTITY_ID INT UNSIGNED NOT NULL,
+OPERATION VARCHAR(10) NOT NULL,
+ORIGIN VARCHAR(16) NOT NULL,
+PAYLOAD TEXT,
+CHANGED_AT DATETIME NOT NULL
+) ENGINE=INNODB;
+
 -- Add indexes for commonly searched columns 
 ALTER TABLE CUSTOMER ADD INDEX(CUSTOMER_ID);
 ALTER TABLE RESERVATION ADD INDEX(RESERVATION_ID);
+ALTER TABLE RESERVATION ADD INDEX(CHECKIN_DATE, RESERVATION_ID);
+ALTER TABLE RESERVATION ADD INDEX(ROOM_NUMBER, CHECKIN_DATE);
 ALTER TABLE PAYMENT ADD INDEX(PAYMENT_ID);
 
 -- Inserts data into the EMPLOYEE table